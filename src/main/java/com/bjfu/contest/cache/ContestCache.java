@@ -0,0 +1,106 @@
+package com.bjfu.contest.cache;
+
+import com.bjfu.contest.pojo.dto.ContestDTO;
+import com.bjfu.contest.pojo.dto.ContestProcessDTO;
+import com.bjfu.contest.utils.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 竞赛详情及流程列表缓存
+ * 竞赛进行中访问最频繁但很少变更 由修改竞赛聚合的操作在事务提交后失效
+ * @author warthog
+ */
+@Component
+public class ContestCache {
+
+    @Value("${cache.contest-info.maximum-size:1000}")
+    private Long infoMaximumSize;
+    @Value("${cache.contest-process.maximum-size:1000}")
+    private Long processMaximumSize;
+    /**
+     * 兜底过期时间 用于修正创建人等关联用户信息的变更
+     */
+    @Value("${cache.contest.expire-seconds:600}")
+    private Long expireSeconds;
+
+    /**
+     * key为竞赛id
+     */
+    private Cache<Long, ContestDTO> infoCache;
+    /**
+     * key为竞赛id
+     */
+    private Cache<Long, List<ContestProcessDTO>> processCache;
+
+    @PostConstruct
+    private void init() {
+        infoCache = Caffeine.newBuilder()
+                .maximumSize(infoMaximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        processCache = Caffeine.newBuilder()
+                .maximumSize(processMaximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取竞赛详情 不存在时通过loader加载
+     * @param contestId 竞赛id
+     * @param loader 竞赛详情加载方法
+     * @return 竞赛详情
+     */
+    public ContestDTO getInfo(Long contestId, Function<Long, ContestDTO> loader) {
+        return infoCache.get(contestId, loader);
+    }
+
+    /**
+     * 获取竞赛流程列表 不存在时通过loader加载
+     * @param contestId 竞赛id
+     * @param loader 流程列表加载方法
+     * @return 不可修改的流程列表
+     */
+    public List<ContestProcessDTO> getProcesses(Long contestId, Function<Long, List<ContestProcessDTO>> loader) {
+        return processCache.get(contestId, id -> Collections.unmodifiableList(loader.apply(id)));
+    }
+
+    /**
+     * 在事务提交后使竞赛的所有缓存失效
+     * @param contestId 竞赛id
+     */
+    public void invalidate(Long contestId) {
+        TransactionUtil.afterCommit(() -> {
+            infoCache.invalidate(contestId);
+            processCache.invalidate(contestId);
+        });
+    }
+
+    /**
+     * 竞赛详情缓存统计
+     * @return 统计信息
+     */
+    public CacheStats infoStats() {
+        return infoCache.stats();
+    }
+
+    /**
+     * 流程列表缓存统计
+     * @return 统计信息
+     */
+    public CacheStats processStats() {
+        return processCache.stats();
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.bjfu.contest.cache;
+
+import com.bjfu.contest.dao.CollegeMajorGradeClassDAO;
+import com.bjfu.contest.pojo.dto.OrganizationTreeDTO;
+import com.bjfu.contest.pojo.entity.CollegeMajorGradeClass;
+import com.bjfu.contest.utils.TransactionUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 学院-专业-年级-班级树缓存
+ * 整棵树一年只变更几次 在内存中保存构建好的不可变快照 变更后整体替换 读取时不加锁
+ * @author warthog
+ */
+@Component
+public class OrganizationTreeCache {
+
+    @Autowired
+    private CollegeMajorGradeClassDAO collegeMajorGradeClassDAO;
+
+    /**
+     * 兜底过期时间 用于多实例部署时同步其他实例的变更
+     */
+    @Value("${cache.organization-tree.expire-seconds:600}")
+    private Long expireSeconds;
+
+    /**
+     * 每次变更后递增 构建期间发生变更时构建结果不再有效
+     */
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    private static class Snapshot {
+        private final OrganizationTreeDTO tree;
+        private final long version;
+        private final long expireAt;
+
+        private Snapshot(OrganizationTreeDTO tree, long version, long expireAt) {
+            this.tree = tree;
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 获取当前的树 未构建或已过期时重新构建
+     * @return 不可修改的树
+     */
+    public OrganizationTreeDTO get() {
+        Snapshot current = snapshot;
+        if(isValid(current)) {
+            return current.tree;
+        }
+        return load();
+    }
+
+    /**
+     * 在事务提交后使树失效 下次读取时重新构建
+     */
+    public void invalidate() {
+        TransactionUtil.afterCommit(version::incrementAndGet);
+    }
+
+    /**
+     * 同一时间只有一个线程构建 其余线程等待后直接使用构建结果
+     */
+    private synchronized OrganizationTreeDTO load() {
+        Snapshot current = snapshot;
+        if(isValid(current)) {
+            return current.tree;
+        }
+        long loadVersion = version.get();
+        OrganizationTreeDTO tree = build(collegeMajorGradeClassDAO.findAll());
+        snapshot = new Snapshot(tree, loadVersion, System.currentTimeMillis() + expireSeconds * 1000);
+        return tree;
+    }
+
+    private boolean isValid(Snapshot current) {
+        return current != null
+                && current.version == version.get()
+                && current.expireAt > System.currentTimeMillis();
+    }
+
+    private static OrganizationTreeDTO build(List<CollegeMajorGradeClass> rows) {
+        // 学院/专业/年级节点各自有一行 班级行的各级字段都不为空
+        Map<String, Map<String, Map<String, List<String>>>> tree = new TreeMap<>();
+        for(CollegeMajorGradeClass row : rows) {
+            Map<String, Map<String, List<String>>> majors = tree.computeIfAbsent(row.getCollege(), key -> new TreeMap<>());
+            if(row.getMajor() == null) {
+                continue;
+            }
+            Map<String, List<String>> grades = majors.computeIfAbsent(row.getMajor(), key -> new TreeMap<>());
+            if(row.getGrade() == null) {
+                continue;
+            }
+            List<String> companies = grades.computeIfAbsent(row.getGrade(), key -> new ArrayList<>());
+            if(row.getCompany() != null) {
+                companies.add(row.getCompany());
+            }
+        }
+        StringBuilder content = new StringBuilder();
+        Map<String, Map<String, Map<String, List<String>>>> frozenTree = new LinkedHashMap<>();
+        tree.forEach((college, majors) -> {
+            content.append(college).append('\u0001');
+            Map<String, Map<String, List<String>>> frozenMajors = new LinkedHashMap<>();
+            majors.forEach((major, grades) -> {
+                content.append(major).append('\u0002');
+                Map<String, List<String>> frozenGrades = new LinkedHashMap<>();
+                grades.forEach((grade, companies) -> {
+                    Collections.sort(companies);
+                    content.append(grade).append('\u0003')
+                            .append(String.join("\u0004", companies)).append('\u0003');
+                    frozenGrades.put(grade, Collections.unmodifiableList(companies));
+                });
+                frozenMajors.put(major, Collections.unmodifiableMap(frozenGrades));
+            });
+            frozenTree.put(college, Collections.unmodifiableMap(frozenMajors));
+        });
+        String etag = DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+        return new OrganizationTreeDTO(Collections.unmodifiableList(new ArrayList<>(frozenTree.keySet())),
+                Collections.unmodifiableMap(frozenTree), etag);
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.bjfu.contest.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * oss文件的本地磁盘缓存 按总大小淘汰较少访问的文件
+ * 未命中时在后台线程下载 不阻塞读取方 同一文件同时只下载一次 下载期间由调用方直接从oss读取
+ * 缓存文件只在本进程内有效 启动时清空缓存目录
+ * @author warthog
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "oss.cache.enabled", havingValue = "true")
+public class OssDiskCache {
+
+    /**
+     * 缓存权重的单位 Caffeine的权重为int 按KB计算
+     */
+    private static final long WEIGHT_UNIT = 1024;
+
+    @Value("${oss.cache.dir:${java.io.tmpdir}/contest-oss-cache}")
+    private String dir;
+    /**
+     * 缓存文件的总大小上限(字节)
+     */
+    @Value("${oss.cache.max-bytes:1073741824}")
+    private Long maxBytes;
+    /**
+     * 后台下载线程数
+     */
+    @Value("${oss.cache.load-threads:4}")
+    private Integer loadThreads;
+
+    private Path directory;
+    /**
+     * key为存储桶名称/对象名称
+     */
+    private Cache<String, Path> fileCache;
+    /**
+     * 正在下载的文件 失效时移除 下载完成后只有仍在其中的才放入缓存
+     */
+    private final Map<String, Object> loading = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    private void init() throws IOException {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(loadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "oss-cache-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(this::deleteFile);
+        }
+        fileCache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes / WEIGHT_UNIT)
+                .weigher((String key, Path file) -> weigh(file))
+                // 已打开的文件在linux下删除后仍可继续读取
+                .removalListener((String key, Path file, RemovalCause cause) -> {
+                    if(file != null) {
+                        deleteFile(file);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取缓存文件 不存在时在后台通过loader下载到新的缓存文件 同一文件并发未命中时只下载一次
+     * @param bucketName 存储桶名称
+     * @param objectName 对象名称
+     * @param loader 参数为要写入的缓存文件路径 返回是否写入 不缓存时返回false
+     * @return 缓存文件 未命中或不缓存时为null
+     */
+    public Path get(String bucketName, String objectName, Function<Path, Boolean> loader) {
+        String key = key(bucketName, objectName);
+        Path cachedFile = fileCache.getIfPresent(key);
+        if(cachedFile != null) {
+            return cachedFile;
+        }
+        Object token = new Object();
+        if(loading.putIfAbsent(key, token) == null) {
+            try {
+                executor.execute(() -> load(key, token, loader));
+            } catch (RejectedExecutionException exception) {
+                loading.remove(key, token);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 删除对象的缓存文件 正在进行的下载完成后也不放入缓存
+     * @param bucketName 存储桶名称
+     * @param objectName 对象名称
+     */
+    public void invalidate(String bucketName, String objectName) {
+        String key = key(bucketName, objectName);
+        loading.compute(key, (k, token) -> {
+            fileCache.invalidate(k);
+            return null;
+        });
+    }
+
+    /**
+     * 磁盘缓存统计
+     * @return 统计信息
+     */
+    public CacheStats stats() {
+        return fileCache.stats();
+    }
+
+    private void load(String key, Object token, Function<Path, Boolean> loader) {
+        Path file = directory.resolve(UUID.randomUUID().toString());
+        boolean loaded = false;
+        try {
+            loaded = loader.apply(file);
+        } catch (RuntimeException exception) {
+            log.warn("缓存文件失败: {}", key, exception);
+        }
+        boolean isLoaded = loaded;
+        // 与失效互斥 下载期间已失效的文件直接删除
+        loading.compute(key, (k, current) -> {
+            if(current != token) {
+                deleteFile(file);
+                return current;
+            }
+            if(isLoaded) {
+                fileCache.put(k, file);
+            } else {
+                deleteFile(file);
+            }
+            return null;
+        });
+    }
+
+    private static String key(String bucketName, String objectName) {
+        return bucketName + "/" + objectName;
+    }
+
+    private static int weigh(Path file) {
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, Files.size(file) / WEIGHT_UNIT + 1);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("删除缓存文件失败: {}", file, exception);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.bjfu.contest.cache;
+
+import com.bjfu.contest.utils.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 文件下载链接缓存 避免每次获取下载链接都重新签名
+ * 缓存时间比链接有效期短 保证取出的链接至少还有min-remaining-seconds的有效期
+ * @author warthog
+ */
+@Component
+public class PresignedUrlCache {
+
+    @Value("${cache.presigned-url.maximum-size:10000}")
+    private Long maximumSize;
+    /**
+     * 下载链接的有效期 签名时使用
+     */
+    @Getter
+    @Value("${cache.presigned-url.url-expire-seconds:604800}")
+    private Integer urlExpireSeconds;
+    /**
+     * 从缓存中取出的链接至少剩余的有效期
+     */
+    @Value("${cache.presigned-url.min-remaining-seconds:86400}")
+    private Integer minRemainingSeconds;
+
+    /**
+     * key为oss对象名称
+     */
+    private Cache<String, String> urlCache;
+
+    @PostConstruct
+    private void init() {
+        if(minRemainingSeconds >= urlExpireSeconds) {
+            throw new IllegalStateException("下载链接缓存的最短剩余有效期必须小于链接有效期");
+        }
+        urlCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(urlExpireSeconds - minRemainingSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取下载链接 不存在时通过signer签名
+     * @param objectName oss对象名称
+     * @param signer 签名方法
+     * @return 下载链接
+     */
+    public String get(String objectName, Function<String, String> signer) {
+        return urlCache.get(objectName, signer);
+    }
+
+    /**
+     * 批量获取下载链接 缓存中没有的对象一次性交给signer签名
+     * @param objectNames oss对象名称
+     * @param signer 批量签名方法
+     * @return key为对象名称的下载链接
+     */
+    public Map<String, String> getAll(Collection<String> objectNames,
+                                      Function<Collection<String>, Map<String, String>> signer) {
+        return urlCache.getAll(objectNames, keys -> {
+            List<String> missingObjectNames = new ArrayList<>();
+            keys.forEach(missingObjectNames::add);
+            return signer.apply(missingObjectNames);
+        });
+    }
+
+    /**
+     * 在事务提交后使对象的下载链接失效
+     * @param objectName oss对象名称
+     */
+    public void invalidate(String objectName) {
+        TransactionUtil.afterCommit(() -> urlCache.invalidate(objectName));
+    }
+
+    /**
+     * 下载链接缓存统计
+     * @return 统计信息
+     */
+    public CacheStats stats() {
+        return urlCache.stats();
+    }
+
+}
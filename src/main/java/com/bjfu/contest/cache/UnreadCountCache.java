@@ -0,0 +1,132 @@
+package com.bjfu.contest.cache;
+
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.utils.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 用户未读通知数缓存
+ * 前端每次加载页面都需要未读数 加载后在写入收件箱/发布广播/标记已读时增量维护 不再查询数据库
+ * 增量只在事务提交后修改已缓存的计数 写入后定期过期 下次读取时重新统计 修正与数据库的偏差
+ * @author warthog
+ */
+@Component
+public class UnreadCountCache {
+
+    @Value("${cache.unread-count.maximum-size:10000}")
+    private Long maximumSize;
+    /**
+     * 与数据库对账的间隔
+     */
+    @Value("${cache.unread-count.expire-seconds:300}")
+    private Long expireSeconds;
+
+    /**
+     * key为用户id 计数原地修改 不会推迟过期时间
+     */
+    private Cache<Long, Counter> cache;
+
+    @PostConstruct
+    private void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取未读数 不存在时通过loader统计
+     * @param userId 用户id
+     * @param loader 未读数统计方法
+     * @return 未读数
+     */
+    public long get(Long userId, Function<Long, Counter> loader) {
+        return cache.get(userId, loader).count.get();
+    }
+
+    /**
+     * 在事务提交后为收到新通知的用户加一
+     * @param userIds 用户id
+     */
+    public void increment(Collection<Long> userIds) {
+        TransactionUtil.afterCommit(() -> userIds.forEach(userId -> {
+            Counter counter = cache.getIfPresent(userId);
+            if(counter != null) {
+                counter.count.incrementAndGet();
+            }
+        }));
+    }
+
+    /**
+     * 在事务提交后为能收到该广播的用户加一 只遍历已缓存的计数
+     * @param notifyType 广播通知类型
+     */
+    public void incrementBroadcast(NotifyTypeEnum notifyType) {
+        TransactionUtil.afterCommit(() -> cache.asMap().values().forEach(counter -> {
+            if(NotifyTypeEnum.broadcastTypesOf(counter.userType).contains(notifyType)) {
+                counter.count.incrementAndGet();
+            }
+        }));
+    }
+
+    /**
+     * 在事务提交后减一
+     * @param userId 用户id
+     */
+    public void decrement(Long userId) {
+        TransactionUtil.afterCommit(() -> {
+            Counter counter = cache.getIfPresent(userId);
+            if(counter != null) {
+                counter.count.updateAndGet(count -> Math.max(count - 1, 0));
+            }
+        });
+    }
+
+    /**
+     * 在事务提交后清零
+     * @param userId 用户id
+     */
+    public void reset(Long userId) {
+        TransactionUtil.afterCommit(() -> {
+            Counter counter = cache.getIfPresent(userId);
+            if(counter != null) {
+                counter.count.set(0);
+            }
+        });
+    }
+
+    /**
+     * 缓存命中/未命中/淘汰统计
+     * @return 统计信息
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 单个用户的未读数 记录用户类型用来判断能否收到广播
+     */
+    public static class Counter {
+
+        private final UserTypeEnum userType;
+        private final AtomicLong count;
+
+        public Counter(UserTypeEnum userType, long count) {
+            this.userType = userType;
+            this.count = new AtomicLong(count);
+        }
+    }
+
+}
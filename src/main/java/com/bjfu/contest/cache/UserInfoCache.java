@@ -0,0 +1,68 @@
+package com.bjfu.contest.cache;
+
+import com.bjfu.contest.pojo.dto.UserDTO;
+import com.bjfu.contest.utils.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 登录用户信息缓存
+ * 拦截器每次请求都需要用户信息 缓存后稳定状态下不再访问数据库
+ * @author warthog
+ */
+@Component
+public class UserInfoCache {
+
+    @Value("${cache.user-info.maximum-size:10000}")
+    private Long maximumSize;
+    @Value("${cache.user-info.expire-seconds:300}")
+    private Long expireSeconds;
+
+    /**
+     * key为用户id
+     */
+    private Cache<Long, UserDTO> cache;
+
+    @PostConstruct
+    private void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取用户信息 不存在时通过loader加载
+     * @param userId 用户id
+     * @param loader 用户信息加载方法
+     * @return 用户信息
+     */
+    public UserDTO get(Long userId, Function<Long, UserDTO> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * 在事务提交后使用户信息失效
+     * @param userId 用户id
+     */
+    public void invalidate(Long userId) {
+        TransactionUtil.afterCommit(() -> cache.invalidate(userId));
+    }
+
+    /**
+     * 缓存命中/未命中/淘汰统计
+     * @return 统计信息
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.bjfu.contest.controller;
+
+import com.bjfu.contest.pojo.BaseResult;
+import com.bjfu.contest.pojo.dto.OrganizationTreeDTO;
+import com.bjfu.contest.pojo.vo.OrganizationTreeVO;
+import com.bjfu.contest.service.CollegeMajorGradeClassService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+@Validated
+@RestController
+@RequestMapping("/college")
+public class CollegeMajorGradeClassController {
+
+    @Autowired
+    private CollegeMajorGradeClassService collegeMajorGradeClassService;
+
+    /**
+     * 注册时也需要选择学院 不要求登录
+     * 客户端带上次响应的ETag请求时 树未变更则返回304
+     */
+    @GetMapping("/tree")
+    public BaseResult<OrganizationTreeVO> tree(ServletWebRequest webRequest) {
+        OrganizationTreeDTO treeDTO = collegeMajorGradeClassService.getTree();
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if(webRequest.checkNotModified(treeDTO.getEtag())) {
+            return null;
+        }
+        return BaseResult.success(new OrganizationTreeVO(treeDTO));
+    }
+}
@@ -16,10 +16,15 @@ import com.bjfu.contest.security.annotation.RequireTeacher;
 import com.bjfu.contest.service.ContestProcessService;
 import com.bjfu.contest.utils.UserInfoContextUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -106,4 +111,25 @@ public class ContestProcessController {
         return BaseResult.success();
     }
 
+    /**
+     * 导出流程中所有队伍提交的文件 响应体为zip
+     */
+    @RequireTeacher
+    @GetMapping("/exportSubmissions")
+    public void exportSubmissions(@NotNull(message = "流程id不能为空!") Long processId, HttpServletResponse response) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        contestProcessService.exportSubmissions(processId, userDTO.getAccount(), () -> {
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename("submissions_" + processId + ".zip")
+                    .build()
+                    .toString());
+            try {
+                return response.getOutputStream();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+    }
 }
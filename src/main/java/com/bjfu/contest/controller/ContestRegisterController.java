@@ -4,11 +4,14 @@ import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.exception.BaseAppException;
 import com.bjfu.contest.pojo.BaseResult;
 import com.bjfu.contest.pojo.dto.ContestRegisterDTO;
+import com.bjfu.contest.pojo.dto.RegisterImportResultDTO;
 import com.bjfu.contest.pojo.dto.UserDTO;
 import com.bjfu.contest.pojo.request.register.RegisterBanRequest;
 import com.bjfu.contest.pojo.request.register.RegisterCreateRequest;
+import com.bjfu.contest.pojo.request.register.RegisterImportRequest;
 import com.bjfu.contest.pojo.request.register.RegisterListAllRequest;
 import com.bjfu.contest.pojo.vo.ContestRegisterVO;
+import com.bjfu.contest.pojo.vo.RegisterImportResultVO;
 import com.bjfu.contest.security.annotation.RequireLogin;
 import com.bjfu.contest.security.annotation.RequireStudent;
 import com.bjfu.contest.security.annotation.RequireTeacher;
@@ -40,6 +43,18 @@ public class ContestRegisterController {
         return BaseResult.success();
     }
 
+    /**
+     * multipart表单 上传账号csv文件或填写学院/专业/年级
+     */
+    @RequireTeacher
+    @PostMapping("/import")
+    public BaseResult<RegisterImportResultVO> importRegisters(@Validated RegisterImportRequest request) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        RegisterImportResultDTO resultDTO = contestRegisterService.importRegisters(request, userDTO.getAccount());
+        return BaseResult.success(new RegisterImportResultVO(resultDTO));
+    }
+
     @RequireLogin
     @DeleteMapping("/delete")
     public BaseResult<Void> delete(@NotNull(message = "竞赛id不能为空!") Long contestId,
@@ -0,0 +1,74 @@
+package com.bjfu.contest.controller;
+
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.exception.BaseAppException;
+import com.bjfu.contest.pojo.BaseResult;
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.dto.UserDTO;
+import com.bjfu.contest.pojo.dto.UserInboxDTO;
+import com.bjfu.contest.pojo.request.notify.NotifyListInboxRequest;
+import com.bjfu.contest.pojo.request.notify.NotifyPublishRequest;
+import com.bjfu.contest.pojo.vo.NotifyVO;
+import com.bjfu.contest.pojo.vo.UserInboxVO;
+import com.bjfu.contest.security.annotation.RequireLogin;
+import com.bjfu.contest.service.NotifyService;
+import com.bjfu.contest.utils.UserInfoContextUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.NotNull;
+
+@Validated
+@RestController
+@RequestMapping("/notify")
+public class NotifyController {
+
+    @Autowired
+    private NotifyService notifyService;
+
+    @RequireLogin
+    @PostMapping("/publish")
+    public BaseResult<NotifyVO> publish(@Validated @RequestBody NotifyPublishRequest request) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        NotifyDTO notifyDTO = notifyService.publish(request, userDTO.getAccount());
+        return BaseResult.success(new NotifyVO(notifyDTO));
+    }
+
+    @RequireLogin
+    @PostMapping("/listInbox")
+    public BaseResult<Page<UserInboxVO>> listInbox(@Validated @RequestBody NotifyListInboxRequest request) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        Page<UserInboxDTO> inboxDTOS = notifyService.listInbox(request, userDTO.getAccount());
+        return BaseResult.success(inboxDTOS.map(UserInboxVO::new));
+    }
+
+    @RequireLogin
+    @GetMapping("/unreadCount")
+    public BaseResult<Long> unreadCount() {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        return BaseResult.success(notifyService.countUnread(userDTO.getId()));
+    }
+
+    @RequireLogin
+    @PostMapping("/read")
+    public BaseResult<Void> read(@NotNull(message = "通知id不能为空!") Long notifyId) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        notifyService.read(notifyId, userDTO.getAccount());
+        return BaseResult.success();
+    }
+
+    @RequireLogin
+    @PostMapping("/readAll")
+    public BaseResult<Void> readAll() {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        notifyService.readAll(userDTO.getAccount());
+        return BaseResult.success();
+    }
+}
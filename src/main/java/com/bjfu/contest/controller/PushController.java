@@ -0,0 +1,32 @@
+package com.bjfu.contest.controller;
+
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.exception.BaseAppException;
+import com.bjfu.contest.pojo.dto.UserDTO;
+import com.bjfu.contest.security.annotation.RequireLogin;
+import com.bjfu.contest.service.PushService;
+import com.bjfu.contest.utils.UserInfoContextUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/push")
+public class PushController {
+
+    @Autowired
+    private PushService pushService;
+
+    /**
+     * EventSource无法设置header 通过token参数认证
+     */
+    @RequireLogin
+    @GetMapping("/subscribe")
+    public SseEmitter subscribe() {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        return pushService.subscribe(userDTO.getId(), userDTO.getType());
+    }
+}
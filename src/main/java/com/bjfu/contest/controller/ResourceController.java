@@ -6,19 +6,31 @@ import com.bjfu.contest.exception.BaseAppException;
 import com.bjfu.contest.pojo.BaseResult;
 import com.bjfu.contest.pojo.dto.ResourceDTO;
 import com.bjfu.contest.pojo.dto.ResourceDownloadInfoDTO;
+import com.bjfu.contest.pojo.dto.ResourceFileDTO;
+import com.bjfu.contest.pojo.dto.ResourceUploadInfoDTO;
 import com.bjfu.contest.pojo.dto.UserDTO;
+import com.bjfu.contest.pojo.request.resource.ResourceConfirmUploadRequest;
 import com.bjfu.contest.pojo.request.resource.ResourceEditRequest;
+import com.bjfu.contest.pojo.request.resource.ResourcePresignedUploadRequest;
+import com.bjfu.contest.pojo.request.resource.ResourceStreamUploadRequest;
 import com.bjfu.contest.pojo.request.resource.ResourceUploadRequest;
 import com.bjfu.contest.pojo.vo.ResourceDownloadInfoVO;
+import com.bjfu.contest.pojo.vo.ResourceUploadInfoVO;
 import com.bjfu.contest.pojo.vo.ResourceVO;
 import com.bjfu.contest.security.annotation.RequireLogin;
 import com.bjfu.contest.service.ResourceService;
+import com.bjfu.contest.utils.FileResponseUtil;
 import com.bjfu.contest.utils.UserInfoContextUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -39,6 +51,42 @@ public class ResourceController {
         return BaseResult.success(new ResourceVO(resourceDTO));
     }
 
+    /**
+     * 请求体即文件内容 不经过multipart解析 直接流式写入oss
+     * 请求头的类型固定为octet-stream 文件的类型按文件名判断
+     */
+    @RequireLogin
+    @PostMapping(value = "/uploadStream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public BaseResult<ResourceVO> uploadStream(@Validated ResourceStreamUploadRequest request,
+                                               HttpServletRequest servletRequest) throws IOException {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        String mimeType = MediaTypeFactory.getMediaType(request.getFileName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+        ResourceDTO resourceDTO = resourceService.upload(request, servletRequest.getInputStream(),
+                servletRequest.getContentLengthLong(), mimeType, userDTO.getAccount());
+        return BaseResult.success(new ResourceVO(resourceDTO));
+    }
+
+    @RequireLogin
+    @PostMapping("/requestUpload")
+    public BaseResult<ResourceUploadInfoVO> requestUpload(@Validated @RequestBody ResourcePresignedUploadRequest request) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        ResourceUploadInfoDTO uploadInfo = resourceService.requestUpload(request, userDTO.getAccount());
+        return BaseResult.success(new ResourceUploadInfoVO(uploadInfo));
+    }
+
+    @RequireLogin
+    @PostMapping("/confirmUpload")
+    public BaseResult<ResourceVO> confirmUpload(@Validated @RequestBody ResourceConfirmUploadRequest request) {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        ResourceDTO resourceDTO = resourceService.confirmUpload(request, userDTO.getAccount());
+        return BaseResult.success(new ResourceVO(resourceDTO));
+    }
+
     @RequireLogin
     @PostMapping("/edit")
     public BaseResult<Void> edit(@Validated @RequestBody ResourceEditRequest request) {
@@ -66,6 +114,20 @@ public class ResourceController {
         return BaseResult.success(new ResourceDownloadInfoVO(downloadInfo));
     }
 
+    /**
+     * 通过服务端下载资源文件 支持Range请求 启用本地缓存时oss繁忙也能下载热点文件
+     */
+    @RequireLogin
+    @GetMapping("/download")
+    public void download(@NotNull(message = "资源id不能为空") Long resourceId,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UserDTO userDTO = UserInfoContextUtil.getUserInfo()
+                .orElseThrow(() -> new BaseAppException(ResultEnum.USER_CONTEXT_ERROR));
+        ResourceFileDTO file = resourceService.getFile(resourceId, userDTO.getAccount());
+        FileResponseUtil.writeFile(request, response, file.getFileName(), file.getSize(), file.getLocalFile(),
+                (offset, length) -> resourceService.getFileStream(file, offset, length));
+    }
+
     @RequireLogin
     @GetMapping("/listAllByTarget")
     public BaseResult<List<ResourceVO>> listAllByTarget(@NotNull(message = "资源类型不能为空") ResourceTypeEnum type,
@@ -11,6 +11,7 @@ import com.bjfu.contest.pojo.request.user.*;
 import com.bjfu.contest.pojo.vo.UserVO;
 import com.bjfu.contest.security.annotation.RequireAdmin;
 import com.bjfu.contest.security.annotation.RequireLogin;
+import com.bjfu.contest.service.NotifyService;
 import com.bjfu.contest.service.UserService;
 import com.bjfu.contest.utils.JwtUtil;
 import com.bjfu.contest.utils.UserInfoContextUtil;
@@ -32,6 +33,8 @@ public class UserController {
 
     @Autowired
     private UserService userService;
+    @Autowired
+    private NotifyService notifyService;
 
     @PostMapping("/login")
     public BaseResult<UserVO> login(@Validated @RequestBody UserLoginCheckRequest request) {
@@ -123,7 +126,9 @@ public class UserController {
             throw new BizException(ResultEnum.USER_IS_BANNED);
         }
         String token = JwtUtil.generateToken(Collections.singletonMap("userId", userDTO.getId().toString()));
-        return BaseResult.success(new UserVO(userDTO, token));
+        UserVO userVO = new UserVO(userDTO, token);
+        userVO.setUnreadNotifyCount(notifyService.countUnread(userDTO.getId()));
+        return BaseResult.success(userVO);
     }
 
     @RequireLogin
@@ -8,6 +8,7 @@ import java.util.Optional;
 
 public interface CollegeMajorGradeClassDAO {
 
+    List<CollegeMajorGradeClass> findAll();
     List<String> findAllCollege();
     List<CollegeMajorGradeClass> findAllClassByCollege(String college);
 
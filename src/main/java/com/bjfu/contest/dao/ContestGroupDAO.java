@@ -11,15 +11,22 @@ public interface ContestGroupDAO {
     ContestGroup update(ContestGroup group);
     Optional<ContestGroup> findById(Long id);
     Optional<ContestGroup> findByIdForUpdate(Long id);
+    Optional<ContestGroup> findByIdWithVersionCheck(Long id);
     ContestProcessGroup addToProcess(ContestGroup group, ContestProcess process);
     List<ContestProcessGroup> addAllToProcess(ContestProcess process, List<ContestGroup> groups);
+    int addAllContestGroupsToProcess(ContestProcess process);
+    int addAllToProcessFromProcess(ContestProcess process, ContestProcess beforeProcess, List<Long> groupIds);
     ContestGroupMember addMember(Contest contest, ContestGroup group, ContestRegister member);
-    void deleteMember(Contest contest, ContestGroup group, ContestRegister member);
+    boolean deleteMember(Contest contest, ContestGroup group, ContestRegister member);
+    boolean increaseMemberCount(ContestGroup group, Integer limit);
+    void decreaseMemberCount(ContestGroup group);
     List<ContestGroup> findAllByContestAndMember(Contest contest, ContestRegister member);
     List<ContestGroup> findAllByContestAndMemberForUpdate(Contest contest, ContestRegister member);
     List<ContestGroup> findAllByContest(Contest contest);
     List<ContestGroup> findAllByMember(User user);
+    List<Long> findAllIdsByMemberUserId(Long userId);
     List<ContestGroup> findAllByProcess(ContestProcess process);
+    List<ContestProcessGroup> findAllProcessGroupsByProcess(ContestProcess process);
     List<ContestGroup> findAllByProcessForUpdate(ContestProcess process);
     List<ContestGroup> findAllByProcessAndIdInForUpdate(ContestProcess process, List<Long> groupIds);
     List<ContestGroup> findAllByProcessAndGroupNotInForUpdate(ContestProcess process, List<ContestGroup> groups);
@@ -2,21 +2,25 @@ package com.bjfu.contest.dao;
 
 
 import com.bjfu.contest.enums.ContestRegisterStatusEnum;
+import com.bjfu.contest.pojo.dto.RegisterCandidateDTO;
 import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.ContestRegister;
 import com.bjfu.contest.pojo.entity.User;
 import com.bjfu.contest.pojo.request.BasePageAndSorterRequest;
 import org.springframework.data.domain.Page;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ContestRegisterDAO {
     ContestRegister insert(ContestRegister register);
+    int insertAll(Contest contest, List<Long> userIds);
     void delete(ContestRegister register);
     ContestRegister update(ContestRegister register);
     Optional<ContestRegister> findByContestAndUser(Contest contest, User user);
     Optional<ContestRegister> findByContestAndUserForUpdate(Contest contest, User user);
+    Optional<ContestRegister> findByContestAndUserWithVersionCheck(Contest contest, User user);
     Page<ContestRegister> findAllByContestAndStatusInAndRegisterLike(Contest contest,
                                                                      List<ContestRegisterStatusEnum> statuses,
                                                                      String registerName,
@@ -26,4 +30,7 @@ public interface ContestRegisterDAO {
                                                                      BasePageAndSorterRequest.Pagination pagination,
                                                                      List<BasePageAndSorterRequest.Sorter> sorter);
     List<ContestRegister> findAllByUser(User user);
+    List<Long> findAllContestIdsByUserId(Long userId);
+    List<RegisterCandidateDTO> findAllCandidatesByAccountIn(Contest contest, Collection<String> accounts);
+    List<RegisterCandidateDTO> findAllCandidatesByCollegeAndMajorAndGrade(Contest contest, String college, String major, String grade);
 }
@@ -20,6 +20,7 @@ public interface ContestTeacherDAO {
     List<ContestTeacher> findByContestAndTeachersInForUpdate(Contest contest, List<User> teachers);
     List<ContestTeacher> findAllByContest(Contest contest);
     List<ContestTeacher> findAllByTeacher(User teacher);
+    List<Long> findAllContestIdsByTeacherId(Long teacherId);
     Page<ContestTeacher> findAllByTeacherAndContestNameLikeAndContestStatusInAndCreatorNameLikeAndCreatorCollegeLike(User teacher,
                                                                                                                      String contestName,
                                                                                                                      List<ContestStatusEnum> contestStatus,
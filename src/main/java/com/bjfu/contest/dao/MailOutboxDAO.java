@@ -0,0 +1,15 @@
+package com.bjfu.contest.dao;
+
+import com.bjfu.contest.pojo.entity.MailOutbox;
+
+import java.util.Date;
+import java.util.List;
+
+public interface MailOutboxDAO {
+    MailOutbox insert(String toAddress, String subject, String content, Long inboxId);
+    List<MailOutbox> insertAll(List<MailOutbox> mails);
+    List<MailOutbox> claimDue(Date now, Date leaseUntil, Integer limit);
+    void deleteAll(List<MailOutbox> mails);
+    List<MailOutbox> updateAll(List<MailOutbox> mails);
+    long count();
+}
@@ -0,0 +1,18 @@
+package com.bjfu.contest.dao;
+
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import com.bjfu.contest.pojo.entity.Notify;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface NotifyDAO {
+    Notify insert(Notify notify);
+    Optional<Notify> findById(Long id);
+    List<Notify> findAllUndeliveredBefore(Date time, int limit);
+    void markDelivered(Long notifyId);
+    List<Notify> findAllBroadcastsWithoutInbox(Collection<NotifyTypeEnum> types, Long userId, Long beforeNotifyId, int limit);
+    long countBroadcastsWithoutInboxAfter(Collection<NotifyTypeEnum> types, Long userId, Date createdTime);
+}
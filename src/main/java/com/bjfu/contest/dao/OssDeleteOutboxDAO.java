@@ -0,0 +1,15 @@
+package com.bjfu.contest.dao;
+
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+
+import java.util.Date;
+import java.util.List;
+
+public interface OssDeleteOutboxDAO {
+    OssDeleteOutbox insert(String bucketName, String objectName);
+    OssDeleteOutbox insert(String bucketName, String objectName, Date deleteTime);
+    List<OssDeleteOutbox> findDue(Date now, Integer limit);
+    void deleteAll(List<OssDeleteOutbox> outboxes);
+    List<OssDeleteOutbox> updateAll(List<OssDeleteOutbox> outboxes);
+    long count();
+}
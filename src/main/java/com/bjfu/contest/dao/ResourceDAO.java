@@ -2,7 +2,10 @@ package com.bjfu.contest.dao;
 
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import com.bjfu.contest.pojo.entity.Resource;
+import com.bjfu.contest.pojo.entity.ResourceObject;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,5 +14,14 @@ public interface ResourceDAO {
     void delete(Resource resource);
     Resource update(Resource resource);
     Optional<Resource> findById(Long resourceId);
+    Optional<Resource> findByIdForUpdate(Long resourceId);
     List<Resource> findAllByTypeAndTargetId(ResourceTypeEnum type, Long targetId);
+    List<Resource> findAllAvailableByTypeAndTargetId(ResourceTypeEnum type, Long targetId);
+    List<Resource> findAllAvailableByIdIn(Collection<Long> ids);
+    List<Resource> findAllPendingCreatedBefore(Date time, Integer limit);
+    void deleteAll(List<Resource> resources);
+    Optional<ResourceObject> findObjectByContentHash(String contentHash);
+    ResourceObject insertObject(String contentHash, String objectName, Long size);
+    boolean increaseObjectRefCount(String contentHash);
+    boolean releaseObject(String contentHash);
 }
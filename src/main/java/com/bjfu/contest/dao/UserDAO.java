@@ -3,6 +3,7 @@ package com.bjfu.contest.dao;
 import com.bjfu.contest.enums.UserTypeEnum;
 import com.bjfu.contest.pojo.entity.User;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,5 +19,6 @@ public interface UserDAO {
     Optional<User> findByAccountForUpdate(String account);
     Optional<User> findByEmail(String email);
     Optional<User> findByEmailForUpdate(String email);
-    List<User> findByNameLikeAndTypeIn(String name, List<UserTypeEnum> types);
+    List<User> findByNameContainsAndTypeIn(String name, List<UserTypeEnum> types);
+    void updateNotifyReadTime(Long userId, Date notifyReadTime);
 }
@@ -0,0 +1,20 @@
+package com.bjfu.contest.dao;
+
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.UserInbox;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserInboxDAO {
+    List<UserInbox> insertAll(Long notifyId, List<Long> userIds);
+    long countByNotify(Notify notify);
+    List<Long> findRecipientIdsWithoutInbox(Notify notify, Long afterUserId, int limit);
+    UserInbox insert(UserInbox userInbox);
+    Optional<UserInbox> findByUserIdAndNotifyId(Long userId, Long notifyId);
+    List<UserInbox> findAllByUserIdBefore(Long userId, Long beforeNotifyId, int limit);
+    int markAllRead(Long userId);
+    long countUnreadByUserId(Long userId);
+    void updateIsSendEmailSuccess(Collection<Long> ids, Boolean isSendEmailSuccess);
+}
@@ -16,6 +16,11 @@ public class CollegeMajorGradeClassDAOImpl implements CollegeMajorGradeClassDAO
     @Autowired
     private CollegeMajorGradeClassRepository collegeMajorGradeClassRepository;
 
+    @Override
+    public List<CollegeMajorGradeClass> findAll() {
+        return collegeMajorGradeClassRepository.findAll();
+    }
+
     @Override
     public List<String> findAllCollege() {
         return collegeMajorGradeClassRepository.findAllByMajorIsNull()
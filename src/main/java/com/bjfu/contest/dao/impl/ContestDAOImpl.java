@@ -6,9 +6,9 @@ import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.User;
 import com.bjfu.contest.pojo.request.BasePageAndSorterRequest;
 import com.bjfu.contest.repository.ContestRepository;
+import com.bjfu.contest.search.SearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
@@ -23,6 +23,10 @@ public class ContestDAOImpl implements ContestDAO {
 
     @Autowired
     private ContestRepository contestRepository;
+    @Autowired
+    private SearchIndex searchIndex;
+    @Autowired
+    private PageQueryHelper pageQueryHelper;
 
     private static final List<ContestStatusEnum> STATUS_ENUMS = new ArrayList<>();
 
@@ -36,18 +40,23 @@ public class ContestDAOImpl implements ContestDAO {
     @Override
     public Contest insert(Contest contest) {
         contest.setStatus(ContestStatusEnum.CREATING);
-        return contestRepository.save(contest);
+        Contest saved = contestRepository.save(contest);
+        searchIndex.indexContest(saved);
+        return saved;
     }
 
     @Override
     public void delete(Contest contest) {
         contest.setStatus(ContestStatusEnum.DELETE);
         contestRepository.save(contest);
+        searchIndex.removeContest(contest.getId());
     }
 
     @Override
     public Contest update(Contest contest) {
-        return contestRepository.save(contest);
+        Contest saved = contestRepository.save(contest);
+        searchIndex.indexContest(saved);
+        return saved;
     }
 
     @Override
@@ -81,11 +90,12 @@ public class ContestDAOImpl implements ContestDAO {
                 .sorted(Comparator.comparingInt(s -> FIELD_ORDER_WEIGHT.get(s.getField())))
                 .map(singleSorter -> new Sort.Order(singleSorter.getOrder(), singleSorter.getField()))
                 .collect(Collectors.toList());
-        PageRequest pageRequest = PageRequest.of(pagination.getCurrent() - 1, pagination.getPageSize(), Sort.by(orders));
-        return contestRepository.findAll((root, query, cb) -> {
+        Optional<Set<Long>> contestIds = searchIndex.searchContests(name);
+        return pageQueryHelper.findPage(Contest.class, contestRepository, (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
             predicates.add(cb.equal(root.get("creator"), creator));
             if (StringUtils.hasText(name)) {
+                contestIds.ifPresent(ids -> predicates.add(SearchIndex.idIn(cb, root.get("id"), ids)));
                 predicates.add(cb.like(root.get("name"), "%" + name + "%"));
             }
             if (!CollectionUtils.isEmpty(statuses)) {
@@ -93,7 +103,7 @@ public class ContestDAOImpl implements ContestDAO {
             }
             predicates.add(cb.notEqual(root.get("status"), ContestStatusEnum.DELETE));
             return query.where(predicates.toArray(new Predicate[0])).getRestriction();
-        }, pageRequest);
+        }, pagination, orders);
     }
 
     @Override
@@ -109,16 +119,19 @@ public class ContestDAOImpl implements ContestDAO {
                 .sorted(Comparator.comparingInt(s -> FIELD_ORDER_WEIGHT.get(s.getField())))
                 .map(singleSorter -> new Sort.Order(singleSorter.getOrder(), singleSorter.getField()))
                 .collect(Collectors.toList());
-        PageRequest pageRequest = PageRequest.of(pagination.getCurrent() - 1, pagination.getPageSize(), Sort.by(orders));
-        return contestRepository.findAll((root, query, cb) -> {
+        Optional<Set<Long>> contestIds = searchIndex.searchContests(name);
+        Optional<Set<Long>> creatorIds = searchIndex.searchUsers(creatorName, null, creatorCollege, null);
+        return pageQueryHelper.findPage(Contest.class, contestRepository, (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
             if (StringUtils.hasText(name)) {
+                contestIds.ifPresent(ids -> predicates.add(SearchIndex.idIn(cb, root.get("id"), ids)));
                 predicates.add(cb.like(root.get("name"), "%" + name + "%"));
             }
             if (!CollectionUtils.isEmpty(statuses)) {
                 predicates.add(cb.and(root.get("status").in(statuses)));
             }
             predicates.add(cb.notEqual(root.get("status"), ContestStatusEnum.DELETE));
+            creatorIds.ifPresent(ids -> predicates.add(SearchIndex.idIn(cb, root.get("creator").get("id"), ids)));
             if(StringUtils.hasText(creatorName)) {
                 predicates.add(cb.like(root.get("creator").get("name"), "%" + creatorName + "%"));
             }
@@ -126,6 +139,6 @@ public class ContestDAOImpl implements ContestDAO {
                 predicates.add(cb.like(root.get("creator").get("college"), "%" + creatorCollege + "%"));
             }
             return query.where(predicates.toArray(new Predicate[0])).getRestriction();
-        }, pageRequest);
+        }, pagination, orders);
     }
 }
@@ -25,6 +25,7 @@ public class ContestGroupDAOImpl implements ContestGroupDAO {
 
     @Override
     public ContestGroup insert(ContestGroup group) {
+        group.setMemberCount(0);
         return contestGroupRepository.save(group);
     }
 
@@ -51,6 +52,30 @@ public class ContestGroupDAOImpl implements ContestGroupDAO {
         return processGroups;
     }
 
+    @Override
+    public int addAllContestGroupsToProcess(ContestProcess process) {
+        return addAllToProcessByGroupIds(process, contestProcessGroupRepository.findAllContestGroupIdsNotInProcess(process.getId()));
+    }
+
+    @Override
+    public int addAllToProcessFromProcess(ContestProcess process, ContestProcess beforeProcess, List<Long> groupIds) {
+        if(groupIds.isEmpty()) {
+            return 0;
+        }
+        return addAllToProcessByGroupIds(process, contestProcessGroupRepository
+                .findAllGroupIdsNotInProcessByBeforeProcessAndGroupIdIn(process.getId(), beforeProcess.getId(), groupIds));
+    }
+
+    /**
+     * 只用队伍的引用创建关系 不加载队伍实体 插入时批量执行
+     */
+    private int addAllToProcessByGroupIds(ContestProcess process, List<Long> groupIds) {
+        List<ContestGroup> groups = groupIds.stream()
+                .map(contestGroupRepository::getOne)
+                .collect(Collectors.toList());
+        return addAllToProcess(process, groups).size();
+    }
+
     @Override
     public ContestGroupMember addMember(Contest contest, ContestGroup group, ContestRegister member) {
         ContestGroupMember groupMember = new ContestGroupMember();
@@ -62,8 +87,25 @@ public class ContestGroupDAOImpl implements ContestGroupDAO {
     }
 
     @Override
-    public void deleteMember(Contest contest, ContestGroup group, ContestRegister member) {
-        contestGroupMemberRepository.deleteByContestAndGroupAndMember(contest, group, member);
+    public boolean deleteMember(Contest contest, ContestGroup group, ContestRegister member) {
+        return contestGroupMemberRepository.deleteByContestAndGroupAndMember(contest, group, member) > 0;
+    }
+
+    @Override
+    public boolean increaseMemberCount(ContestGroup group, Integer limit) {
+        if(contestGroupRepository.increaseMemberCount(group.getId(), limit) == 0) {
+            return false;
+        }
+        // 条件更新不会同步到已加载的实体 人数字段不可更新 只修改内存中的值供返回使用
+        group.setMemberCount(group.getMemberCount() + 1);
+        return true;
+    }
+
+    @Override
+    public void decreaseMemberCount(ContestGroup group) {
+        if(contestGroupRepository.decreaseMemberCount(group.getId()) > 0) {
+            group.setMemberCount(group.getMemberCount() - 1);
+        }
     }
 
     @Override
@@ -88,6 +130,11 @@ public class ContestGroupDAOImpl implements ContestGroupDAO {
         return contestGroupRepository.findByIdForUpdate(id);
     }
 
+    @Override
+    public Optional<ContestGroup> findByIdWithVersionCheck(Long id) {
+        return contestGroupRepository.findByIdWithVersionCheck(id);
+    }
+
     @Override
     public List<ContestGroup> findAllByContestAndMember(Contest contest, ContestRegister member) {
         return contestGroupMemberRepository.findAllByContestAndMember(contest, member)
@@ -117,6 +164,11 @@ public class ContestGroupDAOImpl implements ContestGroupDAO {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<Long> findAllIdsByMemberUserId(Long userId) {
+        return contestGroupMemberRepository.findAllGroupIdsByMemberUserId(userId);
+    }
+
     @Override
     public List<ContestGroup> findAllByProcess(ContestProcess process) {
         return contestProcessGroupRepository.findAllByProcess(process)
@@ -125,6 +177,11 @@ public class ContestGroupDAOImpl implements ContestGroupDAO {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<ContestProcessGroup> findAllProcessGroupsByProcess(ContestProcess process) {
+        return contestProcessGroupRepository.findAllByProcess(process);
+    }
+
     @Override
     public List<ContestGroup> findAllByProcessForUpdate(ContestProcess process) {
         return contestProcessGroupRepository.findAllByProcessForUpdate(process)
@@ -2,14 +2,18 @@ package com.bjfu.contest.dao.impl;
 
 import com.bjfu.contest.dao.ContestRegisterDAO;
 import com.bjfu.contest.enums.ContestRegisterStatusEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.pojo.dto.RegisterCandidateDTO;
 import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.ContestRegister;
 import com.bjfu.contest.pojo.entity.User;
 import com.bjfu.contest.pojo.request.BasePageAndSorterRequest;
 import com.bjfu.contest.repository.ContestRegisterRepository;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
@@ -24,6 +28,17 @@ public class ContestRegisterDAOImpl implements ContestRegisterDAO {
 
     @Autowired
     private ContestRegisterRepository contestRegisterRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PageQueryHelper pageQueryHelper;
+    @Autowired
+    private SearchIndex searchIndex;
+
+    /**
+     * 按账号查询时每条in语句中的账号数
+     */
+    private static final int IN_QUERY_BATCH_SIZE = 1000;
 
     private static final List<ContestRegisterStatusEnum> EXIST_STATUS = new LinkedList<>();
 
@@ -38,6 +53,21 @@ public class ContestRegisterDAOImpl implements ContestRegisterDAO {
         return contestRegisterRepository.save(register);
     }
 
+    @Override
+    public int insertAll(Contest contest, List<Long> userIds) {
+        List<ContestRegister> registers = userIds.stream()
+                .map(userId -> {
+                    ContestRegister register = new ContestRegister();
+                    register.setContest(contest);
+                    // 只需要外键 不加载用户
+                    register.setUser(userRepository.getOne(userId));
+                    register.setStatus(ContestRegisterStatusEnum.SIGN_UP);
+                    return register;
+                })
+                .collect(Collectors.toList());
+        return contestRegisterRepository.saveAll(registers).size();
+    }
+
     @Override
     public void delete(ContestRegister register) {
         register.setStatus(ContestRegisterStatusEnum.DELETE);
@@ -59,6 +89,11 @@ public class ContestRegisterDAOImpl implements ContestRegisterDAO {
         return contestRegisterRepository.findByContestAndUserAndStatusInForUpdate(contest, user, EXIST_STATUS);
     }
 
+    @Override
+    public Optional<ContestRegister> findByContestAndUserWithVersionCheck(Contest contest, User user) {
+        return contestRegisterRepository.findByContestAndUserAndStatusInWithVersionCheck(contest, user, EXIST_STATUS);
+    }
+
     private static final Map<String, Integer> FIELD_ORDER_WEIGHT = new HashMap<>();
 
     static {
@@ -81,13 +116,15 @@ public class ContestRegisterDAOImpl implements ContestRegisterDAO {
                 .sorted(Comparator.comparingInt(s -> FIELD_ORDER_WEIGHT.get(s.getField())))
                 .map(singleSorter -> new Sort.Order(singleSorter.getOrder(), singleSorter.getField()))
                 .collect(Collectors.toList());
-        PageRequest pageRequest = PageRequest.of(pagination.getCurrent() - 1, pagination.getPageSize(), Sort.by(orders));
-        return contestRegisterRepository.findAll((root, query, cb) -> {
+        Optional<Set<Long>> userIds = searchIndex.searchUsers(registerName, registerGrade, registerCollege, registerMajor);
+        return pageQueryHelper.findPage(ContestRegister.class, contestRegisterRepository, (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("contest"), contest));
             if (!CollectionUtils.isEmpty(statuses)) {
                 predicates.add(cb.and(root.get("status").in(statuses)));
             }
             predicates.add(cb.notEqual(root.get("status"), ContestRegisterStatusEnum.DELETE));
+            userIds.ifPresent(ids -> predicates.add(SearchIndex.idIn(cb, root.get("user").get("id"), ids)));
             if(StringUtils.hasText(registerName)) {
                 predicates.add(cb.like(root.get("user").get("name"), "%" + registerName + "%"));
             }
@@ -101,11 +138,37 @@ public class ContestRegisterDAOImpl implements ContestRegisterDAO {
                 predicates.add(cb.like(root.get("user").get("major"), "%" + registerMajor + "%"));
             }
             return query.where(predicates.toArray(new Predicate[0])).getRestriction();
-        }, pageRequest);
+        }, pagination, orders);
     }
 
     @Override
     public List<ContestRegister> findAllByUser(User user) {
         return contestRegisterRepository.findAllByUserAndStatusIn(user, EXIST_STATUS);
     }
+
+    @Override
+    public List<Long> findAllContestIdsByUserId(Long userId) {
+        return contestRegisterRepository.findAllContestIdsByUserIdAndStatusIn(userId, EXIST_STATUS);
+    }
+
+    @Override
+    public List<RegisterCandidateDTO> findAllCandidatesByAccountIn(Contest contest, Collection<String> accounts) {
+        List<String> accountList = new ArrayList<>(accounts);
+        List<RegisterCandidateDTO> candidates = new ArrayList<>(accountList.size());
+        for(int from = 0; from < accountList.size(); from += IN_QUERY_BATCH_SIZE) {
+            List<String> batch = accountList.subList(from, Math.min(from + IN_QUERY_BATCH_SIZE, accountList.size()));
+            candidates.addAll(contestRegisterRepository.findAllCandidatesByContestAndAccountIn(contest,
+                    EXIST_STATUS, UserStatusEnum.ACTIVE, batch));
+        }
+        return candidates;
+    }
+
+    @Override
+    public List<RegisterCandidateDTO> findAllCandidatesByCollegeAndMajorAndGrade(Contest contest,
+                                                                                 String college,
+                                                                                 String major,
+                                                                                 String grade) {
+        return contestRegisterRepository.findAllCandidatesByContestAndCollegeAndMajorAndGrade(contest,
+                EXIST_STATUS, UserStatusEnum.ACTIVE, UserTypeEnum.STUDENT, college, major, grade);
+    }
 }
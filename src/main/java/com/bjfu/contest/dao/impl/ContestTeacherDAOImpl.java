@@ -74,6 +74,11 @@ public class ContestTeacherDAOImpl implements ContestTeacherDAO {
         return contestTeacherRepository.findAllByTeacher(teacher);
     }
 
+    @Override
+    public List<Long> findAllContestIdsByTeacherId(Long teacherId) {
+        return contestTeacherRepository.findAllContestIdsByTeacherId(teacherId);
+    }
+
     @Override
     public Page<ContestTeacher> findAllByTeacherAndContestNameLikeAndContestStatusInAndCreatorNameLikeAndCreatorCollegeLike(User teacher,
                                                                                                                             String contestName,
@@ -0,0 +1,66 @@
+package com.bjfu.contest.dao.impl;
+
+import com.bjfu.contest.dao.MailOutboxDAO;
+import com.bjfu.contest.pojo.entity.MailOutbox;
+import com.bjfu.contest.repository.MailOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class MailOutboxDAOImpl implements MailOutboxDAO {
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Override
+    public MailOutbox insert(String toAddress, String subject, String content, Long inboxId) {
+        MailOutbox mail = new MailOutbox();
+        mail.setToAddress(toAddress);
+        mail.setSubject(subject);
+        mail.setContent(content);
+        mail.setInboxId(inboxId);
+        mail.setAttempts(0);
+        mail.setNextAttemptTime(new Date());
+        return mailOutboxRepository.save(mail);
+    }
+
+    @Override
+    public List<MailOutbox> insertAll(List<MailOutbox> mails) {
+        Date now = new Date();
+        mails.forEach(mail -> {
+            mail.setAttempts(0);
+            mail.setNextAttemptTime(now);
+        });
+        return mailOutboxRepository.saveAll(mails);
+    }
+
+    @Override
+    public List<MailOutbox> claimDue(Date now, Date leaseUntil, Integer limit) {
+        // 按查询到的下次发送时间逐条抢占 其他实例已抢占的邮件更新不到
+        return mailOutboxRepository.findByNextAttemptTimeLessThanEqualOrderByNextAttemptTime(now, PageRequest.of(0, limit))
+                .stream()
+                .filter(mail -> mailOutboxRepository.updateNextAttemptTimeByIdAndNextAttemptTime(
+                        mail.getId(), mail.getNextAttemptTime(), leaseUntil) == 1)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void deleteAll(List<MailOutbox> mails) {
+        mailOutboxRepository.deleteInBatch(mails);
+    }
+
+    @Override
+    public List<MailOutbox> updateAll(List<MailOutbox> mails) {
+        return mailOutboxRepository.saveAll(mails);
+    }
+
+    @Override
+    public long count() {
+        return mailOutboxRepository.count();
+    }
+}
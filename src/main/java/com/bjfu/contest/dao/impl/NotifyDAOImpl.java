@@ -0,0 +1,53 @@
+package com.bjfu.contest.dao.impl;
+
+import com.bjfu.contest.dao.NotifyDAO;
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.repository.NotifyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class NotifyDAOImpl implements NotifyDAO {
+
+    @Autowired
+    private NotifyRepository notifyRepository;
+
+    @Override
+    public Notify insert(Notify notify) {
+        // 广播通知不投递到收件箱
+        notify.setIsDelivered(notify.getType().isBroadcast());
+        return notifyRepository.save(notify);
+    }
+
+    @Override
+    public Optional<Notify> findById(Long id) {
+        return notifyRepository.findById(id);
+    }
+
+    @Override
+    public List<Notify> findAllUndeliveredBefore(Date time, int limit) {
+        return notifyRepository.findByIsDeliveredFalseAndCreatedTimeLessThanOrderByCreatedTime(time, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public void markDelivered(Long notifyId) {
+        notifyRepository.updateIsDeliveredTrueById(notifyId);
+    }
+
+    @Override
+    public List<Notify> findAllBroadcastsWithoutInbox(Collection<NotifyTypeEnum> types, Long userId, Long beforeNotifyId, int limit) {
+        return notifyRepository.findAllByTypeInAndIdLessThanWithoutInbox(types, beforeNotifyId, userId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public long countBroadcastsWithoutInboxAfter(Collection<NotifyTypeEnum> types, Long userId, Date createdTime) {
+        return notifyRepository.countByTypeInAndCreatedTimeAfterWithoutInbox(types, createdTime, userId);
+    }
+}
@@ -0,0 +1,53 @@
+package com.bjfu.contest.dao.impl;
+
+import com.bjfu.contest.dao.OssDeleteOutboxDAO;
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+import com.bjfu.contest.repository.OssDeleteOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+
+@Component
+public class OssDeleteOutboxDAOImpl implements OssDeleteOutboxDAO {
+
+    @Autowired
+    private OssDeleteOutboxRepository ossDeleteOutboxRepository;
+
+    @Override
+    public OssDeleteOutbox insert(String bucketName, String objectName) {
+        return insert(bucketName, objectName, new Date());
+    }
+
+    @Override
+    public OssDeleteOutbox insert(String bucketName, String objectName, Date deleteTime) {
+        OssDeleteOutbox outbox = new OssDeleteOutbox();
+        outbox.setBucketName(bucketName);
+        outbox.setObjectName(objectName);
+        outbox.setAttempts(0);
+        outbox.setNextAttemptTime(deleteTime);
+        return ossDeleteOutboxRepository.save(outbox);
+    }
+
+    @Override
+    public List<OssDeleteOutbox> findDue(Date now, Integer limit) {
+        return ossDeleteOutboxRepository.findByNextAttemptTimeLessThanEqualOrderByNextAttemptTime(now, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public void deleteAll(List<OssDeleteOutbox> outboxes) {
+        ossDeleteOutboxRepository.deleteInBatch(outboxes);
+    }
+
+    @Override
+    public List<OssDeleteOutbox> updateAll(List<OssDeleteOutbox> outboxes) {
+        return ossDeleteOutboxRepository.saveAll(outboxes);
+    }
+
+    @Override
+    public long count() {
+        return ossDeleteOutboxRepository.count();
+    }
+}
@@ -0,0 +1,208 @@
+package com.bjfu.contest.dao.impl;
+
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.pojo.KeysetPage;
+import com.bjfu.contest.pojo.entity.BaseEntity;
+import com.bjfu.contest.pojo.request.BasePageAndSorterRequest;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 分页查询辅助类
+ * 支持三种模式: 页码分页+总数查询(默认)、页码分页不查总数、游标分页
+ * @author warthog
+ */
+@Component
+public class PageQueryHelper {
+
+    private static final String ID_FIELD = "id";
+    private static final String CURSOR_SEPARATOR = ".";
+    private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 按照分页参数查询
+     * @param entityClass 实体类型
+     * @param executor 实体对应的repository
+     * @param specification 查询条件
+     * @param pagination 分页参数
+     * @param orders 已经校验并排好优先级的排序
+     * @return 分页结果 游标分页时为KeysetPage
+     */
+    public <T extends BaseEntity> Page<T> findPage(Class<T> entityClass,
+                                                  JpaSpecificationExecutor<T> executor,
+                                                  Specification<T> specification,
+                                                  BasePageAndSorterRequest.Pagination pagination,
+                                                  List<Sort.Order> orders) {
+        boolean skipCount = Boolean.TRUE.equals(pagination.getSkipCount());
+        if(Boolean.TRUE.equals(pagination.getUseCursor())) {
+            return findPageByCursor(entityClass, executor, specification, pagination, orders, skipCount);
+        }
+        PageRequest pageRequest = PageRequest.of(pagination.getCurrent() - 1, pagination.getPageSize(), Sort.by(orders));
+        if(!skipCount) {
+            return executor.findAll(specification, pageRequest);
+        }
+        // 多查一条用来判断是否存在下一页
+        List<T> rows = query(entityClass, specification, null, orders,
+                (int) pageRequest.getOffset(), pagination.getPageSize() + 1);
+        boolean hasNext = rows.size() > pagination.getPageSize();
+        List<T> content = hasNext ? rows.subList(0, pagination.getPageSize()) : rows;
+        long total = pageRequest.getOffset() + content.size() + (hasNext ? 1 : 0);
+        return new PageImpl<>(content, pageRequest, total);
+    }
+
+    private <T extends BaseEntity> KeysetPage<T> findPageByCursor(Class<T> entityClass,
+                                                                 JpaSpecificationExecutor<T> executor,
+                                                                 Specification<T> specification,
+                                                                 BasePageAndSorterRequest.Pagination pagination,
+                                                                 List<Sort.Order> orders,
+                                                                 boolean skipCount) {
+        // 游标分页只使用第一个排序字段 并以id保证顺序唯一
+        Sort.Order sortOrder = orders.stream()
+                .findFirst()
+                .orElse(Sort.Order.asc(ID_FIELD));
+        List<Sort.Order> keysetOrders = new ArrayList<>();
+        keysetOrders.add(sortOrder);
+        if(!sortOrder.getProperty().equals(ID_FIELD)) {
+            keysetOrders.add(new Sort.Order(sortOrder.getDirection(), ID_FIELD));
+        }
+        String[] cursor = decodeCursor(pagination.getCursor(), sortOrder.getProperty());
+        List<T> rows = query(entityClass, specification, cursor, keysetOrders, 0, pagination.getPageSize() + 1);
+        boolean hasNext = rows.size() > pagination.getPageSize();
+        List<T> content = hasNext ? rows.subList(0, pagination.getPageSize()) : rows;
+        String nextCursor = hasNext ? encodeCursor(content.get(content.size() - 1), sortOrder.getProperty()) : null;
+        long total = skipCount ? content.size() + (hasNext ? 1 : 0) : executor.count(specification);
+        return new KeysetPage<>(content, PageRequest.of(0, pagination.getPageSize(), Sort.by(keysetOrders)), total, nextCursor);
+    }
+
+    private <T extends BaseEntity> List<T> query(Class<T> entityClass,
+                                                 Specification<T> specification,
+                                                 String[] cursor,
+                                                 List<Sort.Order> orders,
+                                                 int offset,
+                                                 int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(entityClass);
+        Root<T> root = query.from(entityClass);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if(cursor != null) {
+            Predicate afterCursor = afterCursor(root, cb, orders.get(0), cursor);
+            predicate = predicate == null ? afterCursor : cb.and(predicate, afterCursor);
+        }
+        if(predicate != null) {
+            query.where(predicate);
+        }
+        List<Order> criteriaOrders = new ArrayList<>();
+        for(Sort.Order order : orders) {
+            Path<Object> path = root.get(order.getProperty());
+            criteriaOrders.add(order.isAscending() ? cb.asc(path) : cb.desc(path));
+        }
+        query.orderBy(criteriaOrders);
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 构造位于游标之后的查询条件: field > value or (field = value and id > lastId)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Predicate afterCursor(Root<T> root, CriteriaBuilder cb, Sort.Order order, String[] cursor) {
+        Path<Long> idPath = root.get(ID_FIELD);
+        Long lastId = Long.valueOf(cursor[2]);
+        Predicate afterId = order.isAscending() ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+        if(order.getProperty().equals(ID_FIELD)) {
+            return afterId;
+        }
+        Path<Comparable> fieldPath = root.get(order.getProperty());
+        Comparable value = parseCursorValue(cursor[1], fieldPath.getJavaType());
+        Predicate afterValue = order.isAscending() ? cb.greaterThan(fieldPath, value) : cb.lessThan(fieldPath, value);
+        return cb.or(afterValue, cb.and(cb.equal(fieldPath, value), afterId));
+    }
+
+    private String encodeCursor(BaseEntity last, String field) {
+        Object value = new BeanWrapperImpl(last).getPropertyValue(field);
+        String valueString;
+        if(value instanceof Date) {
+            valueString = String.valueOf(((Date) value).getTime());
+        } else if(value instanceof Enum) {
+            valueString = ((Enum<?>) value).name();
+        } else {
+            valueString = String.valueOf(value);
+        }
+        return encode(field) + CURSOR_SEPARATOR + encode(valueString) + CURSOR_SEPARATOR + last.getId();
+    }
+
+    /**
+     * 解析游标
+     * @param cursor 游标
+     * @param field 当前排序字段
+     * @return [排序字段, 排序字段值, id] 游标为空时返回null
+     */
+    private String[] decodeCursor(String cursor, String field) {
+        if(cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = cursor.split("\\" + CURSOR_SEPARATOR);
+            if(parts.length != 3) {
+                throw new BizException(ResultEnum.WRONG_REQUEST_PARAMS);
+            }
+            String cursorField = decode(parts[0]);
+            // 游标必须与当前排序字段一致
+            if(!cursorField.equals(field)) {
+                throw new BizException(ResultEnum.WRONG_REQUEST_PARAMS);
+            }
+            Long.valueOf(parts[2]);
+            return new String[]{cursorField, decode(parts[1]), parts[2]};
+        } catch (IllegalArgumentException exception) {
+            throw new BizException(ResultEnum.WRONG_REQUEST_PARAMS);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Comparable parseCursorValue(String value, Class<?> javaType) {
+        try {
+            if(Date.class.isAssignableFrom(javaType)) {
+                return new Date(Long.parseLong(value));
+            }
+            if(javaType.isEnum()) {
+                return Enum.valueOf((Class<Enum>) javaType, value);
+            }
+            if(Integer.class.equals(javaType)) {
+                return Integer.valueOf(value);
+            }
+            if(Long.class.equals(javaType)) {
+                return Long.valueOf(value);
+            }
+            return value;
+        } catch (IllegalArgumentException exception) {
+            throw new BizException(ResultEnum.WRONG_REQUEST_PARAMS);
+        }
+    }
+
+    private static String encode(String source) {
+        return CURSOR_ENCODER.encodeToString(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String source) {
+        return new String(CURSOR_DECODER.decode(source), StandardCharsets.UTF_8);
+    }
+}
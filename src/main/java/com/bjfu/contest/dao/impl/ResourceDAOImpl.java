@@ -1,12 +1,18 @@
 package com.bjfu.contest.dao.impl;
 
 import com.bjfu.contest.dao.ResourceDAO;
+import com.bjfu.contest.enums.ResourceStatusEnum;
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import com.bjfu.contest.pojo.entity.Resource;
+import com.bjfu.contest.pojo.entity.ResourceObject;
+import com.bjfu.contest.repository.ResourceObjectRepository;
 import com.bjfu.contest.repository.ResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +21,8 @@ public class ResourceDAOImpl implements ResourceDAO {
 
     @Autowired
     private ResourceRepository resourceRepository;
+    @Autowired
+    private ResourceObjectRepository resourceObjectRepository;
 
     @Override
     public Resource insert(Resource resource) {
@@ -36,8 +44,60 @@ public class ResourceDAOImpl implements ResourceDAO {
         return resourceRepository.findById(resourceId);
     }
 
+    @Override
+    public Optional<Resource> findByIdForUpdate(Long resourceId) {
+        return resourceRepository.findByIdForUpdate(resourceId);
+    }
+
     @Override
     public List<Resource> findAllByTypeAndTargetId(ResourceTypeEnum type, Long targetId) {
         return resourceRepository.findAllByTypeAndTargetId(type, targetId);
     }
+
+    @Override
+    public List<Resource> findAllAvailableByTypeAndTargetId(ResourceTypeEnum type, Long targetId) {
+        return resourceRepository.findAllByTypeAndTargetIdAndStatus(type, targetId, ResourceStatusEnum.AVAILABLE);
+    }
+
+    @Override
+    public List<Resource> findAllAvailableByIdIn(Collection<Long> ids) {
+        return resourceRepository.findAllByIdInAndStatus(ids, ResourceStatusEnum.AVAILABLE);
+    }
+
+    @Override
+    public List<Resource> findAllPendingCreatedBefore(Date time, Integer limit) {
+        return resourceRepository.findAllByStatusAndCreatedTimeBefore(ResourceStatusEnum.PENDING, time, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public void deleteAll(List<Resource> resources) {
+        resourceRepository.deleteInBatch(resources);
+    }
+
+    @Override
+    public Optional<ResourceObject> findObjectByContentHash(String contentHash) {
+        return resourceObjectRepository.findByContentHash(contentHash);
+    }
+
+    @Override
+    public ResourceObject insertObject(String contentHash, String objectName, Long size) {
+        ResourceObject object = new ResourceObject();
+        object.setContentHash(contentHash);
+        object.setObjectName(objectName);
+        object.setSize(size);
+        object.setRefCount(1);
+        return resourceObjectRepository.save(object);
+    }
+
+    @Override
+    public boolean increaseObjectRefCount(String contentHash) {
+        return resourceObjectRepository.increaseRefCount(contentHash) > 0;
+    }
+
+    @Override
+    public boolean releaseObject(String contentHash) {
+        // 减少引用数时已对该行加锁 同一事务中删除无引用的记录
+        resourceObjectRepository.decreaseRefCount(contentHash);
+        return resourceObjectRepository.deleteUnreferenced(contentHash) > 0;
+    }
 }
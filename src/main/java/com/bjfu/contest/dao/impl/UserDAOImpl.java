@@ -5,19 +5,19 @@ import com.bjfu.contest.enums.UserStatusEnum;
 import com.bjfu.contest.enums.UserTypeEnum;
 import com.bjfu.contest.pojo.entity.User;
 import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Component
 public class UserDAOImpl implements UserDAO {
 
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private SearchIndex searchIndex;
 
     private static final List<UserStatusEnum> REGISTERED_STATUS_ENUMS = new ArrayList<>();
 
@@ -32,18 +32,23 @@ public class UserDAOImpl implements UserDAO {
     public User insert(User user) {
         user.setId(null);
         user.setStatus(UserStatusEnum.UNACTIVE);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        searchIndex.indexUser(saved);
+        return saved;
     }
 
     @Override
     public void delete(User user) {
         user.setStatus(UserStatusEnum.DELETE);
         userRepository.save(user);
+        searchIndex.removeUser(user.getId());
     }
 
     @Override
     public User update(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        searchIndex.indexUser(saved);
+        return saved;
     }
 
     @Override
@@ -97,7 +102,19 @@ public class UserDAOImpl implements UserDAO {
     }
 
     @Override
-    public List<User> findByNameLikeAndTypeIn(String name, List<UserTypeEnum> types) {
-        return userRepository.findByNameLikeAndStatusInAndTypeIn(name, Collections.singletonList(UserStatusEnum.ACTIVE), types);
+    public List<User> findByNameContainsAndTypeIn(String name, List<UserTypeEnum> types) {
+        List<UserStatusEnum> statuses = Collections.singletonList(UserStatusEnum.ACTIVE);
+        Optional<Set<Long>> ids = searchIndex.searchUsers(name, null, null, null);
+        if(ids.isPresent()) {
+            // 索引命中的id中仍按名称过滤 去掉索引未更新时的误命中
+            return userRepository.findByIdInAndNameLikeAndStatusInAndTypeIn(ids.get(), "%" + name + "%", statuses, types);
+        }
+        return userRepository.findByNameLikeAndStatusInAndTypeIn("%" + name + "%", statuses, types);
+    }
+
+    @Override
+    public void updateNotifyReadTime(Long userId, Date notifyReadTime) {
+        // 只更新水位 不需要重建搜索索引
+        userRepository.updateNotifyReadTimeById(userId, notifyReadTime);
     }
 }
@@ -0,0 +1,101 @@
+package com.bjfu.contest.dao.impl;
+
+import com.bjfu.contest.dao.UserInboxDAO;
+import com.bjfu.contest.enums.ContestRegisterStatusEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.UserInbox;
+import com.bjfu.contest.repository.NotifyRepository;
+import com.bjfu.contest.repository.UserInboxRepository;
+import com.bjfu.contest.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Component
+public class UserInboxDAOImpl implements UserInboxDAO {
+
+    @Autowired
+    private UserInboxRepository userInboxRepository;
+    @Autowired
+    private NotifyRepository notifyRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Override
+    public List<UserInbox> insertAll(Long notifyId, List<Long> userIds) {
+        // 只需要外键 不加载通知和用户
+        Notify notify = notifyRepository.getOne(notifyId);
+        List<UserInbox> inboxes = userIds.stream()
+                .map(userId -> {
+                    UserInbox inbox = new UserInbox();
+                    inbox.setNotify(notify);
+                    inbox.setUser(userRepository.getOne(userId));
+                    inbox.setIsRead(false);
+                    return inbox;
+                })
+                .collect(Collectors.toList());
+        return userInboxRepository.saveAll(inboxes);
+    }
+
+    @Override
+    public long countByNotify(Notify notify) {
+        return userInboxRepository.countByNotify(notify);
+    }
+
+    @Override
+    public List<Long> findRecipientIdsWithoutInbox(Notify notify, Long afterUserId, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        switch (notify.getType()) {
+            case CONTEST_NOTIFY:
+                return userInboxRepository.findAllContestUserIdsWithoutInbox(UserStatusEnum.ACTIVE, afterUserId,
+                        notify.getTargetId(), ContestRegisterStatusEnum.SIGN_UP, notify, pageable);
+            case CONTEST_PROCESS_NOTIFY:
+                return userInboxRepository.findAllProcessUserIdsWithoutInbox(UserStatusEnum.ACTIVE, afterUserId,
+                        notify.getTargetId(), notify, pageable);
+            case GROUP_NOTIFY:
+                return userInboxRepository.findAllGroupUserIdsWithoutInbox(UserStatusEnum.ACTIVE, afterUserId,
+                        notify.getTargetId(), notify, pageable);
+            default:
+                // 广播通知在读取收件箱时合并 不投递
+                return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public UserInbox insert(UserInbox userInbox) {
+        return userInboxRepository.save(userInbox);
+    }
+
+    @Override
+    public Optional<UserInbox> findByUserIdAndNotifyId(Long userId, Long notifyId) {
+        return userInboxRepository.findByUserIdAndNotifyId(userId, notifyId);
+    }
+
+    @Override
+    public List<UserInbox> findAllByUserIdBefore(Long userId, Long beforeNotifyId, int limit) {
+        return userInboxRepository.findAllByUserIdAndNotifyIdLessThan(userId, beforeNotifyId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public int markAllRead(Long userId) {
+        return userInboxRepository.updateIsReadTrueByUserId(userId);
+    }
+
+    @Override
+    public long countUnreadByUserId(Long userId) {
+        return userInboxRepository.countByUserIdAndIsReadFalse(userId);
+    }
+
+    @Override
+    public void updateIsSendEmailSuccess(Collection<Long> ids, Boolean isSendEmailSuccess) {
+        userInboxRepository.updateIsSendEmailSuccessByIdIn(ids, isSendEmailSuccess);
+    }
+}
@@ -0,0 +1,16 @@
+package com.bjfu.contest.enums;
+
+/**
+ * 队伍加入/踢出时的并发控制方式
+ * @author warthog
+ */
+public enum GroupLockModeEnum {
+    /**
+     * 对队伍及报名记录加行锁
+     */
+    PESSIMISTIC,
+    /**
+     * 不加锁 提交时校验版本号 由唯一约束保证只加入一支队伍 冲突时有限次重试
+     */
+    OPTIMISTIC,
+}
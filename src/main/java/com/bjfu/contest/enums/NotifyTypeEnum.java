@@ -2,6 +2,11 @@ package com.bjfu.contest.enums;
 
 import lombok.Getter;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * 通知类型枚举
  * @author warthog
@@ -9,17 +14,45 @@ import lombok.Getter;
 @Getter
 public enum NotifyTypeEnum {
 
-    ALL_NOTIFY("首页通知"),
-    USERS_NOTIFY("全体用户"),
-    STUDENTS_NOTIFY("全体学生"),
-    TEACHERS_NOTIFY("全体教师"),
-    CONTEST_NOTIFY("竞赛内通知"),
-    CONTEST_PROCESS_NOTIFY("竞赛流程内通知"),
-    GROUP_NOTIFY("队伍内通知");
+    ALL_NOTIFY("首页通知", true),
+    USERS_NOTIFY("全体用户", true),
+    STUDENTS_NOTIFY("全体学生", true),
+    TEACHERS_NOTIFY("全体教师", true),
+    CONTEST_NOTIFY("竞赛内通知", false),
+    CONTEST_PROCESS_NOTIFY("竞赛流程内通知", false),
+    GROUP_NOTIFY("队伍内通知", false);
+
+    private static final List<NotifyTypeEnum> STUDENT_BROADCAST_TYPES =
+            Collections.unmodifiableList(Arrays.asList(ALL_NOTIFY, USERS_NOTIFY, STUDENTS_NOTIFY));
+    private static final List<NotifyTypeEnum> TEACHER_BROADCAST_TYPES =
+            Collections.unmodifiableList(Arrays.asList(ALL_NOTIFY, USERS_NOTIFY, TEACHERS_NOTIFY));
+    private static final List<NotifyTypeEnum> ALL_BROADCAST_TYPES = Collections.unmodifiableList(
+            Arrays.stream(values()).filter(NotifyTypeEnum::isBroadcast).collect(Collectors.toList()));
 
     private final String msg;
+    /**
+     * 是否为全站广播 广播不投递到收件箱 读取收件箱时合并
+     */
+    private final boolean broadcast;
 
-    NotifyTypeEnum(String msg) {
+    NotifyTypeEnum(String msg, boolean broadcast) {
         this.msg = msg;
+        this.broadcast = broadcast;
+    }
+
+    /**
+     * 该类型的用户可以收到的广播通知类型 管理员可以看到所有广播
+     * @param userType 用户类型
+     * @return 不可修改的广播通知类型
+     */
+    public static List<NotifyTypeEnum> broadcastTypesOf(UserTypeEnum userType) {
+        switch (userType) {
+            case STUDENT:
+                return STUDENT_BROADCAST_TYPES;
+            case TEACHER:
+                return TEACHER_BROADCAST_TYPES;
+            default:
+                return ALL_BROADCAST_TYPES;
+        }
     }
 }
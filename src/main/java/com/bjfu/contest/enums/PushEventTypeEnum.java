@@ -0,0 +1,21 @@
+package com.bjfu.contest.enums;
+
+import lombok.Getter;
+
+/**
+ * 推送事件类型枚举 枚举名即为sse的事件名
+ * @author warthog
+ */
+@Getter
+public enum PushEventTypeEnum {
+
+    NOTIFY("新通知"),
+    PROCESS_STATUS("流程状态变化"),
+    GROUP_PROMOTE("队伍晋级");
+
+    private final String msg;
+
+    PushEventTypeEnum(String msg) {
+        this.msg = msg;
+    }
+}
@@ -0,0 +1,24 @@
+package com.bjfu.contest.enums;
+
+import lombok.Getter;
+
+/**
+ * 批量导入报名时每个账号的处理结果
+ * @author warthog
+ */
+@Getter
+public enum RegisterImportResultEnum {
+
+    REGISTERED("报名成功"),
+    ALREADY_REGISTERED("已经报名"),
+    BANNED("已被禁赛"),
+    USER_NOT_EXIST("用户不存在或未激活"),
+    NOT_STUDENT("非学生用户"),
+    DUPLICATE("账号重复");
+
+    private final String msg;
+
+    RegisterImportResultEnum(String msg) {
+        this.msg = msg;
+    }
+}
@@ -0,0 +1,20 @@
+package com.bjfu.contest.enums;
+
+import lombok.Getter;
+
+/**
+ * 资源状态枚举
+ * @author warthog
+ */
+@Getter
+public enum ResourceStatusEnum {
+
+    AVAILABLE("可用"),
+    PENDING("等待上传");
+
+    private final String msg;
+
+    ResourceStatusEnum(String msg) {
+        this.msg = msg;
+    }
+}
@@ -58,6 +58,14 @@ public enum ResultEnum {
     CANT_ACCESS_RESOURCE(222, "不能访问此资源"),
     NO_PERMISSION(222, "无权限"),
     NOT_GROUP_MEMBER(222, "非队伍成员"),
+    CONCURRENT_CONFLICT(225, "操作冲突，请稍后重试"),
+    GROUP_FULL(227, "队伍人数已满"),
+    RESOURCE_NOT_PENDING(228, "资源不在等待上传状态"),
+    REGISTER_IMPORT_EMPTY(229, "请上传账号文件或选择学院"),
+    REGISTER_IMPORT_TOO_MANY(230, "导入人数超过上限"),
+    REGISTER_IMPORT_FILE_ERROR(231, "导入文件读取失败"),
+    NOTIFY_NOT_EXIST(232, "通知不存在"),
+    PUSH_CONNECTION_LIMIT(233, "推送连接数已达上限，请稍后重试"),
 
     USER_CONTEXT_ERROR(301, "用户信息登录上下文出错"),
     PROCESS_SORT_ERROR(302, "流程序号错误"),
@@ -68,6 +76,11 @@ public enum ResultEnum {
     FILE_DOWNLOAD_FAILED(403, "文件下载失败"),
     FILE_DELETE_FAILED(403, "文件删除失败"),
     GET_FILE_INPUT_STREAM_FAILED(404, "获取文件输入流失败"),
+    FILE_STAT_FAILED(405, "获取文件信息失败"),
+    FILE_NOT_UPLOADED(406, "文件尚未上传"),
+    FILE_VERIFY_FAILED(407, "上传的文件与申请时的信息不一致"),
+    FILE_TOO_LARGE(408, "文件大小超过上限"),
+    FILE_COPY_FAILED(409, "文件复制失败"),
     ;
 
     private final Integer code;
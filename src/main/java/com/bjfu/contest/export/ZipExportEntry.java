@@ -0,0 +1,25 @@
+package com.bjfu.contest.export;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 压缩包中的一个文件及其在oss中的位置
+ * @author warthog
+ */
+@Data
+@AllArgsConstructor
+public class ZipExportEntry {
+    /**
+     * 压缩包内的路径
+     */
+    private String entryName;
+    /**
+     * 存储桶名称
+     */
+    private String bucketName;
+    /**
+     * 对象名称
+     */
+    private String objectName;
+}
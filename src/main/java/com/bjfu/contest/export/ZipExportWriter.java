@@ -0,0 +1,163 @@
+package com.bjfu.contest.export;
+
+import com.bjfu.contest.service.OssService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 将oss中的文件打包为zip流式写出
+ * 按顺序写入压缩包 同时提前并发打开之后若干个文件的下载流 隐藏oss的请求延迟
+ * 只缓存有限个未读取的下载流 不在磁盘或内存中暂存文件内容
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class ZipExportWriter {
+
+    /**
+     * 下载失败的文件列表 写在压缩包末尾
+     */
+    public static final String ERROR_ENTRY_NAME = "导出失败的文件.txt";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private OssService ossService;
+
+    /**
+     * 所有导出共用的下载线程数
+     */
+    @Value("${export.zip.fetch-threads:16}")
+    private Integer fetchThreads;
+    /**
+     * 每次导出最多提前打开的下载流数量
+     */
+    @Value("${export.zip.prefetch:8}")
+    private Integer prefetch;
+    /**
+     * 压缩级别 提交的文件多为已压缩格式 默认使用最快的级别
+     */
+    @Value("${export.zip.compress-level:1}")
+    private Integer compressLevel;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(fetchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "zip-export-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按顺序将文件写入压缩包 下载失败的文件跳过并记录在压缩包末尾
+     * @param entries 文件列表 压缩包内路径不能重复
+     * @param outputStream 输出流 写完后关闭
+     * @throws IOException 写出失败 一般为客户端断开连接
+     */
+    public void write(List<ZipExportEntry> entries, OutputStream outputStream) throws IOException {
+        List<Future<InputStream>> futures = new ArrayList<>(entries.size());
+        // 已打开但还未被读取的下载流 从中移除成功的一方负责关闭 保证只关闭一次
+        Set<InputStream> openedStreams = ConcurrentHashMap.newKeySet();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        List<String> failedEntries = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.setLevel(compressLevel);
+            for(int i = 0; i < Math.min(prefetch, entries.size()); i++) {
+                futures.add(open(entries.get(i), openedStreams, aborted));
+            }
+            for(int i = 0; i < entries.size(); i++) {
+                if(i + prefetch < entries.size()) {
+                    futures.add(open(entries.get(i + prefetch), openedStreams, aborted));
+                }
+                ZipExportEntry entry = entries.get(i);
+                InputStream inputStream;
+                try {
+                    inputStream = futures.get(i).get();
+                } catch (ExecutionException exception) {
+                    log.warn("导出文件下载失败: {}", entry.getObjectName(), exception.getCause());
+                    failedEntries.add(entry.getEntryName());
+                    continue;
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("导出被中断", exception);
+                }
+                openedStreams.remove(inputStream);
+                try (InputStream stream = inputStream) {
+                    zipOutputStream.putNextEntry(new ZipEntry(entry.getEntryName()));
+                    int read;
+                    while((read = stream.read(buffer)) != -1) {
+                        zipOutputStream.write(buffer, 0, read);
+                    }
+                    zipOutputStream.closeEntry();
+                }
+            }
+            if(!failedEntries.isEmpty()) {
+                zipOutputStream.putNextEntry(new ZipEntry(ERROR_ENTRY_NAME));
+                zipOutputStream.write(String.join("\n", failedEntries).getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        } finally {
+            aborted.set(true);
+            futures.forEach(future -> future.cancel(false));
+            openedStreams.forEach(inputStream -> closeIfOwned(inputStream, openedStreams));
+        }
+    }
+
+    private Future<InputStream> open(ZipExportEntry entry, Set<InputStream> openedStreams, AtomicBoolean aborted) {
+        return executor.submit(() -> {
+            InputStream inputStream = ossService.getObject(entry.getBucketName(), entry.getObjectName());
+            openedStreams.add(inputStream);
+            // 导出已结束时与结束的一方竞争关闭
+            if(aborted.get()) {
+                closeIfOwned(inputStream, openedStreams);
+            }
+            return inputStream;
+        });
+    }
+
+    /**
+     * 只有成功从集合中移除的一方关闭下载流
+     * @param inputStream 下载流
+     * @param openedStreams 未被读取的下载流
+     */
+    private static void closeIfOwned(InputStream inputStream, Set<InputStream> openedStreams) {
+        if(openedStreams.remove(inputStream)) {
+            closeQuietly(inputStream);
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException exception) {
+            log.debug("关闭下载流失败", exception);
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.bjfu.contest.pojo;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 游标分页结果
+ * @author warthog
+ */
+public class KeysetPage<T> extends PageImpl<T> {
+
+    /**
+     * 下一页的游标 没有下一页时为null
+     */
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, Pageable pageable, long total, String nextCursor) {
+        super(content, pageable, total);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public <U> KeysetPage<U> map(Function<? super T, ? extends U> converter) {
+        List<U> content = getContent().stream().map(converter).collect(Collectors.toList());
+        return new KeysetPage<>(content, getPageable(), getTotalElements(), nextCursor);
+    }
+}
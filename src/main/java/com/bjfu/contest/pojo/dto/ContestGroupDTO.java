@@ -83,6 +83,10 @@ public class ContestGroupDTO {
      * 队伍介绍
      */
     private String introduction;
+    /**
+     * 队伍人数
+     */
+    private Integer memberCount;
 
     /**
      * 队伍成员
@@ -0,0 +1,28 @@
+package com.bjfu.contest.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 学院-专业-年级-班级树 构建后不可修改 可在线程间直接共享
+ * @author warthog
+ */
+@Getter
+@AllArgsConstructor
+public class OrganizationTreeDTO {
+    /**
+     * 所有学院
+     */
+    private final List<String> colleges;
+    /**
+     * 学院 -> 专业 -> 年级 -> 班级
+     */
+    private final Map<String, Map<String, Map<String, List<String>>>> tree;
+    /**
+     * 树内容的摘要 不带引号
+     */
+    private final String etag;
+}
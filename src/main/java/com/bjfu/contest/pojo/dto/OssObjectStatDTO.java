@@ -0,0 +1,23 @@
+package com.bjfu.contest.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * oss中对象的元信息
+ * @author warthog
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OssObjectStatDTO {
+    /**
+     * 对象大小(字节)
+     */
+    private Long size;
+    /**
+     * 对象的etag 不带引号
+     */
+    private String etag;
+}
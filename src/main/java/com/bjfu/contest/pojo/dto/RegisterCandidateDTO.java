@@ -0,0 +1,37 @@
+package com.bjfu.contest.pojo.dto;
+
+import com.bjfu.contest.enums.ContestRegisterStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量报名时待报名的用户及其在竞赛中已有的报名状态
+ * @author warthog
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegisterCandidateDTO {
+    /**
+     * 用户id
+     */
+    private Long userId;
+    /**
+     * 账号
+     */
+    private String account;
+    /**
+     * 姓名
+     */
+    private String name;
+    /**
+     * 用户类型
+     */
+    private UserTypeEnum type;
+    /**
+     * 已有的报名状态 未报名时为null
+     */
+    private ContestRegisterStatusEnum registerStatus;
+}
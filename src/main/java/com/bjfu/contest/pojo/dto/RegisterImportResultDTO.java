@@ -0,0 +1,48 @@
+package com.bjfu.contest.pojo.dto;
+
+import com.bjfu.contest.enums.RegisterImportResultEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量导入报名的结果
+ * @author warthog
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegisterImportResultDTO {
+    /**
+     * 新报名的人数
+     */
+    private Integer registeredCount;
+    /**
+     * 跳过的行数
+     */
+    private Integer skippedCount;
+    /**
+     * 每个账号的处理结果
+     */
+    private List<Row> rows;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        /**
+         * 账号
+         */
+        private String account;
+        /**
+         * 姓名 用户不存在时为null
+         */
+        private String name;
+        /**
+         * 处理结果
+         */
+        private RegisterImportResultEnum result;
+    }
+}
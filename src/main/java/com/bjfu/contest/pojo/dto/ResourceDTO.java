@@ -1,6 +1,7 @@
 package com.bjfu.contest.pojo.dto;
 
 import com.bjfu.contest.enums.ResourceContentTypeEnum;
+import com.bjfu.contest.enums.ResourceStatusEnum;
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import com.bjfu.contest.pojo.entity.Resource;
 import lombok.Data;
@@ -64,4 +65,16 @@ public class ResourceDTO {
      * 内容
      */
     private String content;
+    /**
+     * 状态
+     */
+    private ResourceStatusEnum status;
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    /**
+     * 下载用url 只在列出资源时填充
+     */
+    private String url;
 }
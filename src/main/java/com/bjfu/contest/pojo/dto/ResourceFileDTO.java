@@ -0,0 +1,33 @@
+package com.bjfu.contest.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * 通过服务端下载的资源文件
+ * @author warthog
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceFileDTO {
+    /**
+     * 文件名
+     */
+    private String fileName;
+    /**
+     * oss对象名称
+     */
+    private String objectName;
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    /**
+     * 本地缓存文件 未缓存时为null
+     */
+    private Path localFile;
+}
@@ -0,0 +1,53 @@
+package com.bjfu.contest.pojo.dto;
+
+import com.bjfu.contest.enums.ResourceContentTypeEnum;
+import com.bjfu.contest.pojo.entity.Resource;
+import lombok.Data;
+import org.springframework.beans.BeanUtils;
+
+import java.util.Date;
+
+@Data
+public class ResourceUploadInfoDTO {
+
+    public ResourceUploadInfoDTO() {
+
+    }
+
+    public ResourceUploadInfoDTO(Resource resource, String url) {
+        if(resource != null) {
+            BeanUtils.copyProperties(resource, this);
+            this.url = url;
+        }
+    }
+
+    /**
+     * 资源id 确认上传时使用
+     */
+    private Long id;
+    /**
+     * 创建时间
+     */
+    private Date createdTime;
+    /**
+     * 内容类型
+     */
+    private ResourceContentTypeEnum contentType;
+    /**
+     * 文件名
+     */
+    private String fileName;
+    /**
+     * 分类
+     */
+    private String classification;
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    /**
+     * 上传用url 使用PUT方法上传
+     */
+    private String url;
+
+}
@@ -2,6 +2,7 @@ package com.bjfu.contest.pojo.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -18,11 +19,15 @@ import java.util.Date;
 @MappedSuperclass
 @EntityListeners(AuditingEntityListener.class)
 public abstract class BaseEntity {
+
+    private static final String ID_GENERATOR = "snowflake";
+
     /**
-     * 主键
+     * 主键 由应用生成 插入时可以使用jdbc批处理
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = ID_GENERATOR)
+    @GenericGenerator(name = ID_GENERATOR, strategy = "com.bjfu.contest.utils.SnowflakeIdGenerator")
     private Long id;
     /**
      * 创建时间
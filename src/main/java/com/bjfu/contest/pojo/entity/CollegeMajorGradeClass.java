@@ -3,8 +3,7 @@ package com.bjfu.contest.pojo.entity;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
+import javax.persistence.*;
 
 /**
  * 班级实体
@@ -13,6 +12,9 @@ import javax.persistence.Entity;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_college_major_grade_class_path", columnList = "college, major, grade, company")
+})
 public class CollegeMajorGradeClass extends BaseEntity {
     /**
      * 学院
@@ -14,6 +14,9 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_contest_creator_status", columnList = "creator_id, status")
+})
 public class Contest extends BaseEntity {
     /**
      * 竞赛名称
@@ -3,10 +3,7 @@ package com.bjfu.contest.pojo.entity;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.ManyToOne;
-import javax.persistence.OneToMany;
+import javax.persistence.*;
 import java.util.List;
 
 /**
@@ -17,6 +14,11 @@ import java.util.List;
 @Setter
 @Entity
 public class ContestGroup extends BaseEntity {
+    /**
+     * 乐观锁版本号
+     */
+    @Version
+    private Long version;
     /**
      * 对应的竞赛
      */
@@ -42,6 +44,11 @@ public class ContestGroup extends BaseEntity {
      */
     @Column(length=256)
     private String introduction;
+    /**
+     * 队伍人数(冗余字段) 只通过条件更新语句修改
+     */
+    @Column(nullable = false, updatable = false)
+    private Integer memberCount;
 
     /**
      * 队伍成员
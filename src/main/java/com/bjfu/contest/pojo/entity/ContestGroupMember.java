@@ -3,8 +3,7 @@ package com.bjfu.contest.pojo.entity;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Entity;
-import javax.persistence.ManyToOne;
+import javax.persistence.*;
 
 /**
  * 竞赛队伍成员表
@@ -13,6 +12,9 @@ import javax.persistence.ManyToOne;
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_contest_group_member_contest_member", columnNames = {"contest_id", "member_id"})
+})
 public class ContestGroupMember extends BaseEntity {
 
     /**
@@ -16,6 +16,9 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_contest_process_contest_sort_status", columnList = "contest_id, sort, status")
+})
 @Where(clause = "status != 3")
 public class ContestProcess extends BaseEntity {
     /**
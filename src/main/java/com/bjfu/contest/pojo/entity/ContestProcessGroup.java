@@ -4,10 +4,7 @@ import com.bjfu.contest.enums.ContestProcessGroupStatusEnum;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Enumerated;
-import javax.persistence.ManyToOne;
+import javax.persistence.*;
 
 /**
  * 竞赛流程队伍实体
@@ -16,6 +13,9 @@ import javax.persistence.ManyToOne;
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_contest_process_group_process_group", columnNames = {"process_id", "group_id"})
+})
 public class ContestProcessGroup extends BaseEntity {
     /**
      * 流程
@@ -14,7 +14,16 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_contest_register_contest_user_status", columnList = "contest_id, user_id, status"),
+        @Index(name = "idx_contest_register_user_status", columnList = "user_id, status")
+})
 public class ContestRegister extends BaseEntity {
+    /**
+     * 乐观锁版本号
+     */
+    @Version
+    private Long version;
     /**
      * 报名的竞赛
      */
@@ -3,8 +3,7 @@ package com.bjfu.contest.pojo.entity;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Entity;
-import javax.persistence.ManyToOne;
+import javax.persistence.*;
 
 /**
  * 竞赛指导教师多对多关系中间表
@@ -13,6 +12,9 @@ import javax.persistence.ManyToOne;
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_contest_teacher_contest_teacher", columnNames = {"contest_id", "teacher_id"})
+})
 public class ContestTeacher extends BaseEntity {
     /**
      * 竞赛
@@ -0,0 +1,55 @@
+package com.bjfu.contest.pojo.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 待发送的邮件
+ * 与注册/发布通知等操作在同一事务中写入 由后台任务分批发送 发送成功后删除
+ * @author warthog
+ */
+@Getter
+@Setter
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_mail_outbox_next_attempt_time", columnList = "nextAttemptTime")
+})
+public class MailOutbox extends BaseEntity {
+    /**
+     * 收件人邮箱
+     */
+    @Column(length = 64, nullable = false)
+    private String toAddress;
+    /**
+     * 主题
+     */
+    @Column(length = 128, nullable = false)
+    private String subject;
+    /**
+     * 正文
+     */
+    @Column(length = 1024, nullable = false)
+    private String content;
+    /**
+     * 对应的收件箱id 通知邮件发送完成后记录到收件箱的邮件是否发送成功
+     */
+    private Long inboxId;
+    /**
+     * 已尝试发送的次数
+     */
+    @Column(nullable = false)
+    private Integer attempts;
+    /**
+     * 下次尝试发送的时间 发送中的邮件为租约到期时间
+     */
+    @Column(nullable = false)
+    private Date nextAttemptTime;
+    /**
+     * 最近一次发送失败的原因
+     */
+    @Column(length = 256)
+    private String lastError;
+}
@@ -4,10 +4,7 @@ import com.bjfu.contest.enums.NotifyTypeEnum;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Enumerated;
-import javax.persistence.ManyToOne;
+import javax.persistence.*;
 
 /**
  * 通知实体
@@ -16,6 +13,10 @@ import javax.persistence.ManyToOne;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_notify_is_delivered_created_time", columnList = "isDelivered, createdTime"),
+        @Index(name = "idx_notify_type", columnList = "type")
+})
 public class Notify extends BaseEntity {
     /**
      * 标题
@@ -47,4 +48,9 @@ public class Notify extends BaseEntity {
      */
     @Column(nullable=false)
     private Boolean isSendEmail;
+    /**
+     * 是否已投递到所有接收人的收件箱 广播通知不投递 发布时即为true
+     */
+    @Column(nullable=false)
+    private Boolean isDelivered;
 }
@@ -0,0 +1,46 @@
+package com.bjfu.contest.pojo.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * 待删除的oss文件
+ * 与删除数据的操作在同一事务中写入 由后台任务批量删除oss中的文件
+ * @author warthog
+ */
+@Getter
+@Setter
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_oss_delete_outbox_next_attempt_time", columnList = "nextAttemptTime")
+})
+public class OssDeleteOutbox extends BaseEntity {
+    /**
+     * 存储桶名称
+     */
+    @Column(length = 64, nullable = false)
+    private String bucketName;
+    /**
+     * 对象名称
+     */
+    @Column(length = 256, nullable = false)
+    private String objectName;
+    /**
+     * 已尝试删除的次数
+     */
+    @Column(nullable = false)
+    private Integer attempts;
+    /**
+     * 下次尝试删除的时间
+     */
+    @Column(nullable = false)
+    private Date nextAttemptTime;
+    /**
+     * 最近一次删除失败的原因
+     */
+    @Column(length = 256)
+    private String lastError;
+}
@@ -1,14 +1,12 @@
 package com.bjfu.contest.pojo.entity;
 
 import com.bjfu.contest.enums.ResourceContentTypeEnum;
+import com.bjfu.contest.enums.ResourceStatusEnum;
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Enumerated;
-import javax.persistence.ManyToOne;
+import javax.persistence.*;
 
 /**
  * 资源文件
@@ -17,6 +15,10 @@ import javax.persistence.ManyToOne;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_resource_type_target_id", columnList = "type, targetId"),
+        @Index(name = "idx_resource_status_created_time", columnList = "status, createdTime")
+})
 public class Resource extends BaseEntity {
     /**
      * 资源类型
@@ -54,4 +56,24 @@ public class Resource extends BaseEntity {
      */
     @Column(length = 256, nullable=false)
     private String content;
+    /**
+     * 状态 直传oss的资源确认上传前为等待上传
+     */
+    @Enumerated
+    @Column(nullable = false)
+    private ResourceStatusEnum status;
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    /**
+     * oss中对象的etag
+     */
+    @Column(length = 64)
+    private String etag;
+    /**
+     * 内容的sha256(十六进制) 对应去重后的文件 为空时独占content中的文件
+     */
+    @Column(length = 64)
+    private String contentHash;
 }
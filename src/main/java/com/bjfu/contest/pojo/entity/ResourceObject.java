@@ -0,0 +1,39 @@
+package com.bjfu.contest.pojo.entity;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+/**
+ * oss中按内容去重的文件
+ * 内容相同的资源共用一个文件 最后一个引用删除时才删除文件
+ * @author warthog
+ */
+@Getter
+@Setter
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_resource_object_content_hash", columnNames = {"contentHash"})
+})
+public class ResourceObject extends BaseEntity {
+    /**
+     * 内容的sha256(十六进制)
+     */
+    @Column(length = 64, nullable = false)
+    private String contentHash;
+    /**
+     * oss中的对象名称
+     */
+    @Column(length = 256, nullable = false)
+    private String objectName;
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    /**
+     * 引用此文件的资源数 只通过条件更新语句修改
+     */
+    @Column(nullable = false, updatable = false)
+    private Integer refCount;
+}
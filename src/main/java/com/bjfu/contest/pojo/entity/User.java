@@ -6,10 +6,8 @@ import com.bjfu.contest.enums.UserTypeEnum;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Enumerated;
-import javax.persistence.OneToMany;
+import javax.persistence.*;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -19,6 +17,10 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_user_account_status", columnList = "account, status"),
+        @Index(name = "idx_user_email_status", columnList = "email, status")
+})
 public class User extends BaseEntity {
     /**
      * 账号
@@ -78,6 +80,10 @@ public class User extends BaseEntity {
      */
     @Column(length=256)
     private String introduction;
+    /**
+     * 广播通知已读水位 此时间之前发布的广播通知均视为已读 为空时以注册时间为准
+     */
+    private Date notifyReadTime;
     /**
      * 收件箱
      */
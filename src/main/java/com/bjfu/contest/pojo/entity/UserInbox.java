@@ -3,17 +3,22 @@ package com.bjfu.contest.pojo.entity;
 import lombok.Getter;
 import lombok.Setter;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.ManyToOne;
+import javax.persistence.*;
 
 /**
  * 用户收件箱实体
+ * 定向通知发布后为每个接收人写入一条 广播通知只在用户单独标记已读时写入
  * @author warthog
  */
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_inbox_notify_user", columnNames = {"notify_id", "user_id"})
+}, indexes = {
+        @Index(name = "idx_user_inbox_user_is_read", columnList = "user_id, isRead"),
+        @Index(name = "idx_user_inbox_user_notify", columnList = "user_id, notify_id")
+})
 public class UserInbox extends BaseEntity {
     /**
      * 接收人
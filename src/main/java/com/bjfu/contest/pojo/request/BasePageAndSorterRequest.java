@@ -25,6 +25,18 @@ public abstract class BasePageAndSorterRequest {
          */
         @NotNull(message = "每页的数量不能为空")
         private Integer pageSize;
+        /**
+         * 是否使用游标分页（忽略current，只按第一个排序字段及id排序）
+         */
+        private Boolean useCursor;
+        /**
+         * 游标（上一页返回的nextCursor，为空时从头开始）
+         */
+        private String cursor;
+        /**
+         * 是否跳过总数查询（总数只表示至少还有多少条）
+         */
+        private Boolean skipCount;
     }
 
     @Data
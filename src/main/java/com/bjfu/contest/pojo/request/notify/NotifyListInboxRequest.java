@@ -0,0 +1,22 @@
+package com.bjfu.contest.pojo.request.notify;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class NotifyListInboxRequest {
+    /**
+     * 每页的数量
+     */
+    @NotNull(message = "每页的数量不能为空")
+    @Min(value = 1, message = "每页的数量最少为1")
+    @Max(value = 50, message = "每页的数量最多为50")
+    private Integer pageSize;
+    /**
+     * 游标（上一页返回的nextCursor，为空时从最新的通知开始）
+     */
+    private String cursor;
+}
@@ -0,0 +1,38 @@
+package com.bjfu.contest.pojo.request.notify;
+
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import lombok.Data;
+import org.hibernate.validator.constraints.Length;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+@Data
+public class NotifyPublishRequest {
+    /**
+     * 标题
+     */
+    @NotEmpty(message = "标题不能为空")
+    @Length(max = 32, message = "标题最长32")
+    private String title;
+    /**
+     * 内容
+     */
+    @NotEmpty(message = "内容不能为空")
+    @Length(max = 128, message = "内容最长128")
+    private String content;
+    /**
+     * 类型
+     */
+    @NotNull(message = "通知类型不能为空")
+    private NotifyTypeEnum type;
+    /**
+     * 所属目标 竞赛/流程/队伍内通知时为对应的id
+     */
+    private Long targetId;
+    /**
+     * 是否发送邮件
+     */
+    @NotNull(message = "是否发送邮件不能为空")
+    private Boolean isSendEmail;
+}
@@ -0,0 +1,31 @@
+package com.bjfu.contest.pojo.request.register;
+
+import lombok.Data;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+public class RegisterImportRequest {
+    /**
+     * 竞赛id
+     */
+    @NotNull(message = "竞赛id不能为空")
+    private Long contestId;
+    /**
+     * 学院 未上传文件时按学院/专业/年级选择学生
+     */
+    private String college;
+    /**
+     * 专业 为空时不限
+     */
+    private String major;
+    /**
+     * 年级 为空时不限
+     */
+    private String grade;
+    /**
+     * 账号列表csv文件 每行第一列为账号 可带表头
+     */
+    private MultipartFile file;
+}
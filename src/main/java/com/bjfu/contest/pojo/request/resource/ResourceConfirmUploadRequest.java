@@ -0,0 +1,24 @@
+package com.bjfu.contest.pojo.request.resource;
+
+import lombok.Data;
+import org.hibernate.validator.constraints.Length;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * 直传oss完成后确认上传
+ * @author warthog
+ */
+@Data
+public class ResourceConfirmUploadRequest {
+    /**
+     * 资源id
+     */
+    @NotNull(message = "资源id不能为空")
+    private Long resourceId;
+    /**
+     * 上传响应中的ETag 不为空时与oss中的对象比对
+     */
+    @Length(max = 64, message = "ETag最长64")
+    private String etag;
+}
@@ -0,0 +1,22 @@
+package com.bjfu.contest.pojo.request.resource;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+/**
+ * 申请直传oss的上传链接
+ * @author warthog
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ResourcePresignedUploadRequest extends ResourceStreamUploadRequest {
+    /**
+     * 文件大小(字节) 确认上传时校验
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long size;
+}
@@ -0,0 +1,50 @@
+package com.bjfu.contest.pojo.request.resource;
+
+import com.bjfu.contest.enums.ResourceContentTypeEnum;
+import com.bjfu.contest.enums.ResourceTypeEnum;
+import lombok.Data;
+import org.hibernate.validator.constraints.Length;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 流式上传资源请求 文件内容为请求体本身 其余信息通过参数传递
+ * @author warthog
+ */
+@Data
+public class ResourceStreamUploadRequest {
+    /**
+     * 目标实体id
+     */
+    @NotNull(message = "目标实体id不能为空")
+    private Long targetId;
+    /**
+     * 资源类型
+     */
+    @NotNull(message = "资源类型不能为空")
+    ResourceTypeEnum type;
+    /**
+     * 资源内容类型
+     */
+    @NotNull(message = "资源内容类型不能为空")
+    ResourceContentTypeEnum contentType;
+    /**
+     * 文件名
+     */
+    @NotEmpty(message = "文件名不能为空")
+    @Length(min = 1, max = 64, message = "文件名最长64")
+    private String fileName;
+    /**
+     * 文件分类名
+     */
+    @NotEmpty(message = "文件分类名不能为空")
+    @Length(min = 1, max = 32, message = "分类名最长32")
+    private String classification;
+    /**
+     * 文件内容的sha256(十六进制) 可选 已有相同内容的文件时只校验不再写入oss
+     */
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "sha256格式错误")
+    private String sha256;
+}
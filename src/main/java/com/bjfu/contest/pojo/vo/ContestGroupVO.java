@@ -59,6 +59,10 @@ public class ContestGroupVO {
      * 队伍介绍
      */
     private String introduction;
+    /**
+     * 队伍人数
+     */
+    private Integer memberCount;
 
     /**
      * 队伍成员
@@ -0,0 +1,27 @@
+package com.bjfu.contest.pojo.vo;
+
+import com.bjfu.contest.pojo.dto.OrganizationTreeDTO;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class OrganizationTreeVO {
+
+    public OrganizationTreeVO() {}
+
+    public OrganizationTreeVO(OrganizationTreeDTO treeDTO) {
+        this.colleges = treeDTO.getColleges();
+        this.tree = treeDTO.getTree();
+    }
+
+    /**
+     * 所有学院
+     */
+    private List<String> colleges;
+    /**
+     * 学院 -> 专业 -> 年级 -> 班级
+     */
+    private Map<String, Map<String, Map<String, List<String>>>> tree;
+}
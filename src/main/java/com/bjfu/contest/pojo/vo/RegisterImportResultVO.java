@@ -0,0 +1,60 @@
+package com.bjfu.contest.pojo.vo;
+
+import com.bjfu.contest.enums.RegisterImportResultEnum;
+import com.bjfu.contest.pojo.dto.RegisterImportResultDTO;
+import lombok.Data;
+import org.springframework.beans.BeanUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+public class RegisterImportResultVO {
+
+    public RegisterImportResultVO() {}
+
+    public RegisterImportResultVO(RegisterImportResultDTO resultDTO) {
+        this.registeredCount = resultDTO.getRegisteredCount();
+        this.skippedCount = resultDTO.getSkippedCount();
+        this.rows = resultDTO.getRows()
+                .stream()
+                .map(Row::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 新报名的人数
+     */
+    private Integer registeredCount;
+    /**
+     * 跳过的行数
+     */
+    private Integer skippedCount;
+    /**
+     * 每个账号的处理结果
+     */
+    private List<Row> rows;
+
+    @Data
+    public static class Row {
+
+        public Row() {}
+
+        public Row(RegisterImportResultDTO.Row row) {
+            BeanUtils.copyProperties(row, this);
+        }
+
+        /**
+         * 账号
+         */
+        private String account;
+        /**
+         * 姓名
+         */
+        private String name;
+        /**
+         * 处理结果
+         */
+        private RegisterImportResultEnum result;
+    }
+}
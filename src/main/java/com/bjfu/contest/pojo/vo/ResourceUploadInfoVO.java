@@ -0,0 +1,50 @@
+package com.bjfu.contest.pojo.vo;
+
+import com.bjfu.contest.enums.ResourceContentTypeEnum;
+import com.bjfu.contest.pojo.dto.ResourceUploadInfoDTO;
+import lombok.Data;
+import org.springframework.beans.BeanUtils;
+
+import java.util.Date;
+
+@Data
+public class ResourceUploadInfoVO {
+
+    public ResourceUploadInfoVO() {
+
+    }
+
+    public ResourceUploadInfoVO(ResourceUploadInfoDTO resourceUploadInfoDTO) {
+        BeanUtils.copyProperties(resourceUploadInfoDTO, this);
+    }
+
+
+    /**
+     * 资源id 确认上传时使用
+     */
+    private Long id;
+    /**
+     * 创建时间
+     */
+    private Date createdTime;
+    /**
+     * 内容类型
+     */
+    private ResourceContentTypeEnum contentType;
+    /**
+     * 文件名
+     */
+    private String fileName;
+    /**
+     * 分类
+     */
+    private String classification;
+    /**
+     * 文件大小(字节)
+     */
+    private Long size;
+    /**
+     * 上传用url 使用PUT方法上传
+     */
+    private String url;
+}
@@ -50,6 +50,10 @@ public class UserVO {
      * 登录用token
      */
     private String token;
+    /**
+     * 未读通知数 仅获取自己的信息时返回
+     */
+    private Long unreadNotifyCount;
     /**
      * 用户id
      */
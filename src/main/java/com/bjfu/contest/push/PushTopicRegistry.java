@@ -0,0 +1,306 @@
+package com.bjfu.contest.push;
+
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import com.bjfu.contest.enums.PushEventTypeEnum;
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.utils.TransactionUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的sse推送主题注册表 按用户/竞赛/队伍订阅
+ * 发布在事务提交后进行 数据只序列化一次 放入各连接的有界缓冲区后由发送线程写出 不阻塞发布方
+ * 缓冲区满说明客户端长时间未读取 直接关闭连接 由客户端重连后重新拉取
+ * 定期发送心跳 及时发现已断开的连接 也避免空闲连接被代理断开
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class PushTopicRegistry {
+
+    /**
+     * 心跳只是注释行 客户端不会收到事件
+     */
+    private static final Event HEARTBEAT = new Event(null, null);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${push.max-connections:5000}")
+    private Integer maxConnections;
+    /**
+     * 每个连接最多缓存的未发送事件数
+     */
+    @Value("${push.buffer-size:32}")
+    private Integer bufferSize;
+    /**
+     * 连接的最长时间 到期后由客户端自动重连
+     */
+    @Value("${push.timeout-millis:1800000}")
+    private Long timeoutMillis;
+    @Value("${push.threads:4}")
+    private Integer threads;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Connection>> userTopics = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Connection>> contestTopics = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Connection>> groupTopics = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "push-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        connections.forEach(this::close);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 建立连接并订阅用户自己及所在竞赛/队伍的主题
+     * @param userId 用户id
+     * @param userType 用户类型 用来判断能否收到广播
+     * @param contestIds 订阅的竞赛id
+     * @param groupIds 订阅的队伍id
+     * @return sse连接
+     */
+    public SseEmitter connect(Long userId, UserTypeEnum userType, Collection<Long> contestIds, Collection<Long> groupIds) {
+        if(connections.size() >= maxConnections) {
+            throw new BizException(ResultEnum.PUSH_CONNECTION_LIMIT);
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(emitter, userId, userType,
+                new ArrayList<>(contestIds), new ArrayList<>(groupIds), bufferSize);
+        emitter.onCompletion(() -> unregister(connection));
+        emitter.onError(error -> unregister(connection));
+        emitter.onTimeout(() -> close(connection));
+        connections.add(connection);
+        subscribe(userTopics, userId, connection);
+        connection.contestIds.forEach(contestId -> subscribe(contestTopics, contestId, connection));
+        connection.groupIds.forEach(groupId -> subscribe(groupTopics, groupId, connection));
+        // 立即写出响应头 客户端不必等到第一个事件才确认连接
+        offer(connection, HEARTBEAT);
+        return emitter;
+    }
+
+    /**
+     * 在事务提交后推送给用户
+     * @param userIds 用户id
+     * @param type 事件类型
+     * @param data 事件数据
+     */
+    public void publishToUsers(Collection<Long> userIds, PushEventTypeEnum type, Object data) {
+        publish(type, data, event -> userIds.forEach(userId -> offerAll(userTopics.get(userId), event)));
+    }
+
+    /**
+     * 在事务提交后推送给订阅竞赛的用户
+     * @param contestId 竞赛id
+     * @param type 事件类型
+     * @param data 事件数据
+     */
+    public void publishToContest(Long contestId, PushEventTypeEnum type, Object data) {
+        publish(type, data, event -> offerAll(contestTopics.get(contestId), event));
+    }
+
+    /**
+     * 在事务提交后推送给队伍成员
+     * @param groupIds 队伍id
+     * @param type 事件类型
+     * @param data 事件数据
+     */
+    public void publishToGroups(Collection<Long> groupIds, PushEventTypeEnum type, Object data) {
+        publish(type, data, event -> groupIds.forEach(groupId -> offerAll(groupTopics.get(groupId), event)));
+    }
+
+    /**
+     * 在事务提交后推送给能收到该广播的所有在线用户
+     * @param notifyType 广播通知类型
+     * @param type 事件类型
+     * @param data 事件数据
+     */
+    public void publishBroadcast(NotifyTypeEnum notifyType, PushEventTypeEnum type, Object data) {
+        publish(type, data, event -> connections.forEach(connection -> {
+            if(NotifyTypeEnum.broadcastTypesOf(connection.userType).contains(notifyType)) {
+                offer(connection, event);
+            }
+        }));
+    }
+
+    @Scheduled(initialDelayString = "${push.heartbeat-millis:20000}",
+            fixedDelayString = "${push.heartbeat-millis:20000}")
+    public void heartbeat() {
+        connections.forEach(connection -> offer(connection, HEARTBEAT));
+    }
+
+    /**
+     * 当前连接数
+     * @return 连接数
+     */
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    private void publish(PushEventTypeEnum type, Object data, Consumer<Event> dispatcher) {
+        TransactionUtil.afterCommit(() -> {
+            if(connections.isEmpty()) {
+                return;
+            }
+            try {
+                dispatcher.accept(new Event(type.name(), objectMapper.writeValueAsBytes(data)));
+            } catch (JsonProcessingException exception) {
+                log.error("推送事件序列化失败: {}", type, exception);
+            }
+        });
+    }
+
+    private void offerAll(Set<Connection> topic, Event event) {
+        if(topic != null) {
+            topic.forEach(connection -> offer(connection, event));
+        }
+    }
+
+    private void offer(Connection connection, Event event) {
+        if(connection.closed.get()) {
+            return;
+        }
+        if(!connection.buffer.offer(event)) {
+            log.warn("推送缓冲区已满 关闭连接: {}", connection.userId);
+            close(connection);
+            return;
+        }
+        if(connection.flushing.compareAndSet(false, true)) {
+            executor.execute(() -> flush(connection));
+        }
+    }
+
+    /**
+     * 写出缓冲区中的事件 每个连接同时只有一个线程在写 保证事件顺序
+     * @param connection 连接
+     */
+    private void flush(Connection connection) {
+        do {
+            Event event;
+            while((event = connection.buffer.poll()) != null) {
+                try {
+                    connection.emitter.send(event.toSseEvent());
+                } catch (IOException | IllegalStateException exception) {
+                    // 客户端已断开或连接已结束
+                    close(connection);
+                }
+                if(connection.closed.get()) {
+                    connection.buffer.clear();
+                }
+            }
+            connection.flushing.set(false);
+        } while(!connection.buffer.isEmpty() && connection.flushing.compareAndSet(false, true));
+    }
+
+    private void close(Connection connection) {
+        if(unregister(connection)) {
+            connection.emitter.complete();
+        }
+    }
+
+    /**
+     * 取消连接的所有订阅
+     * @param connection 连接
+     * @return 是否由本次取消
+     */
+    private boolean unregister(Connection connection) {
+        if(!connection.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        connections.remove(connection);
+        unsubscribe(userTopics, connection.userId, connection);
+        connection.contestIds.forEach(contestId -> unsubscribe(contestTopics, contestId, connection));
+        connection.groupIds.forEach(groupId -> unsubscribe(groupTopics, groupId, connection));
+        return true;
+    }
+
+    private void subscribe(Map<Long, Set<Connection>> topics, Long key, Connection connection) {
+        topics.compute(key, (k, topic) -> {
+            Set<Connection> subscribers = topic == null ? ConcurrentHashMap.newKeySet() : topic;
+            subscribers.add(connection);
+            return subscribers;
+        });
+    }
+
+    private void unsubscribe(Map<Long, Set<Connection>> topics, Long key, Connection connection) {
+        topics.computeIfPresent(key, (k, topic) -> {
+            topic.remove(connection);
+            return topic.isEmpty() ? null : topic;
+        });
+    }
+
+    /**
+     * 单个sse连接 记录订阅的主题和未发送的事件
+     */
+    private static class Connection {
+
+        private final SseEmitter emitter;
+        private final Long userId;
+        private final UserTypeEnum userType;
+        private final List<Long> contestIds;
+        private final List<Long> groupIds;
+        private final BlockingQueue<Event> buffer;
+        private final AtomicBoolean flushing = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(SseEmitter emitter, Long userId, UserTypeEnum userType,
+                           List<Long> contestIds, List<Long> groupIds, int bufferSize) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.userType = userType;
+            this.contestIds = contestIds;
+            this.groupIds = groupIds;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    /**
+     * 已序列化为utf-8编码json的事件 所有连接共用 按字节写出 不依赖字符串转换器的默认编码
+     */
+    private static class Event {
+
+        private final String name;
+        private final byte[] data;
+
+        private Event(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toSseEvent() {
+            if(name == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().name(name).data(data);
+        }
+    }
+
+}
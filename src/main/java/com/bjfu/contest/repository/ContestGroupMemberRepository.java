@@ -16,9 +16,12 @@ public interface ContestGroupMemberRepository extends JpaRepository<ContestGroup
 
     List<ContestGroupMember> findAllByContestAndMember(Contest contest, ContestRegister member);
 
+    @Query(value = "select groupMember.group.id from ContestGroupMember groupMember where groupMember.member.user.id=?1")
+    List<Long> findAllGroupIdsByMemberUserId(Long userId);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query(value = "select groupMember from ContestGroupMember groupMember where groupMember.contest=?1 and groupMember.member=?2")
     List<ContestGroupMember> findAllByContestAndMemberForUpdate(Contest contest, ContestRegister member);
 
-    void deleteByContestAndGroupAndMember(Contest contest, ContestGroup group, ContestRegister member);
+    long deleteByContestAndGroupAndMember(Contest contest, ContestGroup group, ContestRegister member);
 }
@@ -2,8 +2,10 @@ package com.bjfu.contest.repository;
 
 import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.ContestGroup;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.persistence.LockModeType;
@@ -18,5 +20,18 @@ public interface ContestGroupRepository extends JpaRepository<ContestGroup, Long
     @Query(value = "select contestGroup from ContestGroup contestGroup where contestGroup.id=?1")
     Optional<ContestGroup> findByIdForUpdate(Long id);
 
+    @Lock(LockModeType.OPTIMISTIC)
+    @Query(value = "select contestGroup from ContestGroup contestGroup where contestGroup.id=?1")
+    Optional<ContestGroup> findByIdWithVersionCheck(Long id);
+
+    @EntityGraph(attributePaths = {"captain", "teacher"})
     List<ContestGroup> findAllByContest(Contest contest);
+
+    @Modifying
+    @Query(value = "update ContestGroup contestGroup set contestGroup.memberCount=contestGroup.memberCount+1 where contestGroup.id=?1 and contestGroup.memberCount<?2")
+    int increaseMemberCount(Long id, Integer limit);
+
+    @Modifying
+    @Query(value = "update ContestGroup contestGroup set contestGroup.memberCount=contestGroup.memberCount-1 where contestGroup.id=?1 and contestGroup.memberCount>0")
+    int decreaseMemberCount(Long id);
 }
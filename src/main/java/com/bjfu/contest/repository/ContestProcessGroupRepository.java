@@ -30,4 +30,14 @@ public interface ContestProcessGroupRepository extends JpaRepository<ContestProc
     @Query(value = "delete from ContestProcessGroup processGroup where processGroup.process=?1 and processGroup.group.id in ?2")
     void deleteAllByProcessAndGroupIdIn(ContestProcess process, List<Long> groupIds);
 
+    @Query(value = "select contestGroup.id from ContestGroup contestGroup, ContestProcess process " +
+            "where process.id=?1 and contestGroup.contest=process.contest " +
+            "and not exists (select processGroup.id from ContestProcessGroup processGroup where processGroup.process=process and processGroup.group=contestGroup)")
+    List<Long> findAllContestGroupIdsNotInProcess(Long processId);
+
+    @Query(value = "select beforeGroup.group.id from ContestProcessGroup beforeGroup " +
+            "where beforeGroup.process.id=?2 and beforeGroup.group.id in ?3 " +
+            "and not exists (select processGroup.id from ContestProcessGroup processGroup where processGroup.process.id=?1 and processGroup.group=beforeGroup.group)")
+    List<Long> findAllGroupIdsNotInProcessByBeforeProcessAndGroupIdIn(Long processId, Long beforeProcessId, List<Long> groupIds);
+
 }
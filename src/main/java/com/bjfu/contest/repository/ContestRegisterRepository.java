@@ -1,6 +1,9 @@
 package com.bjfu.contest.repository;
 
 import com.bjfu.contest.enums.ContestRegisterStatusEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.pojo.dto.RegisterCandidateDTO;
 import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.ContestRegister;
 import com.bjfu.contest.pojo.entity.User;
@@ -10,6 +13,7 @@ import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,5 +25,32 @@ public interface ContestRegisterRepository extends JpaRepository<ContestRegister
     @Query(value = "select register from ContestRegister register where register.contest=?1 and register.user=?2 and register.status in ?3")
     Optional<ContestRegister> findByContestAndUserAndStatusInForUpdate(Contest contest, User user, List<ContestRegisterStatusEnum> statuses);
 
+    @Lock(LockModeType.OPTIMISTIC)
+    @Query(value = "select register from ContestRegister register where register.contest=?1 and register.user=?2 and register.status in ?3")
+    Optional<ContestRegister> findByContestAndUserAndStatusInWithVersionCheck(Contest contest, User user, List<ContestRegisterStatusEnum> statuses);
+
     List<ContestRegister> findAllByUserAndStatusIn(User user, List<ContestRegisterStatusEnum> statuses);
+
+    @Query(value = "select register.contest.id from ContestRegister register where register.user.id=?1 and register.status in ?2")
+    List<Long> findAllContestIdsByUserIdAndStatusIn(Long userId, List<ContestRegisterStatusEnum> statuses);
+
+    @Query(value = "select new com.bjfu.contest.pojo.dto.RegisterCandidateDTO(user.id, user.account, user.name, user.type, register.status) " +
+            "from User user left join ContestRegister register on register.user=user and register.contest=?1 and register.status in ?2 " +
+            "where user.status=?3 and user.account in ?4")
+    List<RegisterCandidateDTO> findAllCandidatesByContestAndAccountIn(Contest contest,
+                                                                      List<ContestRegisterStatusEnum> statuses,
+                                                                      UserStatusEnum userStatus,
+                                                                      Collection<String> accounts);
+
+    @Query(value = "select new com.bjfu.contest.pojo.dto.RegisterCandidateDTO(user.id, user.account, user.name, user.type, register.status) " +
+            "from User user left join ContestRegister register on register.user=user and register.contest=?1 and register.status in ?2 " +
+            "where user.status=?3 and user.type=?4 and user.college=?5 and (?6 is null or user.major=?6) and (?7 is null or user.grade=?7) " +
+            "order by user.account")
+    List<RegisterCandidateDTO> findAllCandidatesByContestAndCollegeAndMajorAndGrade(Contest contest,
+                                                                                    List<ContestRegisterStatusEnum> statuses,
+                                                                                    UserStatusEnum userStatus,
+                                                                                    UserTypeEnum userType,
+                                                                                    String college,
+                                                                                    String major,
+                                                                                    String grade);
 }
@@ -18,4 +18,7 @@ public interface ContestRepository extends JpaRepository<Contest, Long>, JpaSpec
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query(value = "select contest from Contest contest where contest.id=?1 and contest.status in ?2")
     Optional<Contest> findByIdAndStatusInForUpdate(Long id, List<ContestStatusEnum> statusEnums);
+
+    @Query(value = "select contest.id, contest.name from Contest contest where contest.status<>?1")
+    List<Object[]> findAllSearchFieldsByStatusNot(ContestStatusEnum statusEnum);
 }
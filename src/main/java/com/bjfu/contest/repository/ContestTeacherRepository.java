@@ -25,4 +25,7 @@ public interface ContestTeacherRepository extends JpaRepository<ContestTeacher,
 
     List<ContestTeacher> findAllByContest(Contest contest);
     List<ContestTeacher> findAllByTeacher(User teacher);
+
+    @Query(value = "select teacher.contest.id from ContestTeacher teacher where teacher.teacher.id=?1")
+    List<Long> findAllContestIdsByTeacherId(Long teacherId);
 }
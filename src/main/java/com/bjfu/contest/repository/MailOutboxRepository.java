@@ -0,0 +1,19 @@
+package com.bjfu.contest.repository;
+
+import com.bjfu.contest.pojo.entity.MailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Date;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    List<MailOutbox> findByNextAttemptTimeLessThanEqualOrderByNextAttemptTime(Date time, Pageable pageable);
+
+    @Modifying
+    @Query(value = "update MailOutbox mail set mail.nextAttemptTime=?3 where mail.id=?1 and mail.nextAttemptTime=?2")
+    int updateNextAttemptTimeByIdAndNextAttemptTime(Long id, Date nextAttemptTime, Date leaseUntil);
+}
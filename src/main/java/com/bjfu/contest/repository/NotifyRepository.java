@@ -1,7 +1,31 @@
 package com.bjfu.contest.repository;
 
+import com.bjfu.contest.enums.NotifyTypeEnum;
 import com.bjfu.contest.pojo.entity.Notify;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 public interface NotifyRepository extends JpaRepository<Notify, Long> {
+
+    List<Notify> findByIsDeliveredFalseAndCreatedTimeLessThanOrderByCreatedTime(Date time, Pageable pageable);
+
+    @Modifying
+    @Query(value = "update Notify notify set notify.isDelivered=true where notify.id=?1")
+    int updateIsDeliveredTrueById(Long id);
+
+    @Query(value = "select notify from Notify notify left join fetch notify.author where notify.type in ?1 and notify.id<?2 " +
+            "and not exists (select inbox.id from UserInbox inbox where inbox.notify=notify and inbox.user.id=?3) " +
+            "order by notify.id desc")
+    List<Notify> findAllByTypeInAndIdLessThanWithoutInbox(Collection<NotifyTypeEnum> types, Long beforeNotifyId,
+                                                          Long userId, Pageable pageable);
+
+    @Query(value = "select count(notify) from Notify notify where notify.type in ?1 and notify.createdTime>?2 " +
+            "and not exists (select inbox.id from UserInbox inbox where inbox.notify=notify and inbox.user.id=?3)")
+    long countByTypeInAndCreatedTimeAfterWithoutInbox(Collection<NotifyTypeEnum> types, Date createdTime, Long userId);
 }
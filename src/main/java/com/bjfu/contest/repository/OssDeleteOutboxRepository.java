@@ -0,0 +1,12 @@
+package com.bjfu.contest.repository;
+
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Date;
+import java.util.List;
+
+public interface OssDeleteOutboxRepository extends JpaRepository<OssDeleteOutbox, Long> {
+    List<OssDeleteOutbox> findByNextAttemptTimeLessThanEqualOrderByNextAttemptTime(Date time, Pageable pageable);
+}
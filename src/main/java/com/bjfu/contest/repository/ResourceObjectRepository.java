@@ -0,0 +1,24 @@
+package com.bjfu.contest.repository;
+
+import com.bjfu.contest.pojo.entity.ResourceObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface ResourceObjectRepository extends JpaRepository<ResourceObject, Long> {
+    Optional<ResourceObject> findByContentHash(String contentHash);
+
+    @Modifying
+    @Query(value = "update ResourceObject resourceObject set resourceObject.refCount=resourceObject.refCount+1 where resourceObject.contentHash=?1 and resourceObject.refCount>0")
+    int increaseRefCount(String contentHash);
+
+    @Modifying
+    @Query(value = "update ResourceObject resourceObject set resourceObject.refCount=resourceObject.refCount-1 where resourceObject.contentHash=?1 and resourceObject.refCount>0")
+    int decreaseRefCount(String contentHash);
+
+    @Modifying
+    @Query(value = "delete from ResourceObject resourceObject where resourceObject.contentHash=?1 and resourceObject.refCount=0")
+    int deleteUnreferenced(String contentHash);
+}
@@ -1,11 +1,27 @@
 package com.bjfu.contest.repository;
 
+import com.bjfu.contest.enums.ResourceStatusEnum;
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import com.bjfu.contest.pojo.entity.Resource;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface ResourceRepository extends JpaRepository<Resource, Long> {
     List<Resource> findAllByTypeAndTargetId(ResourceTypeEnum type, Long targetId);
+    List<Resource> findAllByIdInAndStatus(Collection<Long> ids, ResourceStatusEnum status);
+    List<Resource> findAllByStatusAndCreatedTimeBefore(ResourceStatusEnum status, Date time, Pageable pageable);
+    List<Resource> findAllByTypeAndTargetIdAndStatus(ResourceTypeEnum type, Long targetId, ResourceStatusEnum status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = "select resource from Resource resource where resource.id=?1")
+    Optional<Resource> findByIdForUpdate(Long id);
 }
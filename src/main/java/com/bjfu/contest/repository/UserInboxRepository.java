@@ -1,7 +1,60 @@
 package com.bjfu.contest.repository;
 
+import com.bjfu.contest.enums.ContestRegisterStatusEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.pojo.entity.Notify;
 import com.bjfu.contest.pojo.entity.UserInbox;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface UserInboxRepository extends JpaRepository<UserInbox, Long> {
+
+    long countByNotify(Notify notify);
+
+    long countByUserIdAndIsReadFalse(Long userId);
+
+    Optional<UserInbox> findByUserIdAndNotifyId(Long userId, Long notifyId);
+
+    @Query(value = "select inbox from UserInbox inbox join fetch inbox.user join fetch inbox.notify notify " +
+            "left join fetch notify.author where inbox.user.id=?1 and notify.id<?2 order by notify.id desc")
+    List<UserInbox> findAllByUserIdAndNotifyIdLessThan(Long userId, Long beforeNotifyId, Pageable pageable);
+
+    @Modifying
+    @Query(value = "update UserInbox inbox set inbox.isRead=true where inbox.user.id=?1 and inbox.isRead=false")
+    int updateIsReadTrueByUserId(Long userId);
+
+    @Modifying
+    @Query(value = "update UserInbox inbox set inbox.isSendEmailSuccess=?2 where inbox.id in ?1")
+    int updateIsSendEmailSuccessByIdIn(Collection<Long> ids, Boolean isSendEmailSuccess);
+
+    @Query(value = "select user.id from User user where user.status=?1 and user.id>?2 " +
+            "and (user.id in (select register.user.id from ContestRegister register where register.contest.id=?3 and register.status=?4) " +
+            "or user.id in (select contestTeacher.teacher.id from ContestTeacher contestTeacher where contestTeacher.contest.id=?3)) " +
+            "and not exists (select inbox.id from UserInbox inbox where inbox.notify=?5 and inbox.user=user) " +
+            "order by user.id")
+    List<Long> findAllContestUserIdsWithoutInbox(UserStatusEnum userStatus, Long afterUserId, Long contestId,
+                                                 ContestRegisterStatusEnum registerStatus, Notify notify, Pageable pageable);
+
+    @Query(value = "select user.id from User user where user.status=?1 and user.id>?2 " +
+            "and (user.id in (select groupMember.member.user.id from ContestGroupMember groupMember, ContestProcessGroup processGroup " +
+            "where processGroup.process.id=?3 and groupMember.group=processGroup.group) " +
+            "or user.id in (select processGroup.group.teacher.id from ContestProcessGroup processGroup where processGroup.process.id=?3)) " +
+            "and not exists (select inbox.id from UserInbox inbox where inbox.notify=?4 and inbox.user=user) " +
+            "order by user.id")
+    List<Long> findAllProcessUserIdsWithoutInbox(UserStatusEnum userStatus, Long afterUserId, Long processId,
+                                                 Notify notify, Pageable pageable);
+
+    @Query(value = "select user.id from User user where user.status=?1 and user.id>?2 " +
+            "and (user.id in (select groupMember.member.user.id from ContestGroupMember groupMember where groupMember.group.id=?3) " +
+            "or user.id in (select contestGroup.teacher.id from ContestGroup contestGroup where contestGroup.id=?3)) " +
+            "and not exists (select inbox.id from UserInbox inbox where inbox.notify=?4 and inbox.user=user) " +
+            "order by user.id")
+    List<Long> findAllGroupUserIdsWithoutInbox(UserStatusEnum userStatus, Long afterUserId, Long groupId,
+                                               Notify notify, Pageable pageable);
 }
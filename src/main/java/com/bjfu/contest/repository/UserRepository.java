@@ -5,9 +5,12 @@ import com.bjfu.contest.enums.UserTypeEnum;
 import com.bjfu.contest.pojo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,4 +38,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByNameLikeAndStatusInAndTypeIn(String name, List<UserStatusEnum> statusEnums, List<UserTypeEnum> typeEnums);
 
+    List<User> findByIdInAndNameLikeAndStatusInAndTypeIn(Collection<Long> ids, String name, List<UserStatusEnum> statusEnums, List<UserTypeEnum> typeEnums);
+
+    @Query(value = "select user.id, user.name, user.grade, user.college, user.major from User user where user.status<>?1")
+    List<Object[]> findAllSearchFieldsByStatusNot(UserStatusEnum statusEnum);
+
+    @Modifying
+    @Query(value = "update User user set user.notifyReadTime=?2 where user.id=?1 " +
+            "and (user.notifyReadTime is null or user.notifyReadTime<?2)")
+    int updateNotifyReadTimeById(Long id, Date notifyReadTime);
+
 }
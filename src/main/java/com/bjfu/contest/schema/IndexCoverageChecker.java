@@ -0,0 +1,169 @@
+package com.bjfu.contest.schema;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 启动时检查repository查询是否有可用的索引
+ * 按方法名解析查询条件列(带加锁后缀的@Query方法去掉后缀后解析) 条件列中包含主键或任一索引的首列即认为可用
+ * 只输出告警 不影响启动
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class IndexCoverageChecker {
+
+    /**
+     * 加锁查询在派生查询名后加的后缀
+     */
+    private static final List<String> LOCK_SUFFIXES = Arrays.asList("ForUpdate", "WithVersionCheck");
+    /**
+     * 以通配符开头时无法使用索引的条件
+     */
+    private static final Set<Part.Type> NON_INDEXABLE_TYPES = EnumSet.of(
+            Part.Type.LIKE, Part.Type.NOT_LIKE, Part.Type.CONTAINING, Part.Type.NOT_CONTAINING,
+            Part.Type.ENDING_WITH, Part.Type.NEGATING_SIMPLE_PROPERTY, Part.Type.NOT_IN);
+
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${schema.index-check.enabled:true}")
+    private Boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() {
+        if(!enabled) {
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Repositories repositories = new Repositories(applicationContext);
+        int checked = 0;
+        int uncovered = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for(Class<?> domainType : repositories) {
+                RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+                AbstractEntityPersister persister =
+                        (AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(domainType);
+                String table = persister.getTableName();
+                List<List<String>> indexes = loadIndexes(metaData, connection.getCatalog(), table);
+                for(Method method : information.getQueryMethods()) {
+                    Optional<PartTree> partTree = parse(method.getName(), domainType);
+                    if(!partTree.isPresent()) {
+                        log.debug("无法解析查询方法 跳过索引检查: {}.{}",
+                                information.getRepositoryInterface().getSimpleName(), method.getName());
+                        continue;
+                    }
+                    for(PartTree.OrPart orPart : partTree.get()) {
+                        checked++;
+                        Set<String> columns = conditionColumns(orPart, persister);
+                        if(!isCovered(columns, persister, indexes)) {
+                            uncovered++;
+                            log.warn("查询缺少可用索引: {}.{} 表{} 条件列{}",
+                                    information.getRepositoryInterface().getSimpleName(), method.getName(), table, columns);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            log.warn("索引检查读取数据库元数据失败", exception);
+            return;
+        }
+        log.info("索引检查完成 共检查{}个查询条件 {}个缺少可用索引", checked, uncovered);
+    }
+
+    private Optional<PartTree> parse(String methodName, Class<?> domainType) {
+        String name = LOCK_SUFFIXES.stream()
+                .filter(methodName::endsWith)
+                .findFirst()
+                .map(suffix -> methodName.substring(0, methodName.length() - suffix.length()))
+                .orElse(methodName);
+        try {
+            return Optional.of(new PartTree(name, domainType));
+        } catch (RuntimeException exception) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 可以使用索引的条件列 关联属性取其外键列
+     */
+    private Set<String> conditionColumns(PartTree.OrPart orPart, AbstractEntityPersister persister) {
+        Set<String> columns = new LinkedHashSet<>();
+        for(Part part : orPart) {
+            if(NON_INDEXABLE_TYPES.contains(part.getType())) {
+                continue;
+            }
+            String property = part.getProperty().getSegment();
+            if(property.equals(persister.getIdentifierPropertyName())) {
+                columns.addAll(Arrays.asList(persister.getIdentifierColumnNames()));
+            } else {
+                columns.addAll(Arrays.asList(persister.getPropertyColumnNames(property)));
+            }
+        }
+        columns.removeIf(Objects::isNull);
+        Set<String> normalized = new LinkedHashSet<>();
+        columns.forEach(column -> normalized.add(column.toLowerCase(Locale.ROOT)));
+        return normalized;
+    }
+
+    private boolean isCovered(Set<String> columns, AbstractEntityPersister persister, List<List<String>> indexes) {
+        for(String idColumn : persister.getIdentifierColumnNames()) {
+            if(columns.contains(idColumn.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return indexes.stream().anyMatch(index -> columns.contains(index.get(0)));
+    }
+
+    /**
+     * 读取表上所有索引的列 按索引内顺序排列
+     */
+    private List<List<String>> loadIndexes(DatabaseMetaData metaData, String catalog, String table) throws SQLException {
+        Map<String, SortedMap<Short, String>> indexColumns = new HashMap<>();
+        // 不同数据库元数据中表名大小写不同
+        for(String tableName : new LinkedHashSet<>(Arrays.asList(table, table.toUpperCase(Locale.ROOT)))) {
+            try (ResultSet resultSet = metaData.getIndexInfo(catalog, null, tableName, false, true)) {
+                while(resultSet.next()) {
+                    String indexName = resultSet.getString("INDEX_NAME");
+                    String columnName = resultSet.getString("COLUMN_NAME");
+                    if(indexName == null || columnName == null) {
+                        continue;
+                    }
+                    indexColumns.computeIfAbsent(indexName, key -> new TreeMap<>())
+                            .put(resultSet.getShort("ORDINAL_POSITION"), columnName.toLowerCase(Locale.ROOT));
+                }
+            }
+            if(!indexColumns.isEmpty()) {
+                break;
+            }
+        }
+        List<List<String>> indexes = new ArrayList<>();
+        indexColumns.values().forEach(columns -> indexes.add(new ArrayList<>(columns.values())));
+        return indexes;
+    }
+}
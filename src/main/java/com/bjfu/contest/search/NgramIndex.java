@@ -0,0 +1,136 @@
+package com.bjfu.contest.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单个字段的n-gram倒排索引
+ * 同时索引单字和双字 单字关键词直接取倒排表 多字关键词取各双字倒排表的交集后按原值校验
+ * 与 like '%keyword%' 的结果一致(忽略大小写)
+ * @author warthog
+ */
+public class NgramIndex {
+
+    /**
+     * key为单字或双字 value为包含该片段的实体id
+     */
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    /**
+     * key为实体id value为规范化后的字段值
+     */
+    private final Map<Long, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * 新增或更新实体的字段值
+     * @param id 实体id
+     * @param value 字段值 为空时移除
+     */
+    public synchronized void put(Long id, String value) {
+        String normalized = normalize(value);
+        String old = values.get(id);
+        if(Objects.equals(old, normalized)) {
+            return;
+        }
+        if(old != null) {
+            removeGrams(id, old);
+        }
+        if(normalized == null) {
+            values.remove(id);
+            return;
+        }
+        values.put(id, normalized);
+        for(String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * 移除实体
+     * @param id 实体id
+     */
+    public synchronized void remove(Long id) {
+        String old = values.remove(id);
+        if(old != null) {
+            removeGrams(id, old);
+        }
+    }
+
+    /**
+     * 查找字段值包含关键词的实体
+     * @param keyword 关键词
+     * @return 实体id集合
+     */
+    public Set<Long> search(String keyword) {
+        String normalized = normalize(keyword);
+        if(normalized == null) {
+            return Collections.emptySet();
+        }
+        if(normalized.length() == 1) {
+            return new HashSet<>(postings.getOrDefault(normalized, Collections.emptySet()));
+        }
+        // 从最短的倒排表开始求交集
+        List<Set<Long>> candidates = new ArrayList<>();
+        for(String gram : bigrams(normalized)) {
+            Set<Long> posting = postings.get(gram);
+            if(posting == null) {
+                return Collections.emptySet();
+            }
+            candidates.add(posting);
+        }
+        candidates.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(candidates.get(0));
+        for(int i = 1; i < candidates.size() && !result.isEmpty(); i++) {
+            result.retainAll(candidates.get(i));
+        }
+        // 双字都存在不代表连续出现 按原值校验
+        result.removeIf(id -> {
+            String value = values.get(id);
+            return value == null || !value.contains(normalized);
+        });
+        return result;
+    }
+
+    /**
+     * @return 已索引的实体数量
+     */
+    public int size() {
+        return values.size();
+    }
+
+    private void removeGrams(Long id, String value) {
+        for(String gram : grams(value)) {
+            Set<Long> posting = postings.get(gram);
+            if(posting != null) {
+                posting.remove(id);
+                if(posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for(int i = 0; i < value.length(); i++) {
+            grams.add(value.substring(i, i + 1));
+        }
+        grams.addAll(bigrams(value));
+        return grams;
+    }
+
+    private static Set<String> bigrams(String value) {
+        Set<String> grams = new HashSet<>();
+        for(int i = 0; i + 2 <= value.length(); i++) {
+            grams.add(value.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static String normalize(String value) {
+        if(value == null) {
+            return null;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
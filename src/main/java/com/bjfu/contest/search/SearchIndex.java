@@ -0,0 +1,282 @@
+package com.bjfu.contest.search;
+
+import com.bjfu.contest.enums.ContestStatusEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.pojo.entity.Contest;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.repository.ContestRepository;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.utils.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 用户及竞赛的内存全文索引
+ * 代替 like '%keyword%' 的全表扫描 启动时全量重建 之后由DAO在事务提交后增量维护
+ * 绕过DAO的修改及其他实例的修改不会进入增量更新 定期在后台全量重建后整体替换
+ * 查询结果作为id条件交给数据库 like条件仍一并交给数据库 过滤掉索引未更新时的误命中 索引没有命中时只用like查询
+ * 索引有命中时 改名后新匹配但索引尚未更新的行在下次重建前查不到
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class SearchIndex {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ContestRepository contestRepository;
+
+    @Value("${search.index.enabled:true}")
+    private Boolean enabled;
+    /**
+     * 命中数量超过该值时id条件不比like更快 退回like查询
+     */
+    @Value("${search.index.max-in-size:1000}")
+    private Integer maxInSize;
+
+    private volatile Indexes indexes = new Indexes();
+    /**
+     * 重建期间的增量更新 重建完成后在新索引上按顺序重放 避免被读取时的快照覆盖或已删除的实体重新出现
+     * 不在重建时为null
+     */
+    private List<Consumer<Indexes>> pendingChanges;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private ExecutorService executor;
+
+    /**
+     * 索引重建完成前不可用
+     */
+    private volatile boolean ready = false;
+
+    @PostConstruct
+    private void init() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定期在后台重建 不占用调度线程
+     */
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval-millis:3600000}",
+            fixedDelayString = "${search.index.rebuild-interval-millis:3600000}")
+    public void scheduleRebuild() {
+        if(enabled && !rebuilding.get()) {
+            executor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * 全量重建索引 完成后替换当前索引 同时只进行一次重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if(!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                pendingChanges = new ArrayList<>();
+            }
+            long start = System.currentTimeMillis();
+            Indexes rebuilt = new Indexes();
+            List<Object[]> users = userRepository.findAllSearchFieldsByStatusNot(UserStatusEnum.DELETE);
+            for(Object[] user : users) {
+                rebuilt.putUser((Long) user[0], (String) user[1], (String) user[2], (String) user[3], (String) user[4]);
+            }
+            List<Object[]> contests = contestRepository.findAllSearchFieldsByStatusNot(ContestStatusEnum.DELETE);
+            for(Object[] contest : contests) {
+                rebuilt.contestName.put((Long) contest[0], (String) contest[1]);
+            }
+            synchronized (this) {
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                pendingChanges = null;
+                indexes = rebuilt;
+            }
+            ready = true;
+            log.info("搜索索引重建完成 用户{}个 竞赛{}个 耗时{}ms", users.size(), contests.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException exception) {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+            log.error("搜索索引重建失败", exception);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 在事务提交后更新用户索引
+     * @param user 用户
+     */
+    public void indexUser(User user) {
+        if(!enabled) {
+            return;
+        }
+        if(user.getStatus() == UserStatusEnum.DELETE) {
+            removeUser(user.getId());
+            return;
+        }
+        Long id = user.getId();
+        String name = user.getName();
+        String grade = user.getGrade();
+        String college = user.getCollege();
+        String major = user.getMajor();
+        TransactionUtil.afterCommit(() -> apply(current -> current.putUser(id, name, grade, college, major)));
+    }
+
+    /**
+     * 在事务提交后移除用户索引
+     * @param userId 用户id
+     */
+    public void removeUser(Long userId) {
+        TransactionUtil.afterCommit(() -> apply(current -> current.removeUser(userId)));
+    }
+
+    /**
+     * 在事务提交后更新竞赛索引
+     * @param contest 竞赛
+     */
+    public void indexContest(Contest contest) {
+        if(!enabled) {
+            return;
+        }
+        if(contest.getStatus() == ContestStatusEnum.DELETE) {
+            removeContest(contest.getId());
+            return;
+        }
+        Long id = contest.getId();
+        String name = contest.getName();
+        TransactionUtil.afterCommit(() -> apply(current -> current.contestName.put(id, name)));
+    }
+
+    /**
+     * 在事务提交后移除竞赛索引
+     * @param contestId 竞赛id
+     */
+    public void removeContest(Long contestId) {
+        TransactionUtil.afterCommit(() -> apply(current -> current.contestName.remove(contestId)));
+    }
+
+    /**
+     * 按用户字段查找 各非空条件之间为且
+     * @return 匹配的用户id 索引不可用 没有命中或命中过多时为空 调用方应退回like查询 有命中时仍需同时使用like条件
+     */
+    public Optional<Set<Long>> searchUsers(String name, String grade, String college, String major) {
+        Indexes current = indexes;
+        List<Set<Long>> results = new ArrayList<>();
+        if(StringUtils.hasText(name)) {
+            results.add(current.userName.search(name));
+        }
+        if(StringUtils.hasText(grade)) {
+            results.add(current.userGrade.search(grade));
+        }
+        if(StringUtils.hasText(college)) {
+            results.add(current.userCollege.search(college));
+        }
+        if(StringUtils.hasText(major)) {
+            results.add(current.userMajor.search(major));
+        }
+        return intersect(results);
+    }
+
+    /**
+     * 按竞赛名称查找
+     * @return 匹配的竞赛id 索引不可用 没有命中或命中过多时为空 调用方应退回like查询 有命中时仍需同时使用like条件
+     */
+    public Optional<Set<Long>> searchContests(String name) {
+        if(!StringUtils.hasText(name)) {
+            return Optional.empty();
+        }
+        return intersect(new ArrayList<>(Collections.singletonList(indexes.contestName.search(name))));
+    }
+
+    /**
+     * 将查找结果转为id条件
+     * @param cb CriteriaBuilder
+     * @param idPath id属性路径
+     * @param ids 查找结果 不为空
+     * @return 查询条件
+     */
+    public static Predicate idIn(CriteriaBuilder cb, Path<Long> idPath, Set<Long> ids) {
+        return idPath.in(ids);
+    }
+
+    /**
+     * 更新当前索引 重建期间同时记录 重建完成后在新索引上重放
+     * @param change 索引更新
+     */
+    private synchronized void apply(Consumer<Indexes> change) {
+        change.accept(indexes);
+        if(pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    private Optional<Set<Long>> intersect(List<Set<Long>> results) {
+        if(!ready || results.isEmpty()) {
+            return Optional.empty();
+        }
+        results.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(results.get(0));
+        for(int i = 1; i < results.size(); i++) {
+            result.retainAll(results.get(i));
+        }
+        // 没有命中时可能是其他实例的修改尚未重建进索引 不能直接返回空结果
+        if(result.isEmpty() || result.size() > maxInSize) {
+            return Optional.empty();
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * 一次重建产生的全部索引 重建完成后整体替换
+     */
+    private static class Indexes {
+
+        private final NgramIndex userName = new NgramIndex();
+        private final NgramIndex userGrade = new NgramIndex();
+        private final NgramIndex userCollege = new NgramIndex();
+        private final NgramIndex userMajor = new NgramIndex();
+        private final NgramIndex contestName = new NgramIndex();
+
+        private void putUser(Long id, String name, String grade, String college, String major) {
+            userName.put(id, name);
+            userGrade.put(id, grade);
+            userCollege.put(id, college);
+            userMajor.put(id, major);
+        }
+
+        private void removeUser(Long id) {
+            userName.remove(id);
+            userGrade.remove(id);
+            userCollege.remove(id);
+            userMajor.remove(id);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.bjfu.contest.security;
 
 import com.auth0.jwt.interfaces.Claim;
+import com.bjfu.contest.cache.UserInfoCache;
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.enums.UserStatusEnum;
 import com.bjfu.contest.enums.UserTypeEnum;
@@ -16,9 +17,10 @@ import com.bjfu.contest.utils.UserInfoContextUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.Optional;
@@ -28,10 +30,12 @@ import java.util.Optional;
  * @author warthog
  */
 @Component
-public class UserInterceptor implements HandlerInterceptor {
+public class UserInterceptor implements AsyncHandlerInterceptor {
 
     @Autowired
     private UserService userService;
+    @Autowired
+    private UserInfoCache userInfoCache;
 
     /**
      * 进入controller前检查权限
@@ -43,6 +47,10 @@ public class UserInterceptor implements HandlerInterceptor {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 异步请求(sse等)结束时的再次分发 首次进入时已经验证过
+        if(DispatcherType.ASYNC.equals(request.getDispatcherType())) {
+            return true;
+        }
         boolean isHandlerMethod = handler.getClass().isAssignableFrom(HandlerMethod.class);
         if(isHandlerMethod) {
             HandlerMethod handlerMethod= ((HandlerMethod)handler);
@@ -52,6 +60,10 @@ public class UserInterceptor implements HandlerInterceptor {
             boolean requireTeacher = handlerMethod.getMethodAnnotation(RequireTeacher.class) != null;
             boolean requireAdmin = handlerMethod.getMethodAnnotation(RequireAdmin.class) != null;
             requireLogin = requireLogin || requireAdmin || requireStudent || requireTeacher;
+            // 不需要登录的接口不解析用户信息
+            if(!requireLogin) {
+                return true;
+            }
             // 尝试从header中取token 取不到就从http参数中取
             String token = Optional.ofNullable(request.getHeader("Authorization"))
                     .filter(tokenInHeader -> tokenInHeader.length() > 7)
@@ -63,20 +75,18 @@ public class UserInterceptor implements HandlerInterceptor {
                     .map(claimMap -> claimMap.get("userId"))
                     .map(Claim::asString)
                     .map(Long::valueOf)
-                    .map(userId -> userService.getUserInfo(userId))
+                    .map(userId -> userInfoCache.get(userId, userService::getUserInfo))
                     .orElse(null);
-            // 需要登录则检查是否登录以及是否被封号
-            if(requireLogin) {
-                if(userInfo == null) {
-                    ResponseUtil.writeResultToResponse(ResultEnum.NEED_TO_LOGIN, response);
-                    return false;
-                }
-                if(UserStatusEnum.BANNED.equals(userInfo.getStatus())){
-                    ResponseUtil.writeResultToResponse(ResultEnum.ACCOUNT_BANNED, response);
-                    return false;
-                }
-                UserInfoContextUtil.setUserInfo(userInfo);
+            // 检查是否登录以及是否被封号
+            if(userInfo == null) {
+                ResponseUtil.writeResultToResponse(ResultEnum.NEED_TO_LOGIN, response);
+                return false;
+            }
+            if(UserStatusEnum.BANNED.equals(userInfo.getStatus())){
+                ResponseUtil.writeResultToResponse(ResultEnum.ACCOUNT_BANNED, response);
+                return false;
             }
+            UserInfoContextUtil.setUserInfo(userInfo);
             // 判断是否为管理员
             if(requireAdmin) {
                 if(!userInfo.getType().equals(UserTypeEnum.ADMIN)) {
@@ -106,7 +116,13 @@ public class UserInterceptor implements HandlerInterceptor {
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
         // 清空上下文中的用户信息
         UserInfoContextUtil.clear();
-        HandlerInterceptor.super.postHandle(request, response, handler, modelAndView);
+        AsyncHandlerInterceptor.super.postHandle(request, response, handler, modelAndView);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 异步请求不会调用postHandle 在请求线程释放前清空
+        UserInfoContextUtil.clear();
     }
 
 }
@@ -1,5 +1,7 @@
 package com.bjfu.contest.service;
 
+import com.bjfu.contest.pojo.dto.OrganizationTreeDTO;
+
 import java.util.List;
 import java.util.Map;
 
@@ -7,6 +9,12 @@ public interface CollegeMajorGradeClassService {
 
     // todo 删除时或许需要考虑下是否更新用户的信息
 
+    /**
+     * 获取完整的学院-专业-年级-班级树
+     * @return 不可修改的树
+     */
+    OrganizationTreeDTO getTree();
+
     List<String> findAllCollege();
     Map<String, Map<String, List<String>>> findAllClassByCollege(String college);
 
@@ -7,7 +7,9 @@ import com.bjfu.contest.pojo.request.process.ProcessDemoteGroupsRequest;
 import com.bjfu.contest.pojo.request.process.ProcessEditRequest;
 import com.bjfu.contest.pojo.request.process.ProcessPromoteGroupsRequest;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 竞赛流程相关操作服务
@@ -73,4 +75,12 @@ public interface ContestProcessService {
      * @param account 账号
      */
     void demoteGroups(ProcessDemoteGroupsRequest request, String account);
+
+    /**
+     * 将流程中所有队伍提交的文件打包为zip流式导出
+     * @param processId 流程id
+     * @param account 操作人账号
+     * @param outputStreamSupplier 校验通过后获取输出流 可在其中设置响应头
+     */
+    void exportSubmissions(Long processId, String account, Supplier<OutputStream> outputStreamSupplier);
 }
@@ -1,8 +1,10 @@
 package com.bjfu.contest.service;
 
 import com.bjfu.contest.pojo.dto.ContestRegisterDTO;
+import com.bjfu.contest.pojo.dto.RegisterImportResultDTO;
 import com.bjfu.contest.pojo.request.register.RegisterBanRequest;
 import com.bjfu.contest.pojo.request.register.RegisterCreateRequest;
+import com.bjfu.contest.pojo.request.register.RegisterImportRequest;
 import com.bjfu.contest.pojo.request.register.RegisterListAllRequest;
 import org.springframework.data.domain.Page;
 
@@ -35,6 +37,14 @@ public interface ContestRegisterService {
      */
     void create(RegisterCreateRequest request, String account);
 
+    /**
+     * 竞赛创建人批量导入报名 按上传的账号文件或学院/专业/年级选择学生 已报名的跳过
+     * @param request 请求
+     * @param account 操作人账号
+     * @return 每个账号的处理结果
+     */
+    RegisterImportResultDTO importRegisters(RegisterImportRequest request, String account);
+
     /**
      * 删除报名
      * @param contestId 竞赛id
@@ -0,0 +1,36 @@
+package com.bjfu.contest.service;
+
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.entity.UserInbox;
+
+import java.util.List;
+
+/**
+ * 邮件相关操作服务
+ * 只在当前事务中写入待发送邮件 由后台任务发送 不等待smtp
+ * @author warthog
+ */
+public interface MailService {
+
+    /**
+     * 发送激活账号邮件
+     * @param user 用户
+     * @param token 激活用token
+     */
+    void sendActivateMail(User user, String token);
+
+    /**
+     * 发送重置密码邮件
+     * @param user 用户
+     * @param token 重置密码用token
+     */
+    void sendResetPasswordMail(User user, String token);
+
+    /**
+     * 为投递到的收件箱发送通知邮件 发送结果记录到收件箱
+     * @param notify 通知
+     * @param inboxes 收件箱
+     */
+    void sendNotifyMails(Notify notify, List<UserInbox> inboxes);
+}
@@ -0,0 +1,50 @@
+package com.bjfu.contest.service;
+
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.dto.UserInboxDTO;
+import com.bjfu.contest.pojo.request.notify.NotifyListInboxRequest;
+import com.bjfu.contest.pojo.request.notify.NotifyPublishRequest;
+import org.springframework.data.domain.Page;
+
+/**
+ * 通知相关操作服务
+ * @author warthog
+ */
+public interface NotifyService {
+
+    /**
+     * 发布通知 事务提交后在后台投递到接收人的收件箱 不等待投递完成
+     * @param request 请求
+     * @param account 发布人账号
+     * @return 通知
+     */
+    NotifyDTO publish(NotifyPublishRequest request, String account);
+
+    /**
+     * 按通知从新到旧分页列出收件箱 定向通知读取收件箱 广播通知读取时合并 每页的查询量与用户总数无关
+     * @param request 请求
+     * @param account 用户账号
+     * @return 游标分页结果
+     */
+    Page<UserInboxDTO> listInbox(NotifyListInboxRequest request, String account);
+
+    /**
+     * 标记一条通知已读
+     * @param notifyId 通知id
+     * @param account 用户账号
+     */
+    void read(Long notifyId, String account);
+
+    /**
+     * 标记全部通知已读 广播通知通过提升已读水位标记
+     * @param account 用户账号
+     */
+    void readAll(String account);
+
+    /**
+     * 获取未读通知数 优先读取缓存
+     * @param userId 用户id
+     * @return 未读通知数
+     */
+    long countUnread(Long userId);
+}
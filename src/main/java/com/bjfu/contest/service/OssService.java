@@ -1,6 +1,13 @@
 package com.bjfu.contest.service;
 
+import com.bjfu.contest.pojo.dto.OssObjectStatDTO;
+
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * oss文件相关操作服务
@@ -16,6 +23,16 @@ public interface OssService {
      */
     void putObject(String bucketName, String objectName, InputStream stream);
 
+    /**
+     * 流式上传文件 按分片读取输入流 不在内存中缓存整个文件
+     * @param bucketName 存储桶名称
+     * @param objectName 对象名称
+     * @param stream 输入流
+     * @param size 文件大小 未知时传-1 按配置的分片大小分片上传
+     * @param contentType 文件的MIME类型 可为空
+     */
+    void putObject(String bucketName, String objectName, InputStream stream, long size, String contentType);
+
     /**
      * 下载文件
      * @param bucketName 存储桶名称
@@ -24,6 +41,42 @@ public interface OssService {
      */
     InputStream getObject(String bucketName, String objectName);
 
+    /**
+     * 下载文件的指定范围
+     * @param bucketName 存储桶名称
+     * @param objectName 对象名称
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 输入流
+     */
+    InputStream getObject(String bucketName, String objectName, long offset, long length);
+
+    /**
+     * 获取文件的本地缓存 未命中时在后台下载到本地
+     * @param bucketName 存储桶名称
+     * @param objectName 对象名称
+     * @return 本地缓存文件 未启用本地缓存 未命中或文件不缓存时为空
+     */
+    Optional<Path> getLocalFile(String bucketName, String objectName);
+
+    /**
+     * 获取文件的元信息
+     * @param bucketName 存储桶名称
+     * @param objectName 对象名称
+     * @return 文件元信息 文件不存在时为空
+     */
+    Optional<OssObjectStatDTO> statObject(String bucketName, String objectName);
+
+    /**
+     * 在oss内复制文件 不经过本地
+     * @param bucketName 存储桶名称
+     * @param sourceObjectName 源对象名称
+     * @param objectName 目标对象名称
+     * @param sourceEtag 源文件的etag 源文件已被修改时复制失败
+     * @return 复制后文件的etag
+     */
+    String copyObject(String bucketName, String sourceObjectName, String objectName, String sourceEtag);
+
     /**
      * 删除文件
      * @param bucketName 存储桶名称
@@ -31,6 +84,14 @@ public interface OssService {
      */
     void deleteObject(String bucketName, String objectName);
 
+    /**
+     * 批量删除文件 对象不存在视为删除成功
+     * @param bucketName 存储桶名称
+     * @param objectNames 对象名称
+     * @return 删除失败的对象名称
+     */
+    Set<String> deleteObjects(String bucketName, Collection<String> objectNames);
+
     /**
      * 生成一个上传文件用的URL
      * @param bucketName 存储桶名称
@@ -65,4 +126,13 @@ public interface OssService {
      */
     String preSignedGetObject(String bucketName, String objectName, Integer expires);
 
+    /**
+     * 批量生成下载文件用的URL
+     * @param bucketName 存储桶名称
+     * @param objectNames 对象名称
+     * @param expires url过期时间
+     * @return key为对象名称的下载文件用的URL
+     */
+    Map<String, String> preSignedGetObjects(String bucketName, Collection<String> objectNames, Integer expires);
+
 }
@@ -0,0 +1,20 @@
+package com.bjfu.contest.service;
+
+import com.bjfu.contest.enums.UserTypeEnum;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 实时推送相关服务
+ * @author warthog
+ */
+public interface PushService {
+
+    /**
+     * 建立sse推送连接 订阅用户自己/参加或指导的竞赛/所在队伍的事件
+     * 连接期间新加入的竞赛和队伍在重连后生效
+     * @param userId 用户id
+     * @param userType 用户类型
+     * @return sse连接
+     */
+    SseEmitter subscribe(Long userId, UserTypeEnum userType);
+}
@@ -3,9 +3,15 @@ package com.bjfu.contest.service;
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import com.bjfu.contest.pojo.dto.ResourceDTO;
 import com.bjfu.contest.pojo.dto.ResourceDownloadInfoDTO;
+import com.bjfu.contest.pojo.dto.ResourceFileDTO;
+import com.bjfu.contest.pojo.dto.ResourceUploadInfoDTO;
+import com.bjfu.contest.pojo.request.resource.ResourceConfirmUploadRequest;
 import com.bjfu.contest.pojo.request.resource.ResourceEditRequest;
+import com.bjfu.contest.pojo.request.resource.ResourcePresignedUploadRequest;
+import com.bjfu.contest.pojo.request.resource.ResourceStreamUploadRequest;
 import com.bjfu.contest.pojo.request.resource.ResourceUploadRequest;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -22,6 +28,33 @@ public interface ResourceService {
      */
     ResourceDTO upload(ResourceUploadRequest request, String account);
 
+    /**
+     * 流式上传资源 文件内容直接从输入流写入oss
+     * @param request 请求
+     * @param stream 文件输入流
+     * @param size 文件大小 未知时为-1
+     * @param mimeType 文件的MIME类型 可为空
+     * @param account 操作人账户
+     * @return 资源
+     */
+    ResourceDTO upload(ResourceStreamUploadRequest request, InputStream stream, long size, String mimeType, String account);
+
+    /**
+     * 申请直传oss 记录等待上传的资源并生成上传链接
+     * @param request 请求
+     * @param account 操作人账户
+     * @return 资源id及上传链接
+     */
+    ResourceUploadInfoDTO requestUpload(ResourcePresignedUploadRequest request, String account);
+
+    /**
+     * 确认直传oss完成 校验文件并复制为不签发上传链接的文件后资源变为可用
+     * @param request 请求
+     * @param account 操作人账户
+     * @return 资源
+     */
+    ResourceDTO confirmUpload(ResourceConfirmUploadRequest request, String account);
+
     /**
      * 编辑资源
      * @param request 请求
@@ -36,6 +69,13 @@ public interface ResourceService {
      */
     void delete(Long resourceId, String account);
 
+    /**
+     * 删除上传链接已过期但仍未确认上传的资源
+     * @param limit 最多删除的数量
+     * @return 删除的数量
+     */
+    int deleteExpiredPending(Integer limit);
+
     /**
      * 获取资源的下载链接
      * @param resourceId 资源id
@@ -44,6 +84,23 @@ public interface ResourceService {
      */
     ResourceDownloadInfoDTO getDownloadInfo(Long resourceId, String account);
 
+    /**
+     * 获取通过服务端下载的资源文件 启用本地缓存时优先使用本地缓存
+     * @param resourceId 资源id
+     * @param account 操作人账号
+     * @return 资源文件
+     */
+    ResourceFileDTO getFile(Long resourceId, String account);
+
+    /**
+     * 从oss读取资源文件的指定范围
+     * @param file 资源文件
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 输入流
+     */
+    InputStream getFileStream(ResourceFileDTO file, long offset, long length);
+
     /**
      * 列出目标实体的所有资源
      * @param type 目标实体类型
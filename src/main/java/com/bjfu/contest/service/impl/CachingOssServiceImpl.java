@@ -0,0 +1,199 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.OssDiskCache;
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.pojo.dto.OssObjectStatDTO;
+import com.bjfu.contest.service.OssService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 带本地磁盘缓存的oss实现类 读取时优先使用本地缓存 未命中时直接从minio读取 同时在后台下载并缓存
+ * 写入及删除直接交给minio 同时删除本地缓存
+ * @author warthog
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "oss.cache.enabled", havingValue = "true")
+public class CachingOssServiceImpl implements OssService {
+
+    @Autowired
+    private MinioOssServiceImpl minioOssService;
+    @Autowired
+    private OssDiskCache ossDiskCache;
+
+    /**
+     * 单个文件超过该大小(字节)时不缓存
+     */
+    @Value("${oss.cache.max-object-bytes:67108864}")
+    private Long maxObjectBytes;
+
+    @Override
+    public void putObject(String bucketName, String objectName, InputStream stream) {
+        minioOssService.putObject(bucketName, objectName, stream);
+        ossDiskCache.invalidate(bucketName, objectName);
+    }
+
+    @Override
+    public void putObject(String bucketName, String objectName, InputStream stream, long size, String contentType) {
+        minioOssService.putObject(bucketName, objectName, stream, size, contentType);
+        ossDiskCache.invalidate(bucketName, objectName);
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName) {
+        Optional<Path> localFile = getLocalFile(bucketName, objectName);
+        if(localFile.isPresent()) {
+            try {
+                return Files.newInputStream(localFile.get());
+            } catch (IOException exception) {
+                log.warn("读取缓存文件失败 从oss下载: {}", objectName, exception);
+            }
+        }
+        return minioOssService.getObject(bucketName, objectName);
+    }
+
+    @Override
+    public InputStream getObject(String bucketName, String objectName, long offset, long length) {
+        Optional<Path> localFile = getLocalFile(bucketName, objectName);
+        if(localFile.isPresent()) {
+            // 映射后关闭文件不影响读取映射的内容
+            try (FileChannel channel = FileChannel.open(localFile.get())) {
+                long start = Math.min(offset, channel.size());
+                long end = Math.min(offset + length, channel.size());
+                return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+            } catch (IOException exception) {
+                log.warn("读取缓存文件失败 从oss下载: {}", objectName, exception);
+            }
+        }
+        return minioOssService.getObject(bucketName, objectName, offset, length);
+    }
+
+    @Override
+    public Optional<Path> getLocalFile(String bucketName, String objectName) {
+        // 未命中及缓存失败时由调用方直接从oss读取
+        return Optional.ofNullable(ossDiskCache.get(bucketName, objectName,
+                file -> download(bucketName, objectName, file)));
+    }
+
+    @Override
+    public Optional<OssObjectStatDTO> statObject(String bucketName, String objectName) {
+        return minioOssService.statObject(bucketName, objectName);
+    }
+
+    @Override
+    public String copyObject(String bucketName, String sourceObjectName, String objectName, String sourceEtag) {
+        String etag = minioOssService.copyObject(bucketName, sourceObjectName, objectName, sourceEtag);
+        ossDiskCache.invalidate(bucketName, objectName);
+        return etag;
+    }
+
+    @Override
+    public void deleteObject(String bucketName, String objectName) {
+        minioOssService.deleteObject(bucketName, objectName);
+        ossDiskCache.invalidate(bucketName, objectName);
+    }
+
+    @Override
+    public Set<String> deleteObjects(String bucketName, Collection<String> objectNames) {
+        Set<String> failedObjectNames = minioOssService.deleteObjects(bucketName, objectNames);
+        objectNames.forEach(objectName -> ossDiskCache.invalidate(bucketName, objectName));
+        return failedObjectNames;
+    }
+
+    @Override
+    public String preSignedPutObject(String bucketName, String objectName) {
+        return minioOssService.preSignedPutObject(bucketName, objectName);
+    }
+
+    @Override
+    public String preSignedPutObject(String bucketName, String objectName, Integer expires) {
+        return minioOssService.preSignedPutObject(bucketName, objectName, expires);
+    }
+
+    @Override
+    public String preSignedGetObject(String bucketName, String objectName) {
+        return minioOssService.preSignedGetObject(bucketName, objectName);
+    }
+
+    @Override
+    public String preSignedGetObject(String bucketName, String objectName, Integer expires) {
+        return minioOssService.preSignedGetObject(bucketName, objectName, expires);
+    }
+
+    @Override
+    public Map<String, String> preSignedGetObjects(String bucketName, Collection<String> objectNames, Integer expires) {
+        return minioOssService.preSignedGetObjects(bucketName, objectNames, expires);
+    }
+
+    /**
+     * 在后台线程从minio下载文件到缓存文件 缓存文件在下载完成前对其他线程不可见
+     * @return 是否已下载 文件不存在或过大时不缓存
+     */
+    private boolean download(String bucketName, String objectName, Path file) {
+        Optional<OssObjectStatDTO> stat = minioOssService.statObject(bucketName, objectName);
+        if(!stat.isPresent() || stat.get().getSize() > maxObjectBytes) {
+            return false;
+        }
+        try (InputStream stream = minioOssService.getObject(bucketName, objectName)) {
+            Files.copy(stream, file);
+            return true;
+        } catch (IOException exception) {
+            log.error("缓存文件失败：", exception);
+            throw new OssException(ResultEnum.FILE_DOWNLOAD_FAILED);
+        }
+    }
+
+    /**
+     * 读取内存映射文件的输入流
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(length == 0) {
+                return 0;
+            }
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
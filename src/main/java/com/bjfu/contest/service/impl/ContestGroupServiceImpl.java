@@ -1,8 +1,10 @@
 package com.bjfu.contest.service.impl;
 
+import com.bjfu.contest.cache.ContestCache;
 import com.bjfu.contest.dao.*;
 import com.bjfu.contest.enums.ContestProcessStatusEnum;
 import com.bjfu.contest.enums.ContestStatusEnum;
+import com.bjfu.contest.enums.GroupLockModeEnum;
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.exception.BizException;
 import com.bjfu.contest.pojo.dto.ContestGroupDTO;
@@ -16,11 +18,17 @@ import com.bjfu.contest.service.ResourceService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -41,6 +49,23 @@ public class ContestGroupServiceImpl implements ContestGroupService {
     private ResourceService resourceService;
     @Autowired
     private ResourceDAO resourceDAO;
+    @Autowired
+    private ContestCache contestCache;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final long OPTIMISTIC_BACKOFF_MILLIS = 20;
+
+    /**
+     * 加入/踢出队伍时的并发控制方式
+     */
+    @Value("${contest.group.lock-mode:PESSIMISTIC}")
+    private GroupLockModeEnum lockMode;
+    /**
+     * 乐观锁模式下冲突时的最大尝试次数
+     */
+    @Value("${contest.group.optimistic-max-attempts:3}")
+    private Integer optimisticMaxAttempts;
 
     @Override
     public ContestGroupDTO getInfo(Long groupId) {
@@ -84,8 +109,11 @@ public class ContestGroupServiceImpl implements ContestGroupService {
     }
 
     @Override
-    @Transactional
     public ContestGroupDTO create(GroupCreateRequest request, String account) {
+        return executeMembershipChange(() -> doCreate(request, account));
+    }
+
+    private ContestGroupDTO doCreate(GroupCreateRequest request, String account) {
         Contest contest = contestDAO.findById(request.getContestId())
                 .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
         // 查询竞赛是否为注册状态
@@ -105,10 +133,10 @@ public class ContestGroupServiceImpl implements ContestGroupService {
         User captain = userDAO.findByAccount(account)
                 .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
         // 判断是否报名竞赛
-        ContestRegister captainRegister = contestRegisterDAO.findByContestAndUserForUpdate(contest, captain)
+        ContestRegister captainRegister = findRegisterForMembershipChange(contest, captain)
                 .orElseThrow(() -> new BizException(ResultEnum.USER_NOT_REGISTERED));
         // 判断是否参加过同一个竞赛里的其他队伍
-        if(!contestGroupDAO.findAllByContestAndMemberForUpdate(contest, captainRegister).isEmpty()) {
+        if(hasJoinedGroup(contest, captainRegister)) {
             throw new BizException(ResultEnum.HAS_JOINED_GROUP);
         }
         ContestGroup group = new ContestGroup();
@@ -116,8 +144,12 @@ public class ContestGroupServiceImpl implements ContestGroupService {
         group.setContest(contest);
         group.setCaptain(captain);
         contestGroupDAO.insert(group);
+        if(!contestGroupDAO.increaseMemberCount(group, contest.getGroupMemberCount())) {
+            throw new BizException(ResultEnum.GROUP_FULL);
+        }
         contestGroupDAO.addMember(contest, group, captainRegister);
         contestGroupDAO.addToProcess(group, firstProcess);
+        contestCache.invalidate(contest.getId());
         return new ContestGroupDTO(group, false, false, false,
                 false, false, false);
     }
@@ -152,6 +184,7 @@ public class ContestGroupServiceImpl implements ContestGroupService {
         }
         BeanUtils.copyProperties(request, group);
         contestGroupDAO.update(group);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
@@ -181,14 +214,19 @@ public class ContestGroupServiceImpl implements ContestGroupService {
         }
         // 删除队伍
         contestGroupDAO.delete(group);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
-    @Transactional
     public void join(GroupJoinRequest request, String account) {
-        // 加锁获取队伍
-        ContestGroup group = contestGroupDAO.findByIdForUpdate(request.getGroupId())
-                .orElseThrow(() -> new BizException(ResultEnum.GROUP_NOT_EXIST));
+        executeMembershipChange(() -> {
+            doJoin(request, account);
+            return null;
+        });
+    }
+
+    private void doJoin(GroupJoinRequest request, String account) {
+        ContestGroup group = findGroupForMembershipChange(request.getGroupId());
         Contest contest = group.getContest();
         // 确认竞赛为注册状态
         if(!contest.getStatus().equals(ContestStatusEnum.REGISTERING)) {
@@ -207,21 +245,30 @@ public class ContestGroupServiceImpl implements ContestGroupService {
         User user = userDAO.findByAccount(account)
                 .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
         // 判断是否报名竞赛
-        ContestRegister userRegister = contestRegisterDAO.findByContestAndUserForUpdate(contest, user)
+        ContestRegister userRegister = findRegisterForMembershipChange(contest, user)
                 .orElseThrow(() -> new BizException(ResultEnum.USER_NOT_REGISTERED));
         // 判断是否参加过同一个竞赛里的其他队伍
-        if(!contestGroupDAO.findAllByContestAndMemberForUpdate(contest, userRegister).isEmpty()) {
+        if(hasJoinedGroup(contest, userRegister)) {
             throw new BizException(ResultEnum.HAS_JOINED_GROUP);
         }
+        // 条件更新人数 不需要加载成员列表
+        if(!contestGroupDAO.increaseMemberCount(group, contest.getGroupMemberCount())) {
+            throw new BizException(ResultEnum.GROUP_FULL);
+        }
         contestGroupDAO.addMember(contest, group, userRegister);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
-    @Transactional
     public void kickMember(GroupKickMemberRequest request, String account) {
-        // 加锁获取队伍
-        ContestGroup group = contestGroupDAO.findByIdForUpdate(request.getGroupId())
-                .orElseThrow(() -> new BizException(ResultEnum.GROUP_NOT_EXIST));
+        executeMembershipChange(() -> {
+            doKickMember(request, account);
+            return null;
+        });
+    }
+
+    private void doKickMember(GroupKickMemberRequest request, String account) {
+        ContestGroup group = findGroupForMembershipChange(request.getGroupId());
         Contest contest = group.getContest();
         // 确认竞赛为注册状态
         if(!contest.getStatus().equals(ContestStatusEnum.REGISTERING)) {
@@ -250,9 +297,61 @@ public class ContestGroupServiceImpl implements ContestGroupService {
         User user = userDAO.findByAccount(request.getUserAccount())
                 .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
         // 判断是否报名竞赛
-        ContestRegister userRegister = contestRegisterDAO.findByContestAndUserForUpdate(contest, user)
+        ContestRegister userRegister = findRegisterForMembershipChange(contest, user)
                 .orElseThrow(() -> new BizException(ResultEnum.USER_NOT_REGISTERED));
         // 删除关系
-        contestGroupDAO.deleteMember(contest, group, userRegister);
+        if(contestGroupDAO.deleteMember(contest, group, userRegister)) {
+            contestGroupDAO.decreaseMemberCount(group);
+            contestCache.invalidate(contest.getId());
+        }
+    }
+
+    /**
+     * 在事务中执行队伍成员变更 乐观锁模式下冲突时有限次重试
+     * @param action 成员变更操作
+     * @return 操作结果
+     */
+    private <T> T executeMembershipChange(Supplier<T> action) {
+        if(lockMode != GroupLockModeEnum.OPTIMISTIC) {
+            return transactionTemplate.execute(status -> action.get());
+        }
+        for(int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException exception) {
+                if(attempt >= optimisticMaxAttempts) {
+                    log.warn("队伍成员变更冲突 重试{}次后放弃", attempt, exception);
+                    throw new BizException(ResultEnum.CONCURRENT_CONFLICT);
+                }
+                try {
+                    // 随机退避 避免冲突的请求同时重试
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(OPTIMISTIC_BACKOFF_MILLIS) * attempt);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new BizException(ResultEnum.CONCURRENT_CONFLICT);
+                }
+            }
+        }
+    }
+
+    private ContestGroup findGroupForMembershipChange(Long groupId) {
+        Optional<ContestGroup> group = lockMode == GroupLockModeEnum.OPTIMISTIC
+                ? contestGroupDAO.findByIdWithVersionCheck(groupId)
+                : contestGroupDAO.findByIdForUpdate(groupId);
+        return group.orElseThrow(() -> new BizException(ResultEnum.GROUP_NOT_EXIST));
+    }
+
+    private Optional<ContestRegister> findRegisterForMembershipChange(Contest contest, User user) {
+        return lockMode == GroupLockModeEnum.OPTIMISTIC
+                ? contestRegisterDAO.findByContestAndUserWithVersionCheck(contest, user)
+                : contestRegisterDAO.findByContestAndUserForUpdate(contest, user);
+    }
+
+    private boolean hasJoinedGroup(Contest contest, ContestRegister register) {
+        // 乐观锁模式下并发加入由唯一约束拦截
+        List<ContestGroup> groups = lockMode == GroupLockModeEnum.OPTIMISTIC
+                ? contestGroupDAO.findAllByContestAndMember(contest, register)
+                : contestGroupDAO.findAllByContestAndMemberForUpdate(contest, register);
+        return !groups.isEmpty();
     }
 }
@@ -1,35 +1,51 @@
 package com.bjfu.contest.service.impl;
 
+import com.bjfu.contest.cache.ContestCache;
+import com.bjfu.contest.config.MinioConfig;
 import com.bjfu.contest.dao.ContestDAO;
 import com.bjfu.contest.dao.ContestGroupDAO;
 import com.bjfu.contest.dao.ContestProcessDAO;
+import com.bjfu.contest.dao.ResourceDAO;
 import com.bjfu.contest.dao.UserDAO;
 import com.bjfu.contest.enums.ContestProcessStatusEnum;
 import com.bjfu.contest.enums.ContestStatusEnum;
+import com.bjfu.contest.enums.PushEventTypeEnum;
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.export.ZipExportEntry;
+import com.bjfu.contest.export.ZipExportWriter;
 import com.bjfu.contest.pojo.dto.ContestGroupDTO;
 import com.bjfu.contest.pojo.dto.ContestProcessDTO;
 import com.bjfu.contest.pojo.entity.BaseEntity;
 import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.ContestGroup;
 import com.bjfu.contest.pojo.entity.ContestProcess;
+import com.bjfu.contest.pojo.entity.ContestProcessGroup;
+import com.bjfu.contest.pojo.entity.Resource;
 import com.bjfu.contest.pojo.request.process.ProcessCreateRequest;
 import com.bjfu.contest.pojo.request.process.ProcessDemoteGroupsRequest;
 import com.bjfu.contest.pojo.request.process.ProcessEditRequest;
 import com.bjfu.contest.pojo.request.process.ProcessPromoteGroupsRequest;
+import com.bjfu.contest.pojo.vo.ContestProcessVO;
+import com.bjfu.contest.push.PushTopicRegistry;
 import com.bjfu.contest.service.ContestProcessService;
 import com.bjfu.contest.service.ResourceService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import javax.transaction.Transactional;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -46,6 +62,16 @@ public class ContestProcessServiceImpl implements ContestProcessService {
     private ContestGroupDAO contestGroupDAO;
     @Autowired
     private ResourceService resourceService;
+    @Autowired
+    private ContestCache contestCache;
+    @Autowired
+    private ResourceDAO resourceDAO;
+    @Autowired
+    private ZipExportWriter zipExportWriter;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PushTopicRegistry pushTopicRegistry;
 
     @Override
     public ContestProcessDTO getInfo(Long processId) {
@@ -56,13 +82,15 @@ public class ContestProcessServiceImpl implements ContestProcessService {
 
     @Override
     public List<ContestProcessDTO> listAll(Long contestId) {
-        Contest contest = contestDAO.findById(contestId)
-                .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
-        return contest.getProcesses()
-                .stream()
-                .sorted(Comparator.comparingInt(ContestProcess::getSort))
-                .map(process -> new ContestProcessDTO(process, false, false))
-                .collect(Collectors.toList());
+        return contestCache.getProcesses(contestId, id -> {
+            Contest contest = contestDAO.findById(id)
+                    .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
+            return contest.getProcesses()
+                    .stream()
+                    .sorted(Comparator.comparingInt(ContestProcess::getSort))
+                    .map(process -> new ContestProcessDTO(process, false, false))
+                    .collect(Collectors.toList());
+        });
     }
 
     @Override
@@ -95,6 +123,7 @@ public class ContestProcessServiceImpl implements ContestProcessService {
         contestProcess.setContest(contest);
         contestProcess.setSort(lastProcessSort + 1);
         contestProcessDAO.insert(contestProcess);
+        contestCache.invalidate(contest.getId());
         return new ContestProcessDTO(contestProcess, false, false);
     }
 
@@ -121,8 +150,14 @@ public class ContestProcessServiceImpl implements ContestProcessService {
             throw new BizException(ResultEnum.PROCESS_NOT_LAST);
         }
         // 更新流程状态
+        ContestProcessStatusEnum beforeStatus = process.getStatus();
         BeanUtils.copyProperties(request, process);
         contestProcessDAO.update(process);
+        contestCache.invalidate(contest.getId());
+        if(!beforeStatus.equals(process.getStatus())) {
+            pushTopicRegistry.publishToContest(contest.getId(), PushEventTypeEnum.PROCESS_STATUS,
+                    new ContestProcessVO(new ContestProcessDTO(process, false, false)));
+        }
     }
 
     @Override
@@ -148,6 +183,7 @@ public class ContestProcessServiceImpl implements ContestProcessService {
         }
         // 删除
         contestProcessDAO.delete(process);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
@@ -192,33 +228,22 @@ public class ContestProcessServiceImpl implements ContestProcessService {
         if(!process.getStatus().equals(ContestProcessStatusEnum.CREATING)) {
             throw new BizException(ResultEnum.PROCESS_NOT_CREATING);
         }
+        // 在数据库中过滤出目标流程中不存在的队伍 不加载队伍实体 批量插入
         if(process.getSort() != 1) {
             // 确认存在上一个sort连续的流程
             ContestProcess beforeProcess = contestProcessDAO.findByContestAndSort(process.getContest(), process.getSort() - 1)
                     .orElseThrow(() -> new BizException(ResultEnum.PROCESS_SORT_ERROR));
-            // 从上一个流程队伍中过滤出存在的队伍
-            List<ContestGroup> groups = contestGroupDAO.findAllByProcessAndIdInForUpdate(beforeProcess, request.getGroupIds());
-            Set<Long> existGroupIds = contestGroupDAO.findAllByProcess(process)
-                    .stream()
-                    .map(BaseEntity::getId)
-                    .collect(Collectors.toSet());
-            // 过滤出目标流程中不存在的队伍
-            groups = groups.stream().filter(group -> !existGroupIds.contains(group.getId())).collect(Collectors.toList());
-            // 保存这些队伍
-            contestGroupDAO.addAllToProcess(process, groups);
+            // 从上一个流程队伍中晋级选择的队伍
+            contestGroupDAO.addAllToProcessFromProcess(process, beforeProcess, request.getGroupIds());
+            pushTopicRegistry.publishToGroups(request.getGroupIds(), PushEventTypeEnum.GROUP_PROMOTE,
+                    new ContestProcessVO(new ContestProcessDTO(process, false, false)));
         } else {
-            // 找到竞赛全部队伍
-            List<ContestGroup> groups = contestGroupDAO.findAllByContest(process.getContest());
-            // 过滤出目标流程中不存在的队伍
-            Set<Long> existGroupIds = contestGroupDAO.findAllByProcess(process)
-                    .stream()
-                    .map(BaseEntity::getId)
-                    .collect(Collectors.toSet());
-            // 过滤出目标流程中不存在的队伍
-            groups = groups.stream().filter(group -> !existGroupIds.contains(group.getId())).collect(Collectors.toList());
-            // 保存这些队伍
-            contestGroupDAO.addAllToProcess(process, groups);
+            // 竞赛全部队伍晋级 推送给整个竞赛
+            contestGroupDAO.addAllContestGroupsToProcess(process);
+            pushTopicRegistry.publishToContest(process.getContest().getId(), PushEventTypeEnum.GROUP_PROMOTE,
+                    new ContestProcessVO(new ContestProcessDTO(process, false, false)));
         }
+        contestCache.invalidate(process.getContest().getId());
     }
 
     @Override
@@ -237,5 +262,77 @@ public class ContestProcessServiceImpl implements ContestProcessService {
         }
         // 删除流程队伍关联关系
         contestGroupDAO.deleteGroupsInProcessByProcessAndGroupIdIn(process, request.getGroupIds());
+        contestCache.invalidate(process.getContest().getId());
+    }
+
+    @Override
+    public void exportSubmissions(Long processId, String account, Supplier<OutputStream> outputStreamSupplier) {
+        ContestProcess process = contestProcessDAO.findById(processId)
+                .orElseThrow(() -> new BizException(ResultEnum.PROCESS_NOT_EXIST));
+        // 竞赛创建人验证
+        if(!process.getContest().getCreator().getAccount().equals(account)) {
+            throw new BizException(ResultEnum.NOT_CONTEST_CREATOR);
+        }
+        // 解析每个队伍提交的资源id 一次查出所有资源
+        List<ContestProcessGroup> processGroups = contestGroupDAO.findAllProcessGroupsByProcess(process);
+        processGroups.sort(Comparator.comparing(processGroup -> processGroup.getGroup().getId()));
+        Map<Long, List<Long>> resourceIdsByProcessGroup = new HashMap<>();
+        processGroups.forEach(processGroup ->
+                resourceIdsByProcessGroup.put(processGroup.getId(), parseSubmitList(processGroup)));
+        Set<Long> resourceIds = resourceIdsByProcessGroup.values()
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toSet());
+        Map<Long, Resource> resourceMap = resourceIds.isEmpty() ? Collections.emptyMap() :
+                resourceDAO.findAllAvailableByIdIn(resourceIds)
+                        .stream()
+                        .collect(Collectors.toMap(BaseEntity::getId, Function.identity()));
+        // 每个队伍一个目录 目录内文件名重复时加序号
+        List<ZipExportEntry> entries = new ArrayList<>();
+        for(ContestProcessGroup processGroup : processGroups) {
+            ContestGroup group = processGroup.getGroup();
+            String directory = toEntryName(group.getName()) + "_" + group.getId() + "/";
+            Set<String> usedNames = new HashSet<>();
+            for(Long resourceId : resourceIdsByProcessGroup.get(processGroup.getId())) {
+                Resource resource = resourceMap.get(resourceId);
+                if(resource == null) {
+                    continue;
+                }
+                String fileName = toEntryName(resource.getFileName());
+                String entryName = fileName;
+                for(int index = 1; !usedNames.add(entryName); index++) {
+                    entryName = "(" + index + ")" + fileName;
+                }
+                entries.add(new ZipExportEntry(directory + entryName, MinioConfig.FILE_BUCKET_NAME, resource.getContent()));
+            }
+        }
+        try {
+            zipExportWriter.write(entries, outputStreamSupplier.get());
+        } catch (IOException | UncheckedIOException exception) {
+            // 响应已开始写出 只能中断
+            log.warn("导出流程提交文件中断: {}", processId, exception);
+        }
+    }
+
+    /**
+     * 解析队伍提交的内容 为资源id的json数组 无法解析时视为未提交
+     */
+    private List<Long> parseSubmitList(ContestProcessGroup processGroup) {
+        if(!StringUtils.hasText(processGroup.getSubmitList())) {
+            return Collections.emptyList();
+        }
+        try {
+            return objectMapper.readValue(processGroup.getSubmitList(), new TypeReference<List<Long>>() {});
+        } catch (JsonProcessingException exception) {
+            log.warn("队伍提交内容格式错误: {}", processGroup.getId());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 去掉压缩包内路径中的目录分隔符
+     */
+    private static String toEntryName(String name) {
+        return name.replaceAll("[/\\\\]", "_");
     }
 }
@@ -5,28 +5,46 @@ import com.bjfu.contest.dao.ContestRegisterDAO;
 import com.bjfu.contest.dao.UserDAO;
 import com.bjfu.contest.enums.ContestRegisterStatusEnum;
 import com.bjfu.contest.enums.ContestStatusEnum;
+import com.bjfu.contest.enums.RegisterImportResultEnum;
 import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
 import com.bjfu.contest.exception.BizException;
 import com.bjfu.contest.pojo.dto.ContestRegisterDTO;
+import com.bjfu.contest.pojo.dto.RegisterCandidateDTO;
+import com.bjfu.contest.pojo.dto.RegisterImportResultDTO;
 import com.bjfu.contest.pojo.entity.Contest;
 import com.bjfu.contest.pojo.entity.ContestRegister;
 import com.bjfu.contest.pojo.entity.User;
 import com.bjfu.contest.pojo.request.register.RegisterBanRequest;
 import com.bjfu.contest.pojo.request.register.RegisterCreateRequest;
+import com.bjfu.contest.pojo.request.register.RegisterImportRequest;
 import com.bjfu.contest.pojo.request.register.RegisterListAllRequest;
 import com.bjfu.contest.service.ContestRegisterService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.transaction.Transactional;
-import java.util.List;
-import java.util.Optional;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class ContestRegisterServiceImpl implements ContestRegisterService {
 
+    /**
+     * 导入文件中可能出现的表头
+     */
+    private static final Set<String> IMPORT_HEADERS = new HashSet<>(Arrays.asList("account", "账号", "学号"));
+
     @Autowired
     private UserDAO userDAO;
     @Autowired
@@ -34,6 +52,12 @@ public class ContestRegisterServiceImpl implements ContestRegisterService {
     @Autowired
     private ContestRegisterDAO contestRegisterDAO;
 
+    /**
+     * 单次导入的最大人数
+     */
+    @Value("${contest.register.import.max-rows:5000}")
+    private int importMaxRows;
+
     @Override
     public Page<ContestRegisterDTO> listAll(RegisterListAllRequest request) {
         Contest contest = contestDAO.findById(request.getContestId())
@@ -78,7 +102,8 @@ public class ContestRegisterServiceImpl implements ContestRegisterService {
     @Override
     @Transactional
     public void create(RegisterCreateRequest request, String account) {
-        Contest contest = contestDAO.findById(request.getContestId())
+        // 与批量导入使用同一把竞赛锁 避免导入期间报名的用户被重复插入
+        Contest contest = contestDAO.findByIdForUpdate(request.getContestId())
                 .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
         if(!contest.getStatus().equals(ContestStatusEnum.REGISTERING)) {
             throw new BizException(ResultEnum.CONTEST_NOT_REGISTERING);
@@ -95,6 +120,104 @@ public class ContestRegisterServiceImpl implements ContestRegisterService {
 
     }
 
+    @Override
+    @Transactional
+    public RegisterImportResultDTO importRegisters(RegisterImportRequest request, String account) {
+        // 锁定竞赛 同一竞赛的导入串行执行
+        Contest contest = contestDAO.findByIdForUpdate(request.getContestId())
+                .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
+        if(!contest.getStatus().equals(ContestStatusEnum.REGISTERING)) {
+            throw new BizException(ResultEnum.CONTEST_NOT_REGISTERING);
+        }
+        if(!contest.getCreator().getAccount().equals(account)) {
+            throw new BizException(ResultEnum.NOT_CONTEST_CREATOR);
+        }
+        List<RegisterImportResultDTO.Row> rows = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        if(request.getFile() != null && !request.getFile().isEmpty()) {
+            List<String> accounts = readAccounts(request.getFile());
+            // 用户及已有的报名在同一批查询中取出 不逐个账号查询
+            Map<String, RegisterCandidateDTO> candidates = contestRegisterDAO
+                    .findAllCandidatesByAccountIn(contest, new LinkedHashSet<>(accounts))
+                    .stream()
+                    .collect(Collectors.toMap(RegisterCandidateDTO::getAccount, candidate -> candidate, (a, b) -> a));
+            Set<String> handledAccounts = new HashSet<>();
+            for(String importAccount : accounts) {
+                RegisterCandidateDTO candidate = candidates.get(importAccount);
+                String name = Optional.ofNullable(candidate).map(RegisterCandidateDTO::getName).orElse(null);
+                if(!handledAccounts.add(importAccount)) {
+                    rows.add(new RegisterImportResultDTO.Row(importAccount, name, RegisterImportResultEnum.DUPLICATE));
+                } else if(candidate == null) {
+                    rows.add(new RegisterImportResultDTO.Row(importAccount, null, RegisterImportResultEnum.USER_NOT_EXIST));
+                } else if(!candidate.getType().equals(UserTypeEnum.STUDENT)) {
+                    rows.add(new RegisterImportResultDTO.Row(importAccount, name, RegisterImportResultEnum.NOT_STUDENT));
+                } else {
+                    rows.add(toImportRow(candidate, userIds));
+                }
+            }
+        } else if(StringUtils.hasText(request.getCollege())) {
+            Collection<RegisterCandidateDTO> candidates = contestRegisterDAO
+                    .findAllCandidatesByCollegeAndMajorAndGrade(contest,
+                            request.getCollege(),
+                            StringUtils.hasText(request.getMajor()) ? request.getMajor() : null,
+                            StringUtils.hasText(request.getGrade()) ? request.getGrade() : null)
+                    .stream()
+                    .collect(Collectors.toMap(RegisterCandidateDTO::getUserId, candidate -> candidate, (a, b) -> a, LinkedHashMap::new))
+                    .values();
+            if(candidates.size() > importMaxRows) {
+                throw new BizException(ResultEnum.REGISTER_IMPORT_TOO_MANY);
+            }
+            candidates.forEach(candidate -> rows.add(toImportRow(candidate, userIds)));
+        } else {
+            throw new BizException(ResultEnum.REGISTER_IMPORT_EMPTY);
+        }
+        contestRegisterDAO.insertAll(contest, userIds);
+        return new RegisterImportResultDTO(userIds.size(), rows.size() - userIds.size(), rows);
+    }
+
+    /**
+     * 未报名的用户加入待插入列表 已报名的跳过
+     */
+    private RegisterImportResultDTO.Row toImportRow(RegisterCandidateDTO candidate, List<Long> userIds) {
+        RegisterImportResultEnum result;
+        if(candidate.getRegisterStatus() == null) {
+            userIds.add(candidate.getUserId());
+            result = RegisterImportResultEnum.REGISTERED;
+        } else if(candidate.getRegisterStatus().equals(ContestRegisterStatusEnum.BAN)) {
+            result = RegisterImportResultEnum.BANNED;
+        } else {
+            result = RegisterImportResultEnum.ALREADY_REGISTERED;
+        }
+        return new RegisterImportResultDTO.Row(candidate.getAccount(), candidate.getName(), result);
+    }
+
+    /**
+     * 读取csv文件每行的第一列作为账号 忽略空行和表头
+     */
+    private List<String> readAccounts(MultipartFile file) {
+        List<String> accounts = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                String importAccount = line.split(",", 2)[0]
+                        .replace("\uFEFF", "")
+                        .replace("\"", "")
+                        .trim();
+                if(importAccount.isEmpty() || (accounts.isEmpty() && IMPORT_HEADERS.contains(importAccount.toLowerCase()))) {
+                    continue;
+                }
+                accounts.add(importAccount);
+                if(accounts.size() > importMaxRows) {
+                    throw new BizException(ResultEnum.REGISTER_IMPORT_TOO_MANY);
+                }
+            }
+        } catch (IOException e) {
+            log.error("读取报名导入文件失败", e);
+            throw new BizException(ResultEnum.REGISTER_IMPORT_FILE_ERROR);
+        }
+        return accounts;
+    }
+
     @Override
     @Transactional
     public void delete(Long contestId, String deleteUserAccount, String account) {
@@ -1,5 +1,6 @@
 package com.bjfu.contest.service.impl;
 
+import com.bjfu.contest.cache.ContestCache;
 import com.bjfu.contest.dao.ContestDAO;
 import com.bjfu.contest.dao.ContestProcessDAO;
 import com.bjfu.contest.dao.UserDAO;
@@ -35,6 +36,8 @@ public class ContestServiceImpl implements ContestService {
     private UserDAO userDAO;
     @Autowired
     private ContestProcessDAO contestProcessDAO;
+    @Autowired
+    private ContestCache contestCache;
 
     @Override
     @Transactional
@@ -59,6 +62,7 @@ public class ContestServiceImpl implements ContestService {
             defaultProcess.setEndSubmitTime(calendar.getTime());
             contestProcessDAO.insert(defaultProcess);
         }
+        contestCache.invalidate(contest.getId());
         return new ContestDTO(contest, false, false, false,
                 false, false, false);
     }
@@ -74,6 +78,7 @@ public class ContestServiceImpl implements ContestService {
         }
         BeanUtils.copyProperties(request, contest);
         contestDAO.update(contest);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
@@ -86,14 +91,17 @@ public class ContestServiceImpl implements ContestService {
             throw new BizException(ResultEnum.NOT_CONTEST_CREATOR);
         }
         contestDAO.delete(contest);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
     public ContestDTO getInfo(Long contestId) {
-        Contest contest = contestDAO.findById(contestId)
-                .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
-        return new ContestDTO(contest, true, true, true,
-                false, true, true);
+        return contestCache.getInfo(contestId, id -> {
+            Contest contest = contestDAO.findById(id)
+                    .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
+            return new ContestDTO(contest, true, true, true,
+                    false, true, true);
+        });
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.bjfu.contest.service.impl;
 
+import com.bjfu.contest.cache.ContestCache;
 import com.bjfu.contest.dao.ContestDAO;
 import com.bjfu.contest.dao.ContestGroupDAO;
 import com.bjfu.contest.dao.ContestTeacherDAO;
@@ -38,6 +39,8 @@ public class ContestTeacherServiceImpl implements ContestTeacherService {
     private ContestTeacherDAO contestTeacherDAO;
     @Autowired
     private ContestGroupDAO contestGroupDAO;
+    @Autowired
+    private ContestCache contestCache;
 
     @Override
     @Transactional
@@ -71,6 +74,7 @@ public class ContestTeacherServiceImpl implements ContestTeacherService {
         }).collect(Collectors.toList());
         //保存竞赛教师关系
         contestTeachers = contestTeacherDAO.insertAll(contestTeachers);
+        contestCache.invalidate(contest.getId());
         return contestTeachers.stream()
                 .map(contestTeacher -> new UserDTO(contestTeacher.getTeacher()))
                 .collect(Collectors.toList());
@@ -90,6 +94,7 @@ public class ContestTeacherServiceImpl implements ContestTeacherService {
             throw new BizException(ResultEnum.NOT_CONTEST_CREATOR);
         }
         contestTeacherDAO.delete(contestTeacher);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
@@ -124,6 +129,7 @@ public class ContestTeacherServiceImpl implements ContestTeacherService {
                 .orElseThrow(() -> new BizException(ResultEnum.TEACHER_NOT_REGISTERED));
         group.setTeacher(teacher);
         contestGroupDAO.update(group);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
@@ -154,6 +160,7 @@ public class ContestTeacherServiceImpl implements ContestTeacherService {
         // 删除指导教师
         group.setTeacher(null);
         contestGroupDAO.update(group);
+        contestCache.invalidate(contest.getId());
     }
 
     @Override
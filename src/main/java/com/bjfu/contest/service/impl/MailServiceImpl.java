@@ -0,0 +1,57 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.dao.MailOutboxDAO;
+import com.bjfu.contest.pojo.entity.MailOutbox;
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.entity.UserInbox;
+import com.bjfu.contest.service.MailService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class MailServiceImpl implements MailService {
+
+    @Autowired
+    private MailOutboxDAO mailOutboxDAO;
+
+    @Value("${mail.link.activate-url:http://localhost:8000/user/activate?token=}")
+    private String activateUrl;
+    @Value("${mail.link.reset-password-url:http://localhost:8000/user/resetPassword?token=}")
+    private String resetPasswordUrl;
+
+    @Override
+    public void sendActivateMail(User user, String token) {
+        String content = user.getName() + "，您好：\n" +
+                "请在7天内打开以下链接激活您的竞赛系统账号 " + user.getAccount() + "：\n" +
+                activateUrl + token;
+        mailOutboxDAO.insert(user.getEmail(), "竞赛系统账号激活", content, null);
+    }
+
+    @Override
+    public void sendResetPasswordMail(User user, String token) {
+        String content = user.getName() + "，您好：\n" +
+                "请打开以下链接重置您的竞赛系统账号 " + user.getAccount() + " 的密码 如非本人操作请忽略：\n" +
+                resetPasswordUrl + token;
+        mailOutboxDAO.insert(user.getEmail(), "竞赛系统密码重置", content, null);
+    }
+
+    @Override
+    public void sendNotifyMails(Notify notify, List<UserInbox> inboxes) {
+        List<MailOutbox> mails = inboxes.stream()
+                .map(inbox -> {
+                    MailOutbox mail = new MailOutbox();
+                    mail.setToAddress(inbox.getUser().getEmail());
+                    mail.setSubject(notify.getTitle());
+                    mail.setContent(notify.getContent());
+                    mail.setInboxId(inbox.getId());
+                    return mail;
+                })
+                .collect(Collectors.toList());
+        mailOutboxDAO.insertAll(mails);
+    }
+}
@@ -2,14 +2,28 @@ package com.bjfu.contest.service.impl;
 
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.pojo.dto.OssObjectStatDTO;
 import com.bjfu.contest.service.OssService;
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 基于开源的minio的oss实现类
@@ -27,19 +41,42 @@ public class MinioOssServiceImpl implements OssService {
      * 默认下载文件URL过期时间(秒) 7天
      */
     public static final Integer DEFAULT_GET_OBJECT_EXPIRES = 60 * 60 * 24 * 7;
+    /**
+     * 分片上传的最大分片数
+     */
+    private static final long MAX_MULTIPART_COUNT = 10000;
+    /**
+     * 对象不存在时的错误码
+     */
+    private static final String NO_SUCH_KEY = "NoSuchKey";
 
     @Autowired
     private MinioClient minioClient;
 
+    /**
+     * 分片大小(字节) 上传时每次只在内存中缓存一个分片 不能小于5MB
+     */
+    @Value("${oss.upload.part-size:10485760}")
+    private Long partSize;
+
     @Override
     public void putObject(String bucketName, String objectName, InputStream stream) {
+        putObject(bucketName, objectName, stream, -1, null);
+    }
+
+    @Override
+    public void putObject(String bucketName, String objectName, InputStream stream, long size, String contentType) {
         try{
-            PutObjectArgs putObjectArgs = PutObjectArgs.builder()
+            // 大小已知时分片数超过上限则由客户端按文件大小计算分片大小
+            long objectPartSize = size >= 0 && size > partSize * MAX_MULTIPART_COUNT ? -1 : partSize;
+            PutObjectArgs.Builder builder = PutObjectArgs.builder()
                     .bucket(bucketName)
                     .object(objectName)
-                    .stream(stream, stream.available(), -1)
-                    .build();
-            minioClient.putObject(putObjectArgs);
+                    .stream(stream, size, objectPartSize);
+            if(contentType != null) {
+                builder.contentType(contentType);
+            }
+            minioClient.putObject(builder.build());
         } catch (Exception exception) {
             log.error("文件上传失败：", exception);
             throw new OssException(ResultEnum.FILE_UPLOAD_FAILED);
@@ -60,6 +97,67 @@ public class MinioOssServiceImpl implements OssService {
         }
     }
 
+    @Override
+    public InputStream getObject(String bucketName, String objectName, long offset, long length) {
+        try {
+            GetObjectArgs getObjectArgs = GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .offset(offset)
+                    .length(length)
+                    .build();
+            return minioClient.getObject(getObjectArgs);
+        } catch (Exception exception) {
+            log.error("文件下载失败：", exception);
+            throw new OssException(ResultEnum.FILE_DOWNLOAD_FAILED);
+        }
+    }
+
+    @Override
+    public Optional<Path> getLocalFile(String bucketName, String objectName) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<OssObjectStatDTO> statObject(String bucketName, String objectName) {
+        try {
+            StatObjectArgs statObjectArgs = StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .build();
+            StatObjectResponse response = minioClient.statObject(statObjectArgs);
+            return Optional.of(new OssObjectStatDTO(response.size(), response.etag()));
+        } catch (ErrorResponseException exception) {
+            if(NO_SUCH_KEY.equals(exception.errorResponse().code())) {
+                return Optional.empty();
+            }
+            log.error("获取文件信息失败：", exception);
+            throw new OssException(ResultEnum.FILE_STAT_FAILED);
+        } catch (Exception exception) {
+            log.error("获取文件信息失败：", exception);
+            throw new OssException(ResultEnum.FILE_STAT_FAILED);
+        }
+    }
+
+    @Override
+    public String copyObject(String bucketName, String sourceObjectName, String objectName, String sourceEtag) {
+        try {
+            CopyObjectArgs copyObjectArgs = CopyObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .source(CopySource.builder()
+                            .bucket(bucketName)
+                            .object(sourceObjectName)
+                            .matchETag(sourceEtag)
+                            .build())
+                    .build();
+            return minioClient.copyObject(copyObjectArgs).etag();
+        } catch (Exception exception) {
+            log.error("文件复制失败：", exception);
+            throw new OssException(ResultEnum.FILE_COPY_FAILED);
+        }
+    }
+
     @Override
     public void deleteObject(String bucketName, String objectName) {
         try {
@@ -74,6 +172,32 @@ public class MinioOssServiceImpl implements OssService {
         }
     }
 
+    @Override
+    public Set<String> deleteObjects(String bucketName, Collection<String> objectNames) {
+        List<DeleteObject> objects = objectNames.stream()
+                .map(DeleteObject::new)
+                .collect(Collectors.toList());
+        RemoveObjectsArgs removeObjectsArgs = RemoveObjectsArgs.builder()
+                .bucket(bucketName)
+                .objects(objects)
+                .build();
+        Set<String> failedObjectNames = new HashSet<>();
+        try {
+            // 结果是惰性的 遍历时才发送删除请求 只返回删除失败的对象
+            for(Result<DeleteError> result : minioClient.removeObjects(removeObjectsArgs)) {
+                DeleteError error = result.get();
+                if(!NO_SUCH_KEY.equals(error.code())) {
+                    log.error("文件删除失败：{} {}", error.objectName(), error.message());
+                    failedObjectNames.add(error.objectName());
+                }
+            }
+        } catch (Exception exception) {
+            log.error("文件删除失败：", exception);
+            throw new OssException(ResultEnum.FILE_DELETE_FAILED);
+        }
+        return failedObjectNames;
+    }
+
     @Override
     public String preSignedPutObject(String bucketName, String objectName) {
         return preSignedPutObject(bucketName, objectName, DEFAULT_PUT_OBJECT_EXPIRES);
@@ -115,4 +239,13 @@ public class MinioOssServiceImpl implements OssService {
             throw new OssException(ResultEnum.FILE_DOWNLOAD_FAILED);
         }
     }
+
+    @Override
+    public Map<String, String> preSignedGetObjects(String bucketName, Collection<String> objectNames, Integer expires) {
+        // 签名只在本地计算 数量较多时并行签名
+        return objectNames.parallelStream()
+                .distinct()
+                .collect(Collectors.toMap(Function.identity(),
+                        objectName -> preSignedGetObject(bucketName, objectName, expires)));
+    }
 }
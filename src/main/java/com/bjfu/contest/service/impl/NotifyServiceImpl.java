@@ -0,0 +1,239 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.UnreadCountCache;
+import com.bjfu.contest.dao.*;
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import com.bjfu.contest.enums.PushEventTypeEnum;
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.pojo.KeysetPage;
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.dto.UserInboxDTO;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.pojo.request.notify.NotifyListInboxRequest;
+import com.bjfu.contest.pojo.request.notify.NotifyPublishRequest;
+import com.bjfu.contest.pojo.vo.NotifyVO;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.service.NotifyService;
+import com.bjfu.contest.task.NotifyFanOutTask;
+import com.bjfu.contest.utils.TransactionUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class NotifyServiceImpl implements NotifyService {
+
+    @Autowired
+    private UserDAO userDAO;
+    @Autowired
+    private ContestDAO contestDAO;
+    @Autowired
+    private ContestProcessDAO contestProcessDAO;
+    @Autowired
+    private ContestGroupDAO contestGroupDAO;
+    @Autowired
+    private NotifyDAO notifyDAO;
+    @Autowired
+    private UserInboxDAO userInboxDAO;
+    @Autowired
+    private NotifyFanOutTask notifyFanOutTask;
+    @Autowired
+    private UnreadCountCache unreadCountCache;
+    @Autowired
+    private PushTopicRegistry pushTopicRegistry;
+
+    @Override
+    @Transactional
+    public NotifyDTO publish(NotifyPublishRequest request, String account) {
+        User author = userDAO.findActiveUserByAccount(account)
+                .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
+        checkPermission(request, author);
+        Notify notify = new Notify();
+        notify.setTitle(request.getTitle());
+        notify.setContent(request.getContent());
+        notify.setType(request.getType());
+        notify.setTargetId(request.getTargetId());
+        notify.setIsSendEmail(request.getIsSendEmail());
+        notify.setAuthor(author);
+        notifyDAO.insert(notify);
+        if(notify.getType().isBroadcast()) {
+            unreadCountCache.incrementBroadcast(notify.getType());
+            pushTopicRegistry.publishBroadcast(notify.getType(), PushEventTypeEnum.NOTIFY,
+                    new NotifyVO(new NotifyDTO(notify, false)));
+        } else {
+            Long notifyId = notify.getId();
+            TransactionUtil.afterCommit(() -> notifyFanOutTask.submit(notifyId));
+        }
+        return new NotifyDTO(notify, true);
+    }
+
+    @Override
+    public Page<UserInboxDTO> listInbox(NotifyListInboxRequest request, String account) {
+        User user = userDAO.findActiveUserByAccount(account)
+                .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
+        Long beforeNotifyId = decodeCursor(request.getCursor());
+        int pageSize = request.getPageSize();
+        Date readTime = broadcastReadTime(user);
+        // 两个来源各多查一条 按通知id(即发布先后)倒序归并 用来判断是否存在下一页
+        List<UserInboxDTO> inboxes = userInboxDAO.findAllByUserIdBefore(user.getId(), beforeNotifyId, pageSize + 1)
+                .stream()
+                .map(inbox -> {
+                    UserInboxDTO userInboxDTO = new UserInboxDTO(inbox, false, true);
+                    userInboxDTO.setIsRead(inbox.getIsRead() || isBroadcastRead(inbox.getNotify(), readTime));
+                    return userInboxDTO;
+                })
+                .collect(Collectors.toList());
+        List<UserInboxDTO> broadcasts = notifyDAO.findAllBroadcastsWithoutInbox(NotifyTypeEnum.broadcastTypesOf(user.getType()), user.getId(),
+                        beforeNotifyId, pageSize + 1)
+                .stream()
+                .map(notify -> {
+                    UserInboxDTO userInboxDTO = new UserInboxDTO();
+                    userInboxDTO.setNotify(new NotifyDTO(notify, true));
+                    userInboxDTO.setIsRead(isBroadcastRead(notify, readTime));
+                    return userInboxDTO;
+                })
+                .collect(Collectors.toList());
+        List<UserInboxDTO> rows = new ArrayList<>(inboxes.size() + broadcasts.size());
+        rows.addAll(inboxes);
+        rows.addAll(broadcasts);
+        rows.sort(Comparator.comparing((UserInboxDTO userInboxDTO) -> userInboxDTO.getNotify().getId()).reversed());
+        boolean hasNext = rows.size() > pageSize;
+        List<UserInboxDTO> content = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasNext ? String.valueOf(content.get(content.size() - 1).getNotify().getId()) : null;
+        return new KeysetPage<>(content, PageRequest.of(0, pageSize), content.size() + (hasNext ? 1 : 0), nextCursor);
+    }
+
+    @Override
+    @Transactional
+    public void read(Long notifyId, String account) {
+        User user = userDAO.findActiveUserByAccount(account)
+                .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
+        Optional<UserInbox> inboxOptional = userInboxDAO.findByUserIdAndNotifyId(user.getId(), notifyId);
+        if(inboxOptional.isPresent()) {
+            UserInbox inbox = inboxOptional.get();
+            if(!inbox.getIsRead()) {
+                inbox.setIsRead(true);
+                unreadCountCache.decrement(user.getId());
+            }
+            return;
+        }
+        // 没有收件箱的只可能是发给该用户的广播通知 水位之后的在此时写入一条已读的收件箱
+        Notify notify = notifyDAO.findById(notifyId)
+                .filter(found -> NotifyTypeEnum.broadcastTypesOf(user.getType()).contains(found.getType()))
+                .orElseThrow(() -> new BizException(ResultEnum.NOTIFY_NOT_EXIST));
+        if(isBroadcastRead(notify, broadcastReadTime(user))) {
+            return;
+        }
+        UserInbox inbox = new UserInbox();
+        inbox.setUser(user);
+        inbox.setNotify(notify);
+        inbox.setIsRead(true);
+        userInboxDAO.insert(inbox);
+        unreadCountCache.decrement(user.getId());
+    }
+
+    @Override
+    @Transactional
+    public void readAll(String account) {
+        User user = userDAO.findActiveUserByAccount(account)
+                .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
+        userInboxDAO.markAllRead(user.getId());
+        userDAO.updateNotifyReadTime(user.getId(), new Date());
+        unreadCountCache.reset(user.getId());
+    }
+
+    @Override
+    public long countUnread(Long userId) {
+        return unreadCountCache.get(userId, id -> {
+            User user = userDAO.findById(id)
+                    .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
+            // 收件箱中未读的定向通知 加上水位之后尚未单独标记已读的广播
+            long count = userInboxDAO.countUnreadByUserId(id) + notifyDAO.countBroadcastsWithoutInboxAfter(
+                    NotifyTypeEnum.broadcastTypesOf(user.getType()), id, broadcastReadTime(user));
+            return new UnreadCountCache.Counter(user.getType(), count);
+        });
+    }
+
+    private Long decodeCursor(String cursor) {
+        if(cursor == null || cursor.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new BizException(ResultEnum.WRONG_REQUEST_PARAMS);
+        }
+    }
+
+    /**
+     * 广播通知的已读水位 未设置时注册之前发布的广播视为已读
+     */
+    private Date broadcastReadTime(User user) {
+        return Optional.ofNullable(user.getNotifyReadTime())
+                .orElse(Optional.ofNullable(user.getCreatedTime()).orElse(new Date(0)));
+    }
+
+    private boolean isBroadcastRead(Notify notify, Date readTime) {
+        return notify.getType().isBroadcast() && !notify.getCreatedTime().after(readTime);
+    }
+
+    /**
+     * 全站通知仅管理员可发布 竞赛及流程内通知仅竞赛创建人可发布 队伍内通知另外允许队长及指导教师发布
+     */
+    private void checkPermission(NotifyPublishRequest request, User author) {
+        switch (request.getType()) {
+            case ALL_NOTIFY:
+            case USERS_NOTIFY:
+            case STUDENTS_NOTIFY:
+            case TEACHERS_NOTIFY:
+                if(!author.getType().equals(UserTypeEnum.ADMIN)) {
+                    throw new BizException(ResultEnum.NO_PERMISSION);
+                }
+                return;
+            case CONTEST_NOTIFY: {
+                Contest contest = contestDAO.findById(requireTargetId(request))
+                        .orElseThrow(() -> new BizException(ResultEnum.CONTEST_NOT_EXIST));
+                checkContestCreator(contest, author);
+                return;
+            }
+            case CONTEST_PROCESS_NOTIFY: {
+                ContestProcess process = contestProcessDAO.findById(requireTargetId(request))
+                        .orElseThrow(() -> new BizException(ResultEnum.PROCESS_NOT_EXIST));
+                checkContestCreator(process.getContest(), author);
+                return;
+            }
+            case GROUP_NOTIFY: {
+                ContestGroup group = contestGroupDAO.findById(requireTargetId(request))
+                        .orElseThrow(() -> new BizException(ResultEnum.GROUP_NOT_EXIST));
+                boolean isCaptain = group.getCaptain() != null && group.getCaptain().getId().equals(author.getId());
+                boolean isTeacher = Optional.ofNullable(group.getTeacher())
+                        .map(teacher -> teacher.getId().equals(author.getId()))
+                        .orElse(false);
+                if(!isCaptain && !isTeacher) {
+                    checkContestCreator(group.getContest(), author);
+                }
+                return;
+            }
+            default:
+                throw new BizException(ResultEnum.WRONG_REQUEST_PARAMS);
+        }
+    }
+
+    private Long requireTargetId(NotifyPublishRequest request) {
+        return Optional.ofNullable(request.getTargetId())
+                .orElseThrow(() -> new BizException(ResultEnum.WRONG_REQUEST_PARAMS));
+    }
+
+    private void checkContestCreator(Contest contest, User author) {
+        if(!contest.getCreator().getId().equals(author.getId())) {
+            throw new BizException(ResultEnum.NO_PERMISSION);
+        }
+    }
+}
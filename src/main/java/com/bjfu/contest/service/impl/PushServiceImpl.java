@@ -0,0 +1,39 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.dao.ContestGroupDAO;
+import com.bjfu.contest.dao.ContestRegisterDAO;
+import com.bjfu.contest.dao.ContestTeacherDAO;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.service.PushService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class PushServiceImpl implements PushService {
+
+    @Autowired
+    private ContestRegisterDAO contestRegisterDAO;
+    @Autowired
+    private ContestTeacherDAO contestTeacherDAO;
+    @Autowired
+    private ContestGroupDAO contestGroupDAO;
+    @Autowired
+    private PushTopicRegistry pushTopicRegistry;
+
+    @Override
+    public SseEmitter subscribe(Long userId, UserTypeEnum userType) {
+        // 只查询id 不加载实体
+        Set<Long> contestIds = new HashSet<>(contestRegisterDAO.findAllContestIdsByUserId(userId));
+        if(UserTypeEnum.TEACHER.equals(userType)) {
+            contestIds.addAll(contestTeacherDAO.findAllContestIdsByTeacherId(userId));
+        }
+        List<Long> groupIds = contestGroupDAO.findAllIdsByMemberUserId(userId);
+        return pushTopicRegistry.connect(userId, userType, contestIds, groupIds);
+    }
+}
@@ -1,27 +1,52 @@
 package com.bjfu.contest.service.impl;
 
+import com.bjfu.contest.cache.PresignedUrlCache;
 import com.bjfu.contest.config.MinioConfig;
+import com.bjfu.contest.dao.OssDeleteOutboxDAO;
 import com.bjfu.contest.dao.ResourceDAO;
 import com.bjfu.contest.dao.UserDAO;
 import com.bjfu.contest.enums.ResourceOperateTypeEnum;
+import com.bjfu.contest.enums.ResourceStatusEnum;
 import com.bjfu.contest.enums.ResourceTypeEnum;
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.pojo.dto.OssObjectStatDTO;
 import com.bjfu.contest.pojo.dto.ResourceDTO;
 import com.bjfu.contest.pojo.dto.ResourceDownloadInfoDTO;
+import com.bjfu.contest.pojo.dto.ResourceFileDTO;
+import com.bjfu.contest.pojo.dto.ResourceUploadInfoDTO;
 import com.bjfu.contest.pojo.entity.Resource;
+import com.bjfu.contest.pojo.entity.ResourceObject;
 import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.request.resource.ResourceConfirmUploadRequest;
 import com.bjfu.contest.pojo.request.resource.ResourceEditRequest;
+import com.bjfu.contest.pojo.request.resource.ResourcePresignedUploadRequest;
+import com.bjfu.contest.pojo.request.resource.ResourceStreamUploadRequest;
 import com.bjfu.contest.pojo.request.resource.ResourceUploadRequest;
 import com.bjfu.contest.service.OssService;
 import com.bjfu.contest.service.ResourceService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import javax.transaction.Transactional;
 import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -35,23 +60,155 @@ public class ResourceServiceImpl implements ResourceService {
     private UserDAO userDAO;
     @Autowired
     private ResourceDAO resourceDAO;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PresignedUrlCache presignedUrlCache;
+    @Autowired
+    private OssDeleteOutboxDAO ossDeleteOutboxDAO;
+
+    /**
+     * 上传链接过期后保留等待上传资源的时间(秒)
+     */
+    private static final long PENDING_GRACE_SECONDS = 60 * 60;
+    private static final int SAVE_OBJECT_MAX_ATTEMPTS = 2;
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 直传oss上传链接的有效期(秒)
+     */
+    @Value("${oss.upload.presigned-expires:3600}")
+    private Integer presignedUploadExpires;
+    /**
+     * 单个文件的大小上限(字节)
+     */
+    @Value("${oss.upload.max-bytes:536870912}")
+    private Long maxUploadBytes;
 
     @Override
-    @Transactional
     public ResourceDTO upload(ResourceUploadRequest request, String account) {
+        MultipartFile file = request.getFile();
+        try (InputStream stream = file.getInputStream()) {
+            return upload(request, stream, file.getSize(), file.getContentType(), account);
+        } catch (IOException e) {
+            log.error("获取文件上传流失败", e);
+            throw new BizException(ResultEnum.GET_FILE_INPUT_STREAM_FAILED);
+        }
+    }
+
+    @Override
+    public ResourceDTO upload(ResourceStreamUploadRequest request, InputStream stream, long size,
+                              String mimeType, String account) {
+        // 声明的大小超过上限时不读取内容
+        if(size > maxUploadBytes) {
+            throw new BizException(ResultEnum.FILE_TOO_LARGE);
+        }
         // 获取用户信息并鉴权
         User creator = userDAO.findByAccount(account)
                 .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
         checkAuth(request.getType(), request.getTargetId(), ResourceOperateTypeEnum.UPLOAD, account);
-        // 上传oss
+        Resource resource = new Resource();
+        resource.setCreator(creator);
+        resource.setTargetId(request.getTargetId());
+        resource.setFileName(request.getFileName());
+        resource.setType(request.getType());
+        resource.setContentType(request.getContentType());
+        resource.setClassification(request.getClassification());
+        resource.setStatus(ResourceStatusEnum.AVAILABLE);
+        String declaredHash = Optional.ofNullable(request.getSha256())
+                .map(hash -> hash.toLowerCase(Locale.ROOT))
+                .orElse(null);
+        // 分块传输时大小未知 读取时限制大小
+        HashingInputStream hashingStream = new HashingInputStream(stream, maxUploadBytes);
+        // 声明的内容已存在时只读取并校验内容 不再写入oss
+        Optional<ResourceObject> existObject = Optional.ofNullable(declaredHash)
+                .flatMap(resourceDAO::findObjectByContentHash);
+        if(existObject.isPresent()) {
+            hashingStream.drain();
+            if(!declaredHash.equals(hashingStream.getHash())) {
+                throw new BizException(ResultEnum.FILE_VERIFY_FAILED);
+            }
+            resource.setSize(hashingStream.getCount());
+            resource.setContentHash(declaredHash);
+            resource.setContent(existObject.get().getObjectName());
+            transactionTemplate.executeWithoutResult(status -> {
+                // 文件在校验期间被删除
+                if(!resourceDAO.increaseObjectRefCount(declaredHash)) {
+                    throw new BizException(ResultEnum.CONCURRENT_CONFLICT);
+                }
+                resourceDAO.insert(resource);
+            });
+            return new ResourceDTO(resource, true);
+        }
+        // 上传oss的同时计算内容哈希 上传耗时较长 不在事务中进行以免一直占用数据库连接
         String objectName = UUID.randomUUID().toString();
         try {
-            ossService.putObject(MinioConfig.FILE_BUCKET_NAME, objectName, request.getFile().getInputStream());
-        } catch (IOException e) {
-            log.error("获取文件上传流失败", e);
-            throw new BizException(ResultEnum.GET_FILE_INPUT_STREAM_FAILED);
+            ossService.putObject(MinioConfig.FILE_BUCKET_NAME, objectName, hashingStream, size, mimeType);
+        } catch (OssException exception) {
+            if(hashingStream.isExceeded()) {
+                throw new BizException(ResultEnum.FILE_TOO_LARGE);
+            }
+            throw exception;
+        }
+        resource.setSize(hashingStream.getCount());
+        resource.setContentHash(hashingStream.getHash());
+        try {
+            if(declaredHash != null && !declaredHash.equals(resource.getContentHash())) {
+                throw new BizException(ResultEnum.FILE_VERIFY_FAILED);
+            }
+            saveWithObject(resource, objectName);
+        } catch (RuntimeException exception) {
+            // 资源信息保存失败时删除已上传的文件
+            try {
+                ossService.deleteObject(MinioConfig.FILE_BUCKET_NAME, objectName);
+            } catch (OssException deleteException) {
+                log.error("清理未保存资源的文件失败: {}", objectName, deleteException);
+            }
+            throw exception;
+        }
+        return new ResourceDTO(resource, true);
+    }
+
+    /**
+     * 保存资源 已有相同内容的文件时引用已有文件 并删除刚上传的文件
+     * 并发上传相同内容时唯一约束冲突 重试后即可引用对方的文件
+     */
+    private void saveWithObject(Resource resource, String uploadedObjectName) {
+        String contentHash = resource.getContentHash();
+        for(int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Optional<ResourceObject> existObject = resourceDAO.findObjectByContentHash(contentHash);
+                    if(existObject.isPresent() && resourceDAO.increaseObjectRefCount(contentHash)) {
+                        resource.setContent(existObject.get().getObjectName());
+                        ossDeleteOutboxDAO.insert(MinioConfig.FILE_BUCKET_NAME, uploadedObjectName);
+                    } else {
+                        resourceDAO.insertObject(contentHash, uploadedObjectName, resource.getSize());
+                        resource.setContent(uploadedObjectName);
+                    }
+                    resourceDAO.insert(resource);
+                });
+                return;
+            } catch (DataIntegrityViolationException exception) {
+                if(attempt >= SAVE_OBJECT_MAX_ATTEMPTS) {
+                    throw exception;
+                }
+            }
         }
-        // 保存资源信息
+    }
+
+    @Override
+    @Transactional
+    public ResourceUploadInfoDTO requestUpload(ResourcePresignedUploadRequest request, String account) {
+        // 获取用户信息并鉴权
+        User creator = userDAO.findByAccount(account)
+                .orElseThrow(() -> new BizException(ResultEnum.USER_DONT_EXIST));
+        checkAuth(request.getType(), request.getTargetId(), ResourceOperateTypeEnum.UPLOAD, account);
+        if(request.getSize() > maxUploadBytes) {
+            throw new BizException(ResultEnum.FILE_TOO_LARGE);
+        }
+        // 先记录等待上传的资源 文件由客户端直接上传至oss
+        String objectName = UUID.randomUUID().toString();
         Resource resource = new Resource();
         resource.setCreator(creator);
         resource.setTargetId(request.getTargetId());
@@ -60,8 +217,64 @@ public class ResourceServiceImpl implements ResourceService {
         resource.setContentType(request.getContentType());
         resource.setClassification(request.getClassification());
         resource.setContent(objectName);
+        resource.setStatus(ResourceStatusEnum.PENDING);
+        resource.setSize(request.getSize());
         resourceDAO.insert(resource);
-        return new ResourceDTO(resource, true);
+        // 生成上传url
+        String url = ossService.preSignedPutObject(MinioConfig.FILE_BUCKET_NAME, objectName, presignedUploadExpires);
+        return new ResourceUploadInfoDTO(resource, url);
+    }
+
+    @Override
+    public ResourceDTO confirmUpload(ResourceConfirmUploadRequest request, String account) {
+        // 查找Resource 只有创建人可以确认
+        Resource resource = resourceDAO.findById(request.getResourceId())
+                .orElseThrow(() -> new BizException(ResultEnum.RESOURCE_NOT_EXIST));
+        if(!resource.getCreator().getAccount().equals(account)) {
+            throw new BizException(ResultEnum.NOT_RESOURCE_CREATOR);
+        }
+        if(resource.getStatus() != ResourceStatusEnum.PENDING) {
+            throw new BizException(ResultEnum.RESOURCE_NOT_PENDING);
+        }
+        // 校验oss中的文件与申请时声明的大小及客户端收到的etag一致
+        OssObjectStatDTO stat = ossService.statObject(MinioConfig.FILE_BUCKET_NAME, resource.getContent())
+                .orElseThrow(() -> new BizException(ResultEnum.FILE_NOT_UPLOADED));
+        String etag = stripQuotes(stat.getEtag());
+        if(!stat.getSize().equals(resource.getSize())
+                || (request.getEtag() != null && !stripQuotes(request.getEtag()).equals(etag))) {
+            throw new BizException(ResultEnum.FILE_VERIFY_FAILED);
+        }
+        // 上传链接过期前仍可覆盖上传的文件 复制为不签发上传链接的文件后再使用 只复制校验过的版本
+        String uploadObjectName = resource.getContent();
+        String objectName = UUID.randomUUID().toString();
+        String copyEtag = stripQuotes(ossService.copyObject(MinioConfig.FILE_BUCKET_NAME,
+                uploadObjectName, objectName, stat.getEtag()));
+        // 上传链接过期后再删除上传的文件 过期前删除仍可能被重新上传
+        Date uploadExpiredTime = new Date(resource.getCreatedTime().getTime() + presignedUploadExpires * 1000L);
+        try {
+            Resource confirmed = transactionTemplate.execute(status -> {
+                // 加锁确认 并发确认时只有一个成功
+                Resource lockedResource = resourceDAO.findByIdForUpdate(resource.getId())
+                        .orElseThrow(() -> new BizException(ResultEnum.RESOURCE_NOT_EXIST));
+                if(lockedResource.getStatus() != ResourceStatusEnum.PENDING) {
+                    throw new BizException(ResultEnum.RESOURCE_NOT_PENDING);
+                }
+                lockedResource.setContent(objectName);
+                lockedResource.setEtag(copyEtag);
+                lockedResource.setStatus(ResourceStatusEnum.AVAILABLE);
+                ossDeleteOutboxDAO.insert(MinioConfig.FILE_BUCKET_NAME, uploadObjectName, uploadExpiredTime);
+                return resourceDAO.update(lockedResource);
+            });
+            return new ResourceDTO(confirmed, true);
+        } catch (RuntimeException exception) {
+            // 确认失败时删除复制出的文件
+            try {
+                ossService.deleteObject(MinioConfig.FILE_BUCKET_NAME, objectName);
+            } catch (OssException deleteException) {
+                log.error("清理未确认资源的文件失败: {}", objectName, deleteException);
+            }
+            throw exception;
+        }
     }
 
     @Override
@@ -84,36 +297,178 @@ public class ResourceServiceImpl implements ResourceService {
         Resource resource = resourceDAO.findById(resourceId)
                 .orElseThrow(() -> new BizException(ResultEnum.RESOURCE_NOT_EXIST));
         checkAuth(resource.getType(), resource.getTargetId(), ResourceOperateTypeEnum.DELETE, account);
-        // 删除oss中的文件
-        ossService.deleteObject(MinioConfig.FILE_BUCKET_NAME, resource.getContent());
+        // 最后一个引用删除时才删除文件 记录待删除的oss文件 事务提交后由后台任务删除
+        if(resource.getContentHash() == null || resourceDAO.releaseObject(resource.getContentHash())) {
+            ossDeleteOutboxDAO.insert(MinioConfig.FILE_BUCKET_NAME, resource.getContent());
+            presignedUrlCache.invalidate(resource.getContent());
+        }
         // 删除Resource记录
         resourceDAO.delete(resource);
     }
 
+    @Override
+    @Transactional
+    public int deleteExpiredPending(Integer limit) {
+        // 上传链接过期后不可能再上传 多留一段时间给正在进行的上传
+        Date expiredTime = new Date(System.currentTimeMillis() - (presignedUploadExpires + PENDING_GRACE_SECONDS) * 1000L);
+        List<Resource> resources = resourceDAO.findAllPendingCreatedBefore(expiredTime, limit);
+        // 客户端可能已上传部分文件 同样需要删除
+        resources.forEach(resource -> ossDeleteOutboxDAO.insert(MinioConfig.FILE_BUCKET_NAME, resource.getContent()));
+        resourceDAO.deleteAll(resources);
+        return resources.size();
+    }
+
     @Override
     public ResourceDownloadInfoDTO getDownloadInfo(Long resourceId, String account) {
         // 查找Resource
         Resource resource = resourceDAO.findById(resourceId)
                 .orElseThrow(() -> new BizException(ResultEnum.RESOURCE_NOT_EXIST));
+        if(resource.getStatus() != ResourceStatusEnum.AVAILABLE) {
+            throw new BizException(ResultEnum.RESOURCE_NOT_EXIST);
+        }
         checkAuth(resource.getType(), resource.getTargetId(), ResourceOperateTypeEnum.DOWNLOAD, account);
         // 生成下载url
-        String url = ossService.preSignedGetObject(MinioConfig.FILE_BUCKET_NAME, resource.getContent());
+        String url = presignedUrlCache.get(resource.getContent(), objectName ->
+                ossService.preSignedGetObject(MinioConfig.FILE_BUCKET_NAME, objectName, presignedUrlCache.getUrlExpireSeconds()));
         return new ResourceDownloadInfoDTO(resource, url);
     }
 
+    @Override
+    public ResourceFileDTO getFile(Long resourceId, String account) {
+        // 查找Resource并鉴权
+        Resource resource = resourceDAO.findById(resourceId)
+                .orElseThrow(() -> new BizException(ResultEnum.RESOURCE_NOT_EXIST));
+        if(resource.getStatus() != ResourceStatusEnum.AVAILABLE) {
+            throw new BizException(ResultEnum.RESOURCE_NOT_EXIST);
+        }
+        checkAuth(resource.getType(), resource.getTargetId(), ResourceOperateTypeEnum.DOWNLOAD, account);
+        // 早期上传的资源没有记录大小
+        Long size = Optional.ofNullable(resource.getSize())
+                .orElseGet(() -> ossService.statObject(MinioConfig.FILE_BUCKET_NAME, resource.getContent())
+                        .map(OssObjectStatDTO::getSize)
+                        .orElseThrow(() -> new BizException(ResultEnum.FILE_DOWNLOAD_FAILED)));
+        Path localFile = ossService.getLocalFile(MinioConfig.FILE_BUCKET_NAME, resource.getContent())
+                .orElse(null);
+        return new ResourceFileDTO(resource.getFileName(), resource.getContent(), size, localFile);
+    }
+
+    @Override
+    public InputStream getFileStream(ResourceFileDTO file, long offset, long length) {
+        return ossService.getObject(MinioConfig.FILE_BUCKET_NAME, file.getObjectName(), offset, length);
+    }
+
     @Override
     public List<ResourceDTO> listAllByTarget(ResourceTypeEnum type, Long targetId, String account) {
         checkAuth(type, targetId, ResourceOperateTypeEnum.LIST, account);
         // 获取实体下的所有资源
-        List<Resource> resources = resourceDAO.findAllByTypeAndTargetId(type, targetId);
-        // 按照分类进行分组
+        List<Resource> resources = resourceDAO.findAllAvailableByTypeAndTargetId(type, targetId);
+        // 批量生成下载url 缓存中没有的一次性签名
+        Map<String, String> urls = presignedUrlCache.getAll(
+                resources.stream().map(Resource::getContent).collect(Collectors.toList()),
+                objectNames -> ossService.preSignedGetObjects(MinioConfig.FILE_BUCKET_NAME, objectNames,
+                        presignedUrlCache.getUrlExpireSeconds()));
         return resources.stream()
-                .map(resource -> new ResourceDTO(resource, true))
+                .map(resource -> {
+                    ResourceDTO resourceDTO = new ResourceDTO(resource, true);
+                    resourceDTO.setUrl(urls.get(resource.getContent()));
+                    return resourceDTO;
+                })
                 .collect(Collectors.toList());
     }
 
+    private static String stripQuotes(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+
     void checkAuth(ResourceTypeEnum type, Long targetId, ResourceOperateTypeEnum operateType, String account) {
         // todo 鉴权逻辑
     }
 
+
+    /**
+     * 读取时计算sha256及字节数的输入流
+     */
+    private static class HashingInputStream extends DigestInputStream {
+
+        private final long limit;
+        private long count;
+        private boolean exceeded;
+
+        /**
+         * @param stream 上传流
+         * @param limit 最多读取的字节数 超过时读取失败
+         */
+        HashingInputStream(InputStream stream, long limit) {
+            super(stream, newSha256());
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if(read != -1) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if(read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            count += read;
+            if(count > limit) {
+                exceeded = true;
+                throw new IOException("文件大小超过上限");
+            }
+        }
+
+        /**
+         * 读完剩余内容
+         */
+        void drain() {
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            try {
+                while(read(buffer, 0, buffer.length) != -1) {
+                    // 只计算哈希
+                }
+            } catch (IOException exception) {
+                if(exceeded) {
+                    throw new BizException(ResultEnum.FILE_TOO_LARGE);
+                }
+                log.error("读取文件上传流失败", exception);
+                throw new BizException(ResultEnum.GET_FILE_INPUT_STREAM_FAILED);
+            }
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        /**
+         * 已读取内容的sha256 只能调用一次
+         */
+        String getHash() {
+            return String.format("%064x", new BigInteger(1, getMessageDigest().digest()));
+        }
+
+        private static MessageDigest newSha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.bjfu.contest.service.impl;
 
+import com.bjfu.contest.cache.UserInfoCache;
 import com.bjfu.contest.dao.UserDAO;
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.enums.UserStatusEnum;
@@ -8,6 +9,7 @@ import com.bjfu.contest.exception.BizException;
 import com.bjfu.contest.pojo.dto.UserDTO;
 import com.bjfu.contest.pojo.entity.User;
 import com.bjfu.contest.pojo.request.user.*;
+import com.bjfu.contest.service.MailService;
 import com.bjfu.contest.service.UserService;
 import com.bjfu.contest.utils.EncryptionUtil;
 import com.bjfu.contest.utils.JwtUtil;
@@ -29,6 +31,10 @@ public class UserServiceImpl implements UserService {
 
     @Autowired
     private UserDAO userDAO;
+    @Autowired
+    private UserInfoCache userInfoCache;
+    @Autowired
+    private MailService mailService;
 
     @Override
     @Transactional
@@ -43,6 +49,7 @@ public class UserServiceImpl implements UserService {
             if(checkUnActiveUserIsExpire(user1)) {
                 //清理掉长时间未激活的账号
                 userDAO.delete(user1);
+                userInfoCache.invalidate(user1.getId());
             } else {
                 //存在注册过的账号
                 throw new BizException(ResultEnum.ACCOUNT_REGISTERED);
@@ -53,6 +60,7 @@ public class UserServiceImpl implements UserService {
             if(checkUnActiveUserIsExpire(user2)) {
                 //清理掉长时间未激活的账号
                 userDAO.delete(user2);
+                userInfoCache.invalidate(user2.getId());
             } else {
                 //存在注册过的邮箱
                 throw new BizException(ResultEnum.EMAIL_REGISTERED);
@@ -62,9 +70,8 @@ public class UserServiceImpl implements UserService {
         BeanUtils.copyProperties(request, user);
         user.setPassword(EncryptionUtil.md5Encode(request.getPassword()));
         userDAO.insert(user);
-        // todo 发激活邮件
         String token = JwtUtil.generateToken(Collections.singletonMap("userId", user.getId().toString()));
-        log.error("新注册账号: token={}", token);
+        mailService.sendActivateMail(user, token);
     }
 
     /**
@@ -93,6 +100,7 @@ public class UserServiceImpl implements UserService {
         }
         user.setStatus(UserStatusEnum.ACTIVE);
         userDAO.update(user);
+        userInfoCache.invalidate(user.getId());
         return new UserDTO(user);
     }
 
@@ -105,8 +113,7 @@ public class UserServiceImpl implements UserService {
             throw new BizException(ResultEnum.USER_IS_ACTIVE);
         }
         String token = JwtUtil.generateToken(Collections.singletonMap("userId", user.getId().toString()));
-        log.error("重新发送激活账号邮件: token={}", token);
-        // todo 发送注册激活邮件
+        mailService.sendActivateMail(user, token);
     }
 
     @Override
@@ -132,6 +139,7 @@ public class UserServiceImpl implements UserService {
         }
         BeanUtils.copyProperties(request, user);
         userDAO.update(user);
+        userInfoCache.invalidate(user.getId());
     }
 
     @Override
@@ -146,6 +154,7 @@ public class UserServiceImpl implements UserService {
             if(checkUnActiveUserIsExpire(user1)) {
                 //清理掉长时间未激活的账号
                 userDAO.delete(user1);
+                userInfoCache.invalidate(user1.getId());
             } else {
                 //存在注册过的账号
                 throw new BizException(ResultEnum.ACCOUNT_REGISTERED);
@@ -158,6 +167,7 @@ public class UserServiceImpl implements UserService {
             if(checkUnActiveUserIsExpire(user2)) {
                 //清理掉长时间未激活的账号
                 userDAO.delete(user2);
+                userInfoCache.invalidate(user2.getId());
             } else {
                 //存在注册过的邮箱
                 throw new BizException(ResultEnum.EMAIL_REGISTERED);
@@ -165,6 +175,7 @@ public class UserServiceImpl implements UserService {
         }
         BeanUtils.copyProperties(request, user);
         userDAO.update(user);
+        userInfoCache.invalidate(user.getId());
     }
 
     @Override
@@ -179,6 +190,7 @@ public class UserServiceImpl implements UserService {
         }
         user.setPassword(EncryptionUtil.md5Encode(request.getNewPassword()));
         userDAO.update(user);
+        userInfoCache.invalidate(user.getId());
     }
 
     @Override
@@ -188,9 +200,8 @@ public class UserServiceImpl implements UserService {
         if(user.getStatus().equals(UserStatusEnum.BANNED)) {
             throw new BizException(ResultEnum.USER_IS_BANNED);
         }
-        // todo 生成忘记密码邮件
         String token = JwtUtil.generateToken(Collections.singletonMap("userId", user.getId().toString()));
-        log.error("忘记密码: token={}", token);
+        mailService.sendResetPasswordMail(user, token);
     }
 
     @Override
@@ -203,6 +214,7 @@ public class UserServiceImpl implements UserService {
         }
         user.setPassword(EncryptionUtil.md5Encode(request.getPassword()));
         userDAO.update(user);
+        userInfoCache.invalidate(user.getId());
     }
 
     @Override
@@ -222,7 +234,7 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public List<UserDTO> searchByNameAndType(UserSearchRequest request) {
-        return userDAO.findByNameLikeAndTypeIn("%"+request.getName()+"%", request.getTypes())
+        return userDAO.findByNameContainsAndTypeIn(request.getName(), request.getTypes())
                 .stream()
                 .map(UserDTO::new)
                 .collect(Collectors.toList());
@@ -0,0 +1,44 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.cache.ContestCache;
+import com.bjfu.contest.cache.UserInfoCache;
+import com.bjfu.contest.utils.JwtUtil;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期输出本地缓存的命中统计 统计值自启动起累计
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class CacheStatsLogTask {
+
+    @Autowired
+    private UserInfoCache userInfoCache;
+    @Autowired
+    private ContestCache contestCache;
+
+    @Scheduled(initialDelayString = "${cache.stats.log-interval-millis:300000}",
+            fixedDelayString = "${cache.stats.log-interval-millis:300000}")
+    public void logStats() {
+        logStats("用户信息", userInfoCache.stats());
+        logStats("验证通过的token", JwtUtil.verifiedTokenStats());
+        logStats("验证失败的token", JwtUtil.rejectedTokenStats());
+        logStats("竞赛详情", contestCache.infoStats());
+        logStats("竞赛流程", contestCache.processStats());
+    }
+
+    private void logStats(String name, CacheStats stats) {
+        log.info("{}缓存 命中率{} 命中{} 未命中{} 加载失败{} 淘汰{}", name,
+                String.format("%.3f", stats.hitRate()),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.loadFailureCount(),
+                stats.evictionCount());
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.dao.MailOutboxDAO;
+import com.bjfu.contest.dao.UserInboxDAO;
+import com.bjfu.contest.pojo.entity.MailOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 发送待发送表中的邮件
+ * 先以租约抢占到期的邮件 再分批交给发送线程 每批通过同一个smtp连接发送 所有线程共用发送速率限制
+ * 发送失败的按尝试次数指数退避后重试 超过次数后放弃 通知邮件的最终结果记录到收件箱
+ * 定时任务只把发送交给自己的分发线程后立即返回 不占用共用的调度线程
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class MailOutboxTask {
+
+    private static final int MAX_ERROR_LENGTH = 256;
+
+    @Autowired
+    private MailOutboxDAO mailOutboxDAO;
+    @Autowired
+    private UserInboxDAO userInboxDAO;
+    @Autowired
+    private JavaMailSender mailSender;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${mail.outbox.from:${spring.mail.username:noreply@bjfu.edu.cn}}")
+    private String from;
+    @Value("${mail.outbox.threads:2}")
+    private Integer threads;
+    /**
+     * 每批发送的邮件数 同一批复用一个smtp连接
+     */
+    @Value("${mail.outbox.batch-size:20}")
+    private Integer batchSize;
+    /**
+     * 每次执行最多抢占的轮数 积压的邮件留到下次执行
+     */
+    @Value("${mail.outbox.max-rounds-per-run:10}")
+    private Integer maxRoundsPerRun;
+    /**
+     * 每次执行的最长时间 超过后不再抢占新的一轮
+     */
+    @Value("${mail.outbox.max-run-millis:30000}")
+    private Long maxRunMillis;
+    /**
+     * 每秒最多发送的邮件数
+     */
+    @Value("${mail.outbox.rate-per-second:10}")
+    private Double ratePerSecond;
+    @Value("${mail.outbox.max-attempts:5}")
+    private Integer maxAttempts;
+    @Value("${mail.outbox.base-backoff-seconds:30}")
+    private Long baseBackoffSeconds;
+    @Value("${mail.outbox.max-backoff-seconds:3600}")
+    private Long maxBackoffSeconds;
+    /**
+     * 抢占后的租约 实例中断时租约到期后重新发送
+     */
+    @Value("${mail.outbox.lease-seconds:300}")
+    private Long leaseSeconds;
+
+    private ExecutorService executor;
+    private ExecutorService dispatcher;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    /**
+     * 下一封邮件最早可以发送的时间
+     */
+    private long nextSendNanos = System.nanoTime();
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mail-outbox-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-outbox-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        dispatcher.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 在分发线程中发送到期的邮件 上一次还未结束时跳过
+     */
+    @Scheduled(initialDelayString = "${mail.outbox.interval-millis:1000}",
+            fixedDelayString = "${mail.outbox.interval-millis:1000}")
+    public void schedule() {
+        if(!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    drain();
+                } catch (RuntimeException exception) {
+                    log.error("邮件发送失败", exception);
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * 发送到期的邮件 等待本次抢占的邮件全部发送完成后返回
+     */
+    public void drain() {
+        int claimSize = threads * batchSize;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxRunMillis);
+        for(int i = 0; i < maxRoundsPerRun && System.nanoTime() < deadline; i++) {
+            Date now = new Date();
+            Date leaseUntil = new Date(now.getTime() + leaseSeconds * 1000);
+            List<MailOutbox> mails = transactionTemplate.execute(status -> mailOutboxDAO.claimDue(now, leaseUntil, claimSize));
+            if(mails == null || mails.isEmpty()) {
+                break;
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for(int start = 0; start < mails.size(); start += batchSize) {
+                List<MailOutbox> batch = mails.subList(start, Math.min(start + batchSize, mails.size()));
+                futures.add(executor.submit(() -> sendBatch(batch)));
+            }
+            try {
+                for(Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException exception) {
+                // 未完成的邮件在租约到期后重新发送
+                log.error("邮件发送任务异常", exception.getCause());
+            }
+            if(mails.size() < claimSize) {
+                break;
+            }
+        }
+    }
+
+    private Void sendBatch(List<MailOutbox> mails) throws InterruptedException {
+        acquire(mails.size());
+        Map<MimeMessage, MailOutbox> messages = new LinkedHashMap<>();
+        Map<MailOutbox, String> failed = new IdentityHashMap<>();
+        for(MailOutbox mail : mails) {
+            try {
+                messages.put(createMessage(mail), mail);
+            } catch (MessagingException exception) {
+                failed.put(mail, exception.getMessage());
+            }
+        }
+        if(!messages.isEmpty()) {
+            try {
+                mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException exception) {
+                // 连接失败时所有邮件都在失败列表中 单封被拒收时只有该封
+                exception.getFailedMessages().forEach((message, cause) ->
+                        failed.put(messages.get(message), cause.getMessage()));
+                if(exception.getFailedMessages().isEmpty()) {
+                    messages.values().forEach(mail -> failed.put(mail, exception.getMessage()));
+                }
+            } catch (MailException exception) {
+                messages.values().forEach(mail -> failed.put(mail, exception.getMessage()));
+            }
+        }
+        List<MailOutbox> sent = mails.stream()
+                .filter(mail -> !failed.containsKey(mail))
+                .collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> complete(sent, failed));
+        return null;
+    }
+
+    private MimeMessage createMessage(MailOutbox mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setFrom(from);
+        helper.setTo(mail.getToAddress());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getContent());
+        return message;
+    }
+
+    private void complete(List<MailOutbox> sent, Map<MailOutbox, String> failed) {
+        List<MailOutbox> retry = new ArrayList<>();
+        List<MailOutbox> abandoned = new ArrayList<>();
+        failed.forEach((mail, error) -> {
+            if(mail.getAttempts() + 1 >= maxAttempts) {
+                abandoned.add(mail);
+                log.warn("邮件发送失败次数过多 放弃发送: {} {}", mail.getToAddress(), error);
+            } else {
+                scheduleRetry(mail, error);
+                retry.add(mail);
+            }
+        });
+        if(!sent.isEmpty()) {
+            mailOutboxDAO.deleteAll(sent);
+            updateInboxes(sent, true);
+        }
+        if(!abandoned.isEmpty()) {
+            mailOutboxDAO.deleteAll(abandoned);
+            updateInboxes(abandoned, false);
+        }
+        if(!retry.isEmpty()) {
+            mailOutboxDAO.updateAll(retry);
+            log.warn("{}封邮件发送失败 等待重试", retry.size());
+        }
+    }
+
+    private void updateInboxes(List<MailOutbox> mails, boolean isSendEmailSuccess) {
+        List<Long> inboxIds = mails.stream()
+                .map(MailOutbox::getInboxId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if(!inboxIds.isEmpty()) {
+            userInboxDAO.updateIsSendEmailSuccess(inboxIds, isSendEmailSuccess);
+        }
+    }
+
+    private void scheduleRetry(MailOutbox mail, String error) {
+        int attempts = mail.getAttempts() + 1;
+        long backoffSeconds = Math.min(maxBackoffSeconds, baseBackoffSeconds << Math.min(attempts - 1, 20));
+        mail.setAttempts(attempts);
+        mail.setNextAttemptTime(new Date(System.currentTimeMillis() + backoffSeconds * 1000));
+        if(error != null && error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        mail.setLastError(error);
+    }
+
+    /**
+     * 按速率限制等待 所有发送线程共用
+     * @param permits 本次发送的邮件数
+     */
+    private void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextSendNanos);
+            nextSendNanos = start + (long) (permits * 1_000_000_000L / ratePerSecond);
+            waitNanos = start - now;
+        }
+        if(waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+}
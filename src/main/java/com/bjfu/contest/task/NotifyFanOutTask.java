@@ -0,0 +1,159 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.cache.UnreadCountCache;
+import com.bjfu.contest.dao.NotifyDAO;
+import com.bjfu.contest.dao.UserInboxDAO;
+import com.bjfu.contest.enums.PushEventTypeEnum;
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.UserInbox;
+import com.bjfu.contest.pojo.vo.NotifyVO;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.service.MailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 将定向通知(竞赛/流程/队伍内通知)投递到接收人的收件箱 广播通知不投递 在读取收件箱时合并
+ * 接收人由sql按竞赛/报名/队伍关系查出 按用户id分批 每批在独立的短事务中批量插入 不阻塞发布请求 也不锁定竞赛
+ * 已有收件箱的用户在查询时排除 中断后由定时任务重新投递时从头继续 不会重复
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class NotifyFanOutTask {
+
+    @Autowired
+    private NotifyDAO notifyDAO;
+    @Autowired
+    private UserInboxDAO userInboxDAO;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private UnreadCountCache unreadCountCache;
+    @Autowired
+    private MailService mailService;
+    @Autowired
+    private PushTopicRegistry pushTopicRegistry;
+
+    @Value("${notify.fan-out.threads:2}")
+    private Integer threads;
+    /**
+     * 每批写入的收件箱数量
+     */
+    @Value("${notify.fan-out.batch-size:500}")
+    private Integer batchSize;
+    /**
+     * 发布超过该时间仍未投递完成的通知由定时任务重新投递
+     */
+    @Value("${notify.fan-out.recover-after-seconds:60}")
+    private Long recoverAfterSeconds;
+
+    private ExecutorService executor;
+    /**
+     * 本实例正在投递的通知id
+     */
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "notify-fan-out-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交投递任务 同一通知正在投递时忽略
+     * @param notifyId 通知id
+     */
+    public void submit(Long notifyId) {
+        if(!running.add(notifyId)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                fanOut(notifyId);
+            } catch (RuntimeException exception) {
+                log.error("通知投递失败 等待重新投递: {}", notifyId, exception);
+            } finally {
+                running.remove(notifyId);
+            }
+        });
+    }
+
+    @Scheduled(initialDelayString = "${notify.fan-out.recover-interval-millis:60000}",
+            fixedDelayString = "${notify.fan-out.recover-interval-millis:60000}")
+    public void recover() {
+        Date before = new Date(System.currentTimeMillis() - recoverAfterSeconds * 1000);
+        notifyDAO.findAllUndeliveredBefore(before, batchSize)
+                .forEach(notify -> submit(notify.getId()));
+    }
+
+    /**
+     * 分批投递通知 全部投递后标记为已投递
+     * @param notifyId 通知id
+     * @return 本次新写入的收件箱数量
+     */
+    public int fanOut(Long notifyId) {
+        Notify notify = notifyDAO.findById(notifyId).orElse(null);
+        if(notify == null || notify.getIsDelivered()) {
+            return 0;
+        }
+        NotifyVO notifyVO = new NotifyVO(new NotifyDTO(notify, false));
+        long start = System.currentTimeMillis();
+        int delivered = 0;
+        Long lastUserId = 0L;
+        while(true) {
+            List<Long> userIds = userInboxDAO.findRecipientIdsWithoutInbox(notify, lastUserId, batchSize);
+            if(userIds.isEmpty()) {
+                break;
+            }
+            try {
+                delivered += transactionTemplate.execute(status -> {
+                    List<UserInbox> inboxes = userInboxDAO.insertAll(notifyId, userIds);
+                    unreadCountCache.increment(userIds);
+                    pushTopicRegistry.publishToUsers(userIds, PushEventTypeEnum.NOTIFY, notifyVO);
+                    if(notify.getIsSendEmail()) {
+                        mailService.sendNotifyMails(notify, inboxes);
+                    }
+                    return inboxes.size();
+                });
+            } catch (DataIntegrityViolationException exception) {
+                // 其他实例同时在投递同一通知 由其继续
+                log.warn("通知正在由其他实例投递: {}", notifyId);
+                return delivered;
+            }
+            lastUserId = userIds.get(userIds.size() - 1);
+            if(userIds.size() < batchSize) {
+                break;
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> notifyDAO.markDelivered(notifyId));
+        log.info("通知{}投递到{}个收件箱 耗时{}ms", notifyId, delivered, System.currentTimeMillis() - start);
+        return delivered;
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.dao.OssDeleteOutboxDAO;
+import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+import com.bjfu.contest.service.OssService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 批量删除待删除表中的oss文件
+ * 删除失败的按尝试次数指数退避后重试 多实例同时执行时重复删除不影响结果
+ * 定时任务只把删除交给自己的线程后立即返回 oss响应慢时不占用共用的调度线程
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class OssDeleteOutboxTask {
+
+    private static final int MAX_ERROR_LENGTH = 256;
+
+    @Autowired
+    private OssDeleteOutboxDAO ossDeleteOutboxDAO;
+    @Autowired
+    private OssService ossService;
+
+    @Value("${oss.delete.batch-size:500}")
+    private Integer batchSize;
+    /**
+     * 每次执行最多处理的批次数 避免积压时长时间占用调度线程
+     */
+    @Value("${oss.delete.max-batches-per-run:20}")
+    private Integer maxBatchesPerRun;
+    @Value("${oss.delete.base-backoff-seconds:10}")
+    private Long baseBackoffSeconds;
+    @Value("${oss.delete.max-backoff-seconds:3600}")
+    private Long maxBackoffSeconds;
+    /**
+     * 待删除数量超过此值时告警
+     */
+    @Value("${oss.delete.depth-warn-threshold:10000}")
+    private Long depthWarnThreshold;
+
+    /**
+     * 最近一次执行后待删除的文件数量
+     */
+    private final AtomicLong depth = new AtomicLong();
+
+    private ExecutorService executor;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    @PostConstruct
+    private void init() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oss-delete-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 在删除线程中处理到期的文件 上一次还未结束时跳过
+     */
+    @Scheduled(initialDelayString = "${oss.delete.interval-millis:5000}",
+            fixedDelayString = "${oss.delete.interval-millis:5000}")
+    public void schedule() {
+        if(!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    drain();
+                } catch (RuntimeException exception) {
+                    log.error("删除oss文件失败", exception);
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * 删除到期的文件 处理完本次的批次后返回
+     */
+    public void drain() {
+        int processed = 0;
+        for(int i = 0; i < maxBatchesPerRun; i++) {
+            List<OssDeleteOutbox> outboxes = ossDeleteOutboxDAO.findDue(new Date(), batchSize);
+            if(outboxes.isEmpty()) {
+                break;
+            }
+            process(outboxes);
+            processed += outboxes.size();
+            if(outboxes.size() < batchSize) {
+                break;
+            }
+        }
+        long current = ossDeleteOutboxDAO.count();
+        long previous = depth.getAndSet(current);
+        if(current >= depthWarnThreshold) {
+            log.warn("待删除的oss文件积压: {} 本次处理{}", current, processed);
+        } else if(processed > 0 || current != previous) {
+            // 空闲时不重复输出
+            log.info("待删除的oss文件: {} 本次处理{}", current, processed);
+        }
+    }
+
+    /**
+     * 待删除的文件数量 包括等待重试的
+     * @return 最近一次执行后的数量
+     */
+    public long getDepth() {
+        return depth.get();
+    }
+
+    private void process(List<OssDeleteOutbox> outboxes) {
+        List<OssDeleteOutbox> deleted = new ArrayList<>();
+        List<OssDeleteOutbox> failed = new ArrayList<>();
+        Map<String, List<OssDeleteOutbox>> outboxesByBucket = outboxes.stream()
+                .collect(Collectors.groupingBy(OssDeleteOutbox::getBucketName));
+        outboxesByBucket.forEach((bucketName, bucketOutboxes) -> {
+            Set<String> objectNames = bucketOutboxes.stream()
+                    .map(OssDeleteOutbox::getObjectName)
+                    .collect(Collectors.toSet());
+            Set<String> failedObjectNames;
+            String error;
+            try {
+                failedObjectNames = ossService.deleteObjects(bucketName, objectNames);
+                error = "删除对象失败";
+            } catch (OssException exception) {
+                failedObjectNames = objectNames;
+                error = exception.getMessage();
+            }
+            for(OssDeleteOutbox outbox : bucketOutboxes) {
+                if(failedObjectNames.contains(outbox.getObjectName())) {
+                    scheduleRetry(outbox, error);
+                    failed.add(outbox);
+                } else {
+                    deleted.add(outbox);
+                }
+            }
+        });
+        if(!deleted.isEmpty()) {
+            ossDeleteOutboxDAO.deleteAll(deleted);
+        }
+        if(!failed.isEmpty()) {
+            ossDeleteOutboxDAO.updateAll(failed);
+            log.warn("{}个oss文件删除失败 等待重试", failed.size());
+        }
+    }
+
+    private void scheduleRetry(OssDeleteOutbox outbox, String error) {
+        int attempts = outbox.getAttempts() + 1;
+        long backoffSeconds = Math.min(maxBackoffSeconds, baseBackoffSeconds << Math.min(attempts - 1, 20));
+        outbox.setAttempts(attempts);
+        outbox.setNextAttemptTime(new Date(System.currentTimeMillis() + backoffSeconds * 1000));
+        if(error != null && error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        outbox.setLastError(error);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.service.ResourceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 删除上传链接过期后仍未确认上传的资源
+ * @author warthog
+ */
+@Slf4j
+@Component
+public class PendingResourceCleanupTask {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Value("${resource.pending-cleanup.batch-size:500}")
+    private Integer batchSize;
+
+    @Scheduled(initialDelayString = "${resource.pending-cleanup.interval-millis:600000}",
+            fixedDelayString = "${resource.pending-cleanup.interval-millis:600000}")
+    public void clean() {
+        int deleted;
+        int total = 0;
+        do {
+            deleted = resourceService.deleteExpiredPending(batchSize);
+            total += deleted;
+        } while(deleted == batchSize);
+        if(total > 0) {
+            log.info("删除超时未确认上传的资源{}个", total);
+        }
+    }
+
+}
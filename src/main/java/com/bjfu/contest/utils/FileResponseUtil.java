@@ -0,0 +1,124 @@
+package com.bjfu.contest.utils;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 文件下载响应工具类 支持单个Range请求
+ * @author warthog
+ */
+public class FileResponseUtil {
+
+    /**
+     * 每次映射的文件大小
+     */
+    private static final long MAP_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * 从oss读取文件指定范围的方法
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        /**
+         * 读取文件的指定范围
+         * @param offset 起始位置
+         * @param length 长度
+         * @return 输入流
+         */
+        InputStream read(long offset, long length);
+    }
+
+    /**
+     * 将文件写入响应 有本地文件时通过内存映射直接写出 否则从reader读取
+     * @param request 请求
+     * @param response 响应
+     * @param fileName 下载的文件名
+     * @param size 文件大小
+     * @param localFile 本地文件 可为null
+     * @param reader 从oss读取文件的方法
+     */
+    public static void writeFile(HttpServletRequest request, HttpServletResponse response, String fileName,
+                                 long size, Path localFile, RangeReader reader) throws IOException {
+        long start = 0;
+        long end = size - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if(rangeHeader != null && size > 0) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // 多个范围时返回整个文件
+                if(ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    if(start > end) {
+                        throw new IllegalArgumentException("起始位置超出文件大小");
+                    }
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                }
+            } catch (IllegalArgumentException exception) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+        long length = end - start + 1;
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(fileName, StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        response.setContentLengthLong(length);
+        if(length <= 0) {
+            return;
+        }
+        OutputStream outputStream = response.getOutputStream();
+        if(localFile != null) {
+            try (FileChannel channel = FileChannel.open(localFile)) {
+                writeMapped(channel, start, length, Channels.newChannel(outputStream));
+                return;
+            } catch (NoSuchFileException exception) {
+                // 缓存文件已被淘汰 从oss读取
+            }
+        }
+        try (InputStream stream = reader.read(start, length)) {
+            StreamUtils.copy(stream, outputStream);
+        }
+    }
+
+    /**
+     * 分段映射文件写出 由页缓存直接提供文件内容 不再逐块read到缓冲区
+     */
+    private static void writeMapped(FileChannel channel, long start, long length,
+                                    WritableByteChannel target) throws IOException {
+        long position = start;
+        long remaining = length;
+        while(remaining > 0) {
+            long chunk = Math.min(remaining, MAP_CHUNK_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+            while(buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            position += chunk;
+            remaining -= chunk;
+        }
+    }
+
+}
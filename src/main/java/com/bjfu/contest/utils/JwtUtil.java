@@ -6,14 +6,21 @@ import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.impl.PublicClaims;
 import com.auth0.jwt.interfaces.Claim;
 import com.bjfu.contest.enums.ResultEnum;
 import com.bjfu.contest.exception.BizException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * jwt工具类
@@ -24,6 +31,60 @@ public class JwtUtil {
 
     private static final String JWT_ISSUER = "auth0";
     private static final Algorithm HMAC256_ALGORITHM = Algorithm.HMAC256("secret");
+    /**
+     * 验证器线程安全 全局复用
+     */
+    private static final JWTVerifier VERIFIER = JWT.require(HMAC256_ALGORITHM)
+            .withIssuer(JWT_ISSUER)
+            .build();
+    /**
+     * 验证通过的token缓存上限
+     */
+    private static final long VERIFIED_CACHE_MAXIMUM_SIZE = 50000;
+    /**
+     * 验证失败的token缓存上限
+     */
+    private static final long REJECTED_CACHE_MAXIMUM_SIZE = 10000;
+    /**
+     * 验证失败的token缓存时间(秒)
+     */
+    private static final long REJECTED_CACHE_EXPIRE_SECONDS = 30;
+
+    /**
+     * 验证通过的token 过期时间与token本身的过期时间一致
+     */
+    private static final Cache<String, Map<String, Claim>> VERIFIED_TOKEN_CACHE = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_CACHE_MAXIMUM_SIZE)
+            .expireAfter(new Expiry<String, Map<String, Claim>>() {
+                @Override
+                public long expireAfterCreate(String token, Map<String, Claim> claims, long currentTime) {
+                    Date expiresAt = Optional.ofNullable(claims.get(PublicClaims.EXPIRES_AT))
+                            .map(Claim::asDate)
+                            .orElse(new Date());
+                    long remainMillis = Math.max(expiresAt.getTime() - System.currentTimeMillis(), 0);
+                    return TimeUnit.MILLISECONDS.toNanos(remainMillis);
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, Map<String, Claim> claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, Map<String, Claim> claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+    /**
+     * 验证失败的token 短时间内不再重复验证
+     */
+    private static final Cache<String, Boolean> REJECTED_TOKEN_CACHE = Caffeine.newBuilder()
+            .maximumSize(REJECTED_CACHE_MAXIMUM_SIZE)
+            .expireAfterWrite(REJECTED_CACHE_EXPIRE_SECONDS, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
 
     public static String generateToken(Map<String, String> map) {
         Calendar cd = Calendar.getInstance();
@@ -46,14 +107,37 @@ public class JwtUtil {
     }
 
     public static Map<String, Claim> verifyToken(String token) {
+        Map<String, Claim> claims = VERIFIED_TOKEN_CACHE.getIfPresent(token);
+        if(claims != null) {
+            return claims;
+        }
+        if(REJECTED_TOKEN_CACHE.getIfPresent(token) != null) {
+            throw new BizException(ResultEnum.TOKEN_WRONG);
+        }
         try {
-            JWTVerifier verifier = JWT.require(HMAC256_ALGORITHM)
-                    .withIssuer(JWT_ISSUER)
-                    .build();
-            return verifier.verify(token).getClaims();
+            claims = VERIFIER.verify(token).getClaims();
         } catch (JWTVerificationException exception){
-            log.error("token认证失败", exception);
+            log.warn("token认证失败: {}", exception.getMessage());
+            REJECTED_TOKEN_CACHE.put(token, Boolean.TRUE);
             throw new BizException(ResultEnum.TOKEN_WRONG);
         }
+        VERIFIED_TOKEN_CACHE.put(token, claims);
+        return claims;
+    }
+
+    /**
+     * 验证通过的token缓存统计
+     * @return 统计信息
+     */
+    public static CacheStats verifiedTokenStats() {
+        return VERIFIED_TOKEN_CACHE.stats();
+    }
+
+    /**
+     * 验证失败的token缓存统计
+     * @return 统计信息
+     */
+    public static CacheStats rejectedTokenStats() {
+        return REJECTED_TOKEN_CACHE.stats();
     }
 }
@@ -0,0 +1,72 @@
+package com.bjfu.contest.utils;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * 在应用内生成主键 不需要访问数据库 插入时可以使用jdbc批处理
+ * 结构为 41位毫秒时间戳 + 3位节点id + 9位序号 共53位 在前端js中不会丢失精度
+ * 时钟回拨时沿用上次的时间戳继续分配 不会生成重复的id
+ * @author warthog
+ */
+public class SnowflakeIdGenerator implements IdentifierGenerator, Configurable {
+
+    /**
+     * 节点id配置项 多实例部署时每个实例需配置不同的值
+     */
+    public static final String WORKER_ID_SETTING = "contest.id.worker-id";
+    /**
+     * 时间戳起点 2021-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1609459200000L;
+    private static final int WORKER_ID_BITS = 3;
+    private static final int SEQUENCE_BITS = 9;
+    private static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private long workerId;
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        workerId = ConfigurationHelper.getInt(WORKER_ID_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), 0);
+        if(workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalStateException("节点id必须在0到" + MAX_WORKER_ID + "之间");
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return nextId();
+    }
+
+    /**
+     * 生成下一个id
+     * @return id
+     */
+    public synchronized long nextId() {
+        long timestamp = Math.max(System.currentTimeMillis() - EPOCH, lastTimestamp);
+        if(timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            // 当前毫秒的序号用完时借用下一毫秒
+            if(sequence == 0) {
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.bjfu.contest.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ * @author warthog
+ */
+public class TransactionUtil {
+
+    /**
+     * 在当前事务提交后执行 没有事务时立即执行
+     * @param runnable 需要执行的操作
+     */
+    public static void afterCommit(Runnable runnable) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runnable.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runnable.run();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,17 @@
+-- 邮件异步发送 业务操作在同一事务中写入待发送邮件 由后台任务分批限速发送
+
+create table mail_outbox (
+    id bigint not null,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    attempts integer not null,
+    content varchar(1024) not null,
+    inbox_id bigint,
+    last_error varchar(256),
+    next_attempt_time datetime(6) not null,
+    subject varchar(128) not null,
+    to_address varchar(64) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_mail_outbox_next_attempt_time on mail_outbox (next_attempt_time);
@@ -0,0 +1,285 @@
+-- 初始表结构 与原先由hibernate ddl-auto生成的结构一致
+-- 已存在的库由flyway baseline跳过本脚本
+
+create table college_major_grade_class (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    college varchar(32) not null,
+    company varchar(32),
+    grade varchar(32),
+    major varchar(32),
+    primary key (id)
+) engine=InnoDB;
+
+create table contest (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    description varchar(512) not null,
+    extension varchar(512),
+    group_member_count integer not null,
+    name varchar(32) not null,
+    status integer not null,
+    summary varchar(128) not null,
+    creator_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_award (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    name varchar(32) not null,
+    contest_id bigint,
+    group_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_group (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    introduction varchar(256),
+    name varchar(32) not null,
+    captain_id bigint,
+    contest_id bigint,
+    teacher_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_group_member (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    contest_id bigint,
+    group_id bigint,
+    member_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_process (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    description varchar(512) not null,
+    end_submit_time datetime(6) not null,
+    finish_time datetime(6),
+    name varchar(32) not null,
+    sort integer not null,
+    start_time datetime(6),
+    status integer not null,
+    submit_list varchar(512),
+    contest_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_process_group (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    status integer not null,
+    submit_list varchar(512),
+    group_id bigint,
+    process_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_register (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    status integer not null,
+    contest_id bigint,
+    user_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table contest_teacher (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    contest_id bigint,
+    teacher_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table news (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    content varchar(128) not null,
+    summary varchar(128) not null,
+    target_id bigint,
+    title varchar(32) not null,
+    type integer not null,
+    author_id bigint,
+    resource_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table notify (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    content varchar(128) not null,
+    is_send_email bit not null,
+    target_id bigint,
+    title varchar(32) not null,
+    type integer not null,
+    author_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table resource (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    classification varchar(32) not null,
+    content varchar(256) not null,
+    content_type integer not null,
+    file_name varchar(64) not null,
+    target_id bigint,
+    type integer not null,
+    creator_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table user (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    account varchar(32) not null,
+    college varchar(32) not null,
+    email varchar(32) not null,
+    gender integer not null,
+    grade varchar(32),
+    introduction varchar(256),
+    major varchar(32),
+    name varchar(32) not null,
+    password varchar(32) not null,
+    status integer not null,
+    type integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table user_inbox (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    is_read bit not null,
+    is_send_email_success bit,
+    notify_id bigint,
+    user_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+alter table contest
+   add constraint FKmfbm5rgqj2m9gofumf5wtawrs
+   foreign key (creator_id)
+   references user (id);
+
+alter table contest_award
+   add constraint FK2u653xmwva9sfooa17lvi0tc0
+   foreign key (contest_id)
+   references contest (id);
+
+alter table contest_award
+   add constraint FKhxkvkdo0gbo8et7kyb11xis47
+   foreign key (group_id)
+   references contest_group (id);
+
+alter table contest_group
+   add constraint FKqs4wj3upndhtb2ai3woio3ixq
+   foreign key (captain_id)
+   references user (id);
+
+alter table contest_group
+   add constraint FK9dvsc2fklemmg6m6wexvl3hno
+   foreign key (contest_id)
+   references contest (id);
+
+alter table contest_group
+   add constraint FK6o7yhqhajxran3jem29n19t3w
+   foreign key (teacher_id)
+   references user (id);
+
+alter table contest_group_member
+   add constraint FKtg6ei5ihlwyxxow0tskllfjnf
+   foreign key (contest_id)
+   references contest (id);
+
+alter table contest_group_member
+   add constraint FKh5e3ktscpx3nc2uvp2npye1im
+   foreign key (group_id)
+   references contest_group (id);
+
+alter table contest_group_member
+   add constraint FKou0ma151j2rtk8vlb0923pkuu
+   foreign key (member_id)
+   references contest_register (id);
+
+alter table contest_process
+   add constraint FKqrd9uk6bcbbw16hj9jvfhhrhl
+   foreign key (contest_id)
+   references contest (id);
+
+alter table contest_process_group
+   add constraint FKkmqq91q4dcs1mjp58qctgmy98
+   foreign key (group_id)
+   references contest_group (id);
+
+alter table contest_process_group
+   add constraint FK425fklv4oyjx83nkpnu9sue3b
+   foreign key (process_id)
+   references contest_process (id);
+
+alter table contest_register
+   add constraint FKsgiyw3ctfmirbpyovnxurbvgq
+   foreign key (contest_id)
+   references contest (id);
+
+alter table contest_register
+   add constraint FKoixer5jg29q8b6njturfirlp6
+   foreign key (user_id)
+   references user (id);
+
+alter table contest_teacher
+   add constraint FKkh52iu5vmmoej6vai3r7c3j4n
+   foreign key (contest_id)
+   references contest (id);
+
+alter table contest_teacher
+   add constraint FKcv9hrofbdp6dviu64wu0sikbb
+   foreign key (teacher_id)
+   references user (id);
+
+alter table news
+   add constraint FKrxsvhjf5khl0mf6jf3au0vqaf
+   foreign key (author_id)
+   references user (id);
+
+alter table news
+   add constraint FKrsoycjuqxwrla042nc38yffwq
+   foreign key (resource_id)
+   references resource (id);
+
+alter table notify
+   add constraint FKg1154ms7o07pl4immgviyky33
+   foreign key (author_id)
+   references user (id);
+
+alter table resource
+   add constraint FK1tpoix11401lkii4iwa4tx5s6
+   foreign key (creator_id)
+   references user (id);
+
+alter table user_inbox
+   add constraint FKd8ha6pbiicwyqdejq9ko2hd76
+   foreign key (notify_id)
+   references notify (id);
+
+alter table user_inbox
+   add constraint FKlnvfu7kmnylwr4qxvxjl4x73s
+   foreign key (user_id)
+   references user (id);
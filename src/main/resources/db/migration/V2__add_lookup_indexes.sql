@@ -0,0 +1,28 @@
+-- 热点查询的复合索引 与实体上的@Table声明保持一致
+
+create index idx_user_account_status on user (account, status);
+create index idx_user_email_status on user (email, status);
+
+create index idx_contest_creator_status on contest (creator_id, status);
+
+create index idx_contest_process_contest_sort_status on contest_process (contest_id, sort, status);
+
+create index idx_contest_register_contest_user_status on contest_register (contest_id, user_id, status);
+create index idx_contest_register_user_status on contest_register (user_id, status);
+
+create index idx_contest_group_member_contest_member on contest_group_member (contest_id, member_id);
+
+-- 加唯一约束前删除重复的行 保留id最小的一条
+delete from contest_process_group where id not in (
+   select id from (select min(id) as id from contest_process_group group by process_id, group_id) keep_ids);
+alter table contest_process_group
+   add constraint uk_contest_process_group_process_group unique (process_id, group_id);
+
+delete from contest_teacher where id not in (
+   select id from (select min(id) as id from contest_teacher group by contest_id, teacher_id) keep_ids);
+alter table contest_teacher
+   add constraint uk_contest_teacher_contest_teacher unique (contest_id, teacher_id);
+
+create index idx_resource_type_target_id on resource (type, target_id);
+
+create index idx_college_major_grade_class_path on college_major_grade_class (college, major, grade, company);
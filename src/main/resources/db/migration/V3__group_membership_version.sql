@@ -0,0 +1,12 @@
+-- 队伍加入/踢出的乐观锁模式: 版本号及每个竞赛中一个报名只能加入一支队伍
+
+alter table contest_group add column version bigint not null default 0;
+alter table contest_register add column version bigint not null default 0;
+
+-- 并发加入时可能已产生重复的成员 加唯一约束前删除 保留id最小的一条 队伍人数在V4中按剩余的成员重新统计
+delete from contest_group_member where id not in (
+   select id from (select min(id) as id from contest_group_member group by contest_id, member_id) keep_ids);
+-- 先建唯一约束再删除原索引 保证外键始终有可用的索引
+alter table contest_group_member
+   add constraint uk_contest_group_member_contest_member unique (contest_id, member_id);
+drop index idx_contest_group_member_contest_member on contest_group_member;
@@ -0,0 +1,6 @@
+-- 队伍人数冗余字段 用于条件更新限制队伍人数
+
+alter table contest_group add column member_count integer not null default 0;
+
+update contest_group
+set member_count = (select count(*) from contest_group_member where contest_group_member.group_id = contest_group.id);
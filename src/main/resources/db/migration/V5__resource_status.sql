@@ -0,0 +1,6 @@
+-- 资源直传oss 申请上传链接时先记录等待上传的资源 确认上传后校验大小及etag
+-- 已有资源均为可用状态(0)
+
+alter table resource add column status integer not null default 0;
+alter table resource add column size bigint;
+alter table resource add column etag varchar(64);
@@ -0,0 +1,18 @@
+-- oss文件异步删除 删除数据时在同一事务中记录待删除的文件 由后台任务批量删除
+
+create table oss_delete_outbox (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    attempts integer not null,
+    bucket_name varchar(64) not null,
+    last_error varchar(256),
+    next_attempt_time datetime(6) not null,
+    object_name varchar(256) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_oss_delete_outbox_next_attempt_time on oss_delete_outbox (next_attempt_time);
+
+-- 清理超时未确认上传的资源
+create index idx_resource_status_created_time on resource (status, created_time);
@@ -0,0 +1,18 @@
+-- 资源文件按内容sha256去重 内容相同的资源共用一个oss文件并记录引用数
+-- 已有资源没有content_hash 仍各自独占文件
+
+create table resource_object (
+    id bigint not null auto_increment,
+    created_time datetime(6),
+    last_modified_time datetime(6),
+    content_hash varchar(64) not null,
+    object_name varchar(256) not null,
+    ref_count integer not null,
+    size bigint,
+    primary key (id)
+) engine=InnoDB;
+
+alter table resource_object
+   add constraint uk_resource_object_content_hash unique (content_hash);
+
+alter table resource add column content_hash varchar(64);
@@ -0,0 +1,12 @@
+-- 通知发布后由后台任务分批写入收件箱 is_delivered记录是否已投递完成 中断后可继续投递
+-- 已有通知视为已投递
+
+alter table notify add column is_delivered bit not null default 1;
+
+create index idx_notify_is_delivered_created_time on notify (is_delivered, created_time);
+
+-- 同一通知对同一用户只投递一次 重复投递时由唯一约束拦截
+alter table user_inbox
+   add constraint uk_user_inbox_notify_user unique (notify_id, user_id);
+
+create index idx_user_inbox_user_is_read on user_inbox (user_id, is_read);
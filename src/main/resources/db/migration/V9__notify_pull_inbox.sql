@@ -0,0 +1,11 @@
+-- 广播通知不再为每个用户写入收件箱 读取收件箱时按用户的已读水位合并
+-- 用户单独标记已读的广播通知仍写入收件箱 已有的收件箱保持不变
+
+alter table user add column notify_read_time datetime(6);
+
+create index idx_notify_type on notify (type);
+
+create index idx_user_inbox_user_notify on user_inbox (user_id, notify_id);
+
+-- 尚未投递完成的广播通知无需继续投递
+update notify set is_delivered = 1 where type in (0, 1, 2, 3);
@@ -0,0 +1,66 @@
+package com.bjfu.contest;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 在空库上执行全部迁移脚本后由hibernate校验表结构 使用mysql兼容模式的h2
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:flyway-migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FlywayMigrationTests {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Test
+    void migrationsMatchEntities() {
+        // 上下文启动即已通过hibernate的校验
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void uniqueKeysRemoveExistingDuplicates() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:flyway-duplicates;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).target("1").load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // 只关心重复数据 不创建关联的实体
+        jdbcTemplate.execute("set referential_integrity false");
+        for(int i = 0; i < 3; i++) {
+            jdbcTemplate.update("insert into contest_process_group (status, process_id, group_id) values (0, 1, 1)");
+            jdbcTemplate.update("insert into contest_teacher (contest_id, teacher_id) values (1, 1)");
+            jdbcTemplate.update("insert into contest_group_member (contest_id, group_id, member_id) values (1, 1, 1)");
+        }
+        // 同一竞赛中同一成员加入了两支队伍
+        jdbcTemplate.update("insert into contest_group_member (contest_id, group_id, member_id) values (1, 2, 1)");
+        jdbcTemplate.update("insert into contest_process_group (status, process_id, group_id) values (0, 1, 2)");
+        jdbcTemplate.execute("set referential_integrity true");
+
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from contest_process_group", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from contest_teacher", Integer.class));
+        assertEquals(1L, jdbcTemplate.queryForObject("select id from contest_group_member", Long.class));
+        // 保留最早的一条
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "select id from contest_process_group where group_id = 1", Long.class));
+    }
+
+}
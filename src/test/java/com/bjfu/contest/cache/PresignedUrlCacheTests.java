@@ -0,0 +1,68 @@
+package com.bjfu.contest.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 下载链接缓存只对缓存中没有的对象签名 删除后重新签名
+ * @author warthog
+ */
+class PresignedUrlCacheTests {
+
+    private PresignedUrlCache cache;
+    private final List<Collection<String>> signedBatches = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        cache = newCache(604800, 86400);
+        signedBatches.clear();
+    }
+
+    @Test
+    void batchSignsOnlyMissingObjects() {
+        Map<String, String> first = cache.getAll(Arrays.asList("a", "b"), this::sign);
+        Map<String, String> second = cache.getAll(Arrays.asList("a", "b", "c"), this::sign);
+
+        assertEquals(2, signedBatches.size());
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(signedBatches.get(0)));
+        assertEquals(Collections.singletonList("c"), new ArrayList<>(signedBatches.get(1)));
+        assertEquals(first.get("a"), second.get("a"));
+        assertEquals("url-c", second.get("c"));
+        assertEquals("url-a", cache.get("a", objectName -> "resigned"));
+    }
+
+    @Test
+    void invalidateForcesResign() {
+        cache.get("a", objectName -> "url-a");
+        cache.invalidate("a");
+        assertEquals("resigned", cache.get("a", objectName -> "resigned"));
+    }
+
+    @Test
+    void minRemainingMustBeBelowUrlExpiry() {
+        assertThrows(IllegalStateException.class, () -> newCache(3600, 3600));
+    }
+
+    private Map<String, String> sign(Collection<String> objectNames) {
+        signedBatches.add(objectNames);
+        return objectNames.stream().collect(Collectors.toMap(Function.identity(), objectName -> "url-" + objectName));
+    }
+
+    private static PresignedUrlCache newCache(int urlExpireSeconds, int minRemainingSeconds) {
+        PresignedUrlCache cache = new PresignedUrlCache();
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "urlExpireSeconds", urlExpireSeconds);
+        ReflectionTestUtils.setField(cache, "minRemainingSeconds", minRemainingSeconds);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        return cache;
+    }
+
+}
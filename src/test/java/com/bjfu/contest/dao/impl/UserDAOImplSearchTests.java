@@ -0,0 +1,82 @@
+package com.bjfu.contest.dao.impl;
+
+import com.bjfu.contest.enums.UserGenderEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 索引未更新时按名称查找用户 索引命中的结果仍按like过滤
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserDAOImpl.class, SearchIndex.class})
+class UserDAOImplSearchTests {
+
+    private static final List<UserTypeEnum> TYPES = Collections.singletonList(UserTypeEnum.STUDENT);
+
+    @Autowired
+    private UserDAOImpl userDAO;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Test
+    void staleIndexHitsAreFiltered() {
+        User renamed = createUser("renamed", "张伟");
+        User unchanged = createUser("unchanged", "张伟强");
+        searchIndex.rebuild();
+        try {
+            // 绕过DAO改名 索引中仍是旧名称
+            renamed.setName("李娜");
+            userRepository.save(renamed);
+
+            assertEquals(Collections.singletonList(unchanged.getId()), findIds("张伟"));
+            // 新名称在索引中没有命中 退回like查询
+            assertEquals(Collections.singletonList(renamed.getId()), findIds("李娜"));
+        } finally {
+            userRepository.deleteAllInBatch();
+        }
+    }
+
+    private List<Long> findIds(String name) {
+        return userDAO.findByNameContainsAndTypeIn(name, TYPES)
+                .stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    private User createUser(String account, String name) {
+        User user = new User();
+        user.setAccount(account);
+        user.setEmail(account + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(UserTypeEnum.STUDENT);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName(name);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return userRepository.save(user);
+    }
+
+}
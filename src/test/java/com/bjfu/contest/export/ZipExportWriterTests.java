@@ -0,0 +1,168 @@
+package com.bjfu.contest.export;
+
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.service.OssService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 流式打包导出的正确性 下载流的关闭及预取对吞吐量的影响
+ * 用固定延迟模拟oss请求
+ * @author warthog
+ */
+@Slf4j
+class ZipExportWriterTests {
+
+    private static final int FILE_COUNT = 1200;
+    private static final int FILE_SIZE = 32 * 1024;
+    private static final long OSS_LATENCY_MILLIS = 5;
+    private static final String BUCKET = "contest-file";
+    /**
+     * 随机内容 压缩后大小与原文件接近
+     */
+    private static final byte[] CONTENT = new byte[FILE_SIZE];
+
+    static {
+        new Random(42).nextBytes(CONTENT);
+    }
+
+    private final AtomicInteger openedStreams = new AtomicInteger();
+    private final AtomicInteger closedStreams = new AtomicInteger();
+    private final List<ZipExportWriter> writers = new ArrayList<>();
+
+    @AfterEach
+    void destroy() {
+        writers.forEach(writer -> ReflectionTestUtils.invokeMethod(writer, "destroy"));
+    }
+
+    @Test
+    void writesAllEntriesAndListsFailures() throws IOException {
+        OssService ossService = slowOssService();
+        doThrow(new OssException(ResultEnum.FILE_DOWNLOAD_FAILED)).when(ossService).getObject(BUCKET, "object-7");
+        ZipExportWriter writer = newWriter(ossService, 8);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        writer.write(entries(FILE_COUNT), outputStream);
+
+        int count = 0;
+        String errors = null;
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry entry;
+            while((entry = zipInputStream.getNextEntry()) != null) {
+                byte[] content = readAll(zipInputStream);
+                if(ZipExportWriter.ERROR_ENTRY_NAME.equals(entry.getName())) {
+                    errors = new String(content, StandardCharsets.UTF_8);
+                } else {
+                    assertEquals(FILE_SIZE, content.length);
+                    count++;
+                }
+            }
+        }
+        assertEquals(FILE_COUNT - 1, count);
+        assertEquals("group/file-7", errors);
+        assertEquals(openedStreams.get(), closedStreams.get());
+    }
+
+    @Test
+    void clientAbortClosesPrefetchedStreams() throws InterruptedException {
+        ZipExportWriter writer = newWriter(slowOssService(), 8);
+        OutputStream brokenOutputStream = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if(++written > FILE_SIZE * 10) {
+                    throw new IOException("connection reset");
+                }
+            }
+        };
+
+        assertThrows(IOException.class, () -> writer.write(entries(FILE_COUNT), brokenOutputStream));
+        // 等待已提交的下载任务结束
+        ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(writer, "executor");
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(openedStreams.get() < FILE_COUNT);
+        assertEquals(openedStreams.get(), closedStreams.get());
+    }
+
+    @Test
+    void prefetchImprovesThroughput() throws IOException {
+        long sequential = measure(1);
+        long prefetched = measure(8);
+        log.info("{}个文件 不预取{}ms 预取8个{}ms", FILE_COUNT, sequential, prefetched);
+    }
+
+    private long measure(int prefetch) throws IOException {
+        ZipExportWriter writer = newWriter(slowOssService(), prefetch);
+        long start = System.nanoTime();
+        writer.write(entries(FILE_COUNT), OutputStream.nullOutputStream());
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private ZipExportWriter newWriter(OssService ossService, int prefetch) {
+        ZipExportWriter writer = new ZipExportWriter();
+        ReflectionTestUtils.setField(writer, "ossService", ossService);
+        ReflectionTestUtils.setField(writer, "fetchThreads", 16);
+        ReflectionTestUtils.setField(writer, "prefetch", prefetch);
+        ReflectionTestUtils.setField(writer, "compressLevel", 1);
+        ReflectionTestUtils.invokeMethod(writer, "init");
+        writers.add(writer);
+        return writer;
+    }
+
+    private OssService slowOssService() {
+        OssService ossService = mock(OssService.class);
+        when(ossService.getObject(eq(BUCKET), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(OSS_LATENCY_MILLIS);
+            openedStreams.incrementAndGet();
+            return new ByteArrayInputStream(CONTENT) {
+                @Override
+                public void close() {
+                    closedStreams.incrementAndGet();
+                }
+            };
+        });
+        return ossService;
+    }
+
+    private static List<ZipExportEntry> entries(int count) {
+        List<ZipExportEntry> entries = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            entries.add(new ZipExportEntry("group/file-" + i, BUCKET, "object-" + i));
+        }
+        return entries;
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.bjfu.contest.pojo.dto;
+
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.repository.ContestGroupRepository;
+import com.bjfu.contest.repository.ContestRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 构造竞赛/队伍DTO时的查询次数不随队伍数量增长 批量加载的关联只随批次数增长
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ContestDTOFetchTests {
+
+    /**
+     * 与application.yml中的default_batch_fetch_size一致
+     */
+    private static final int BATCH_FETCH_SIZE = 100;
+    /**
+     * 超过一个批次的队伍数量
+     */
+    private static final int GROUP_COUNT = 250;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ContestRepository contestRepository;
+    @Autowired
+    private ContestGroupRepository contestGroupRepository;
+
+    private Statistics statistics;
+    private int userSeq = 0;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void contestInfoStatementCountIsConstant() {
+        // 竞赛及创建人1条 流程 指导教师 队伍 奖项各1条 与队伍数量无关
+        assertEquals(5, countContestInfoStatements(createContest(GROUP_COUNT)));
+    }
+
+    @Test
+    void groupListStatementCountGrowsPerBatch() {
+        // 竞赛1条 队伍列表1条 队伍成员每个批次1条
+        int batches = (GROUP_COUNT + BATCH_FETCH_SIZE - 1) / BATCH_FETCH_SIZE;
+        assertEquals(3, batches);
+        assertEquals(2 + batches, countGroupListStatements(createContest(GROUP_COUNT)));
+    }
+
+    private long countContestInfoStatements(Long contestId) {
+        entityManager.clear();
+        statistics.clear();
+        Contest contest = contestRepository.findById(contestId).orElseThrow(IllegalStateException::new);
+        new ContestDTO(contest, true, true, true,
+                false, true, true);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long countGroupListStatements(Long contestId) {
+        entityManager.clear();
+        statistics.clear();
+        Contest contest = contestRepository.findById(contestId).orElseThrow(IllegalStateException::new);
+        contestGroupRepository.findAllByContest(contest)
+                .stream()
+                .map(group -> new ContestGroupDTO(group, false, true, true,
+                        true, false, false))
+                .collect(Collectors.toList());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Long createContest(int groupCount) {
+        User creator = createUser(UserTypeEnum.TEACHER);
+        Contest contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(creator);
+        contest.setStatus(ContestStatusEnum.REGISTERING);
+        contest.setGroupMemberCount(3);
+        entityManager.persist(contest);
+        for(int i = 1; i <= 3; i++) {
+            ContestProcess process = new ContestProcess();
+            process.setContest(contest);
+            process.setName("process" + i);
+            process.setSort(i);
+            process.setStatus(ContestProcessStatusEnum.CREATING);
+            process.setDescription("description");
+            process.setEndSubmitTime(new Date());
+            entityManager.persist(process);
+        }
+        for(int i = 0; i < 2; i++) {
+            ContestTeacher contestTeacher = new ContestTeacher();
+            contestTeacher.setContest(contest);
+            contestTeacher.setTeacher(createUser(UserTypeEnum.TEACHER));
+            entityManager.persist(contestTeacher);
+        }
+        for(int i = 0; i < groupCount; i++) {
+            ContestGroup group = new ContestGroup();
+            group.setContest(contest);
+            group.setName("group" + i);
+            group.setCaptain(createUser(UserTypeEnum.STUDENT));
+            group.setTeacher(createUser(UserTypeEnum.TEACHER));
+            group.setMemberCount(3);
+            entityManager.persist(group);
+            for(int j = 0; j < 3; j++) {
+                ContestRegister register = new ContestRegister();
+                register.setContest(contest);
+                register.setUser(createUser(UserTypeEnum.STUDENT));
+                register.setStatus(ContestRegisterStatusEnum.SIGN_UP);
+                entityManager.persist(register);
+                ContestGroupMember member = new ContestGroupMember();
+                member.setContest(contest);
+                member.setGroup(group);
+                member.setMember(register);
+                entityManager.persist(member);
+            }
+            ContestAward award = new ContestAward();
+            award.setContest(contest);
+            award.setGroup(group);
+            award.setName("award" + i);
+            entityManager.persist(award);
+        }
+        entityManager.flush();
+        return contest.getId();
+    }
+
+    private User createUser(UserTypeEnum type) {
+        userSeq++;
+        User user = new User();
+        user.setAccount("account" + userSeq);
+        user.setEmail("user" + userSeq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + userSeq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return entityManager.persist(user);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.bjfu.contest.pojo.entity;
+
+import com.bjfu.contest.enums.UserGenderEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 应用生成主键后的批量插入 以及逐条插入与批量插入的耗时对比(benchmark)
+ * @author warthog
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+class BatchInsertBenchmarkTests {
+
+    private static final int USER_COUNT = 500;
+    private static final int BENCHMARK_USER_COUNT = 10000;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserRepository userRepository;
+
+    private int userSeq = 0;
+
+    @Test
+    void bulkImportUsesBatches() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+
+        // 每批1条相当于逐条插入
+        session.setJdbcBatchSize(1);
+        statistics.clear();
+        userRepository.saveAll(createUsers(USER_COUNT));
+        entityManager.flush();
+        long rowStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        session.setJdbcBatchSize(BATCH_SIZE);
+        statistics.clear();
+        userRepository.saveAll(createUsers(USER_COUNT));
+        entityManager.flush();
+        long batchStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        assertEquals(USER_COUNT * 2, userRepository.count());
+        // 插入前不需要为获取主键访问数据库
+        assertEquals(USER_COUNT, rowStatements);
+        // 批量插入时同一语句在各批次间复用
+        assertTrue(batchStatements <= USER_COUNT / BATCH_SIZE);
+    }
+
+    /**
+     * 依赖实际耗时 只在benchmark profile中执行
+     */
+    @Test
+    @Tag("benchmark")
+    void bulkImportComparedWithRowByRow() {
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+
+        session.setJdbcBatchSize(1);
+        long rowStart = System.nanoTime();
+        userRepository.saveAll(createUsers(BENCHMARK_USER_COUNT));
+        entityManager.flush();
+        long rowCost = System.nanoTime() - rowStart;
+        entityManager.clear();
+
+        session.setJdbcBatchSize(BATCH_SIZE);
+        long batchStart = System.nanoTime();
+        userRepository.saveAll(createUsers(BENCHMARK_USER_COUNT));
+        entityManager.flush();
+        long batchCost = System.nanoTime() - batchStart;
+        entityManager.clear();
+
+        log.info("导入{}个用户 逐条插入{}ms 批量插入{}ms", BENCHMARK_USER_COUNT,
+                rowCost / 1_000_000, batchCost / 1_000_000);
+        assertEquals(BENCHMARK_USER_COUNT * 2, userRepository.count());
+    }
+
+    @Test
+    void concurrentIdsAreUniqueAndSafeForJs() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator();
+        int threads = 8;
+        int idsPerThread = 50000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            tasks.add(() -> {
+                long[] ids = new long[idsPerThread];
+                for(int j = 0; j < idsPerThread; j++) {
+                    ids[j] = generator.nextId();
+                }
+                return ids;
+            });
+        }
+        Set<Long> allIds = new HashSet<>();
+        for(Future<long[]> future : executor.invokeAll(tasks)) {
+            long[] ids = future.get();
+            for(int i = 0; i < ids.length; i++) {
+                // 同一线程内递增
+                assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                assertTrue(ids[i] > 0 && ids[i] < (1L << 53));
+                allIds.add(ids[i]);
+            }
+        }
+        executor.shutdown();
+        assertEquals(threads * idsPerThread, allIds.size());
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            int seq = ++userSeq;
+            User user = new User();
+            user.setAccount("import" + seq);
+            user.setEmail("import" + seq + "@bjfu.edu.cn");
+            user.setPassword("password");
+            user.setType(UserTypeEnum.STUDENT);
+            user.setStatus(UserStatusEnum.ACTIVE);
+            user.setName("name" + seq);
+            user.setGender(UserGenderEnum.SECRECY);
+            user.setCollege("college");
+            users.add(user);
+        }
+        return users;
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.bjfu.contest.push;
+
+import com.bjfu.contest.cache.ContestCache;
+import com.bjfu.contest.cache.UserInfoCache;
+import com.bjfu.contest.controller.PushController;
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.export.ZipExportWriter;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.pojo.request.process.ProcessEditRequest;
+import com.bjfu.contest.repository.*;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.security.UserInterceptor;
+import com.bjfu.contest.service.ResourceService;
+import com.bjfu.contest.service.impl.ContestProcessServiceImpl;
+import com.bjfu.contest.service.impl.MailServiceImpl;
+import com.bjfu.contest.service.impl.PushServiceImpl;
+import com.bjfu.contest.service.impl.UserServiceImpl;
+import com.bjfu.contest.utils.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * sse推送的认证 按用户/竞赛/队伍分发 以及大量空闲连接下的广播
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:push-topic;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "push.heartbeat-millis=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PushTopicRegistry.class, PushController.class, PushServiceImpl.class, UserInterceptor.class,
+        UserServiceImpl.class, MailServiceImpl.class, MailOutboxDAOImpl.class, UserInfoCache.class,
+        ContestProcessServiceImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestProcessDAOImpl.class,
+        ContestGroupDAOImpl.class, ContestRegisterDAOImpl.class, ContestTeacherDAOImpl.class, ResourceDAOImpl.class,
+        PageQueryHelper.class, SearchIndex.class, ContestCache.class, PushTopicRegistryTests.JacksonConfig.class})
+class PushTopicRegistryTests {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+    private static final long WAIT_MILLIS = 5000;
+
+    @Autowired
+    private PushTopicRegistry pushTopicRegistry;
+    @Autowired
+    private PushController pushController;
+    @Autowired
+    private UserInterceptor userInterceptor;
+    @Autowired
+    private ContestProcessServiceImpl contestProcessService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ContestRepository contestRepository;
+    @Autowired
+    private ContestProcessRepository contestProcessRepository;
+    @Autowired
+    private ContestRegisterRepository contestRegisterRepository;
+    @Autowired
+    private ContestTeacherRepository contestTeacherRepository;
+    @Autowired
+    private ContestGroupRepository contestGroupRepository;
+    @Autowired
+    private ContestGroupMemberRepository contestGroupMemberRepository;
+    @MockBean
+    private ResourceService resourceService;
+    @MockBean
+    private ZipExportWriter zipExportWriter;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(pushController)
+                .addInterceptors(userInterceptor)
+                .build();
+    }
+
+    @Test
+    void requireToken() throws Exception {
+        MvcResult result = mockMvc.perform(get("/push/subscribe"))
+                .andExpect(request().asyncNotStarted())
+                .andReturn();
+        assertTrue(result.getResponse().getContentAsString()
+                .contains(String.valueOf(ResultEnum.NEED_TO_LOGIN.getCode())));
+    }
+
+    @Test
+    void eventsAreRoutedByTopic() throws Exception {
+        User creator = userRepository.save(createUser(UserTypeEnum.TEACHER));
+        User teacher = userRepository.save(createUser(UserTypeEnum.TEACHER));
+        User student = userRepository.save(createUser(UserTypeEnum.STUDENT));
+        User other = userRepository.save(createUser(UserTypeEnum.STUDENT));
+        Contest contest = createContest(creator);
+        Contest otherContest = createContest(creator);
+        ContestTeacher contestTeacher = new ContestTeacher();
+        contestTeacher.setContest(contest);
+        contestTeacher.setTeacher(teacher);
+        contestTeacherRepository.save(contestTeacher);
+        ContestGroup group = createGroup(contest, register(contest, student));
+        ContestGroup otherGroup = createGroup(otherContest, register(otherContest, other));
+        ContestProcess process = createProcess(contest);
+
+        MvcResult studentStream = subscribe(student);
+        MvcResult teacherStream = subscribe(teacher);
+        MvcResult otherStream = subscribe(other);
+        assertEquals(3, pushTopicRegistry.connectionCount());
+        // 建立连接后立即写出心跳
+        await(studentStream, content -> content.startsWith(":heartbeat"));
+
+        // 流程状态变化推送给竞赛的学生和指导教师
+        contestProcessService.edit(editRequest(contest, process, ContestProcessStatusEnum.RUNNING), creator.getAccount());
+        String studentContent = await(studentStream, content -> content.contains("event:PROCESS_STATUS"));
+        assertTrue(studentContent.contains("\"status\":\"RUNNING\""));
+        await(teacherStream, content -> content.contains("event:PROCESS_STATUS"));
+        // 状态未变化时不推送
+        contestProcessService.edit(editRequest(contest, process, ContestProcessStatusEnum.RUNNING), creator.getAccount());
+
+        pushTopicRegistry.publishToGroups(Collections.singletonList(group.getId()), PushEventTypeEnum.GROUP_PROMOTE, "group");
+        pushTopicRegistry.publishToGroups(Collections.singletonList(otherGroup.getId()), PushEventTypeEnum.GROUP_PROMOTE, "other-group");
+        pushTopicRegistry.publishToUsers(Collections.singletonList(other.getId()), PushEventTypeEnum.NOTIFY, "中文通知");
+        pushTopicRegistry.publishBroadcast(NotifyTypeEnum.TEACHERS_NOTIFY, PushEventTypeEnum.NOTIFY, "teachers");
+        pushTopicRegistry.publishBroadcast(NotifyTypeEnum.STUDENTS_NOTIFY, PushEventTypeEnum.NOTIFY, "students");
+
+        studentContent = await(studentStream, content -> content.contains("\"students\""));
+        assertEquals(1, count(studentContent, "event:PROCESS_STATUS"));
+        assertTrue(studentContent.contains("\"group\""));
+        assertFalse(studentContent.contains("other-group"));
+        assertFalse(studentContent.contains("teachers"));
+        String teacherContent = await(teacherStream, content -> content.contains("\"teachers\""));
+        assertFalse(teacherContent.contains("\"group\""));
+        assertFalse(teacherContent.contains("students"));
+        String otherContent = await(otherStream, content -> content.contains("\"students\""));
+        assertTrue(otherContent.contains("other-group"));
+        assertTrue(otherContent.contains("中文通知"));
+        assertFalse(otherContent.contains("PROCESS_STATUS"));
+
+        pushTopicRegistry.heartbeat();
+        await(otherStream, content -> count(content, ":heartbeat") == 2);
+        Arrays.asList(studentStream, teacherStream, otherStream)
+                .forEach(stream -> stream.getRequest().getAsyncContext().complete());
+        assertEquals(0, pushTopicRegistry.connectionCount());
+    }
+
+    @Test
+    void broadcastToManyIdleConnections() throws Exception {
+        int connectionCount = 2000;
+        User student = userRepository.save(createUser(UserTypeEnum.STUDENT));
+        List<MvcResult> streams = new ArrayList<>();
+        for(int i = 0; i < connectionCount; i++) {
+            streams.add(subscribe(student));
+        }
+        assertEquals(connectionCount, pushTopicRegistry.connectionCount());
+        pushTopicRegistry.publishBroadcast(NotifyTypeEnum.ALL_NOTIFY, PushEventTypeEnum.NOTIFY, "all");
+        for(MvcResult stream : streams) {
+            await(stream, content -> content.contains("event:NOTIFY"));
+        }
+        // 连接结束后取消订阅
+        streams.forEach(stream -> stream.getRequest().getAsyncContext().complete());
+        assertEquals(0, pushTopicRegistry.connectionCount());
+    }
+
+    private MvcResult subscribe(User user) throws Exception {
+        String token = JwtUtil.generateToken(Collections.singletonMap("userId", user.getId().toString()));
+        return mockMvc.perform(get("/push/subscribe").param("token", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private String await(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        String content = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        while(!condition.test(content)) {
+            assertTrue(System.currentTimeMillis() < deadline, "未收到推送: " + content);
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        }
+        return content;
+    }
+
+    private int count(String content, String part) {
+        return content.split(part, -1).length - 1;
+    }
+
+    private ProcessEditRequest editRequest(Contest contest, ContestProcess process, ContestProcessStatusEnum status) {
+        ProcessEditRequest request = new ProcessEditRequest();
+        request.setContestId(contest.getId());
+        request.setProcessId(process.getId());
+        request.setName(process.getName());
+        request.setStatus(status);
+        request.setDescription(process.getDescription());
+        request.setEndSubmitTime(process.getEndSubmitTime());
+        return request;
+    }
+
+    private Contest createContest(User creator) {
+        Contest contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(creator);
+        contest.setStatus(ContestStatusEnum.RUNNING);
+        contest.setGroupMemberCount(5);
+        return contestRepository.save(contest);
+    }
+
+    private ContestProcess createProcess(Contest contest) {
+        ContestProcess process = new ContestProcess();
+        process.setContest(contest);
+        process.setName("process");
+        process.setSort(1);
+        process.setStatus(ContestProcessStatusEnum.CREATING);
+        process.setDescription("description");
+        process.setEndSubmitTime(new Date());
+        return contestProcessRepository.save(process);
+    }
+
+    private ContestRegister register(Contest contest, User user) {
+        ContestRegister register = new ContestRegister();
+        register.setContest(contest);
+        register.setUser(user);
+        register.setStatus(ContestRegisterStatusEnum.SIGN_UP);
+        return contestRegisterRepository.save(register);
+    }
+
+    private ContestGroup createGroup(Contest contest, ContestRegister captain) {
+        ContestGroup group = new ContestGroup();
+        group.setContest(contest);
+        group.setName("group");
+        group.setCaptain(captain.getUser());
+        group.setMemberCount(1);
+        contestGroupRepository.save(group);
+        ContestGroupMember member = new ContestGroupMember();
+        member.setContest(contest);
+        member.setGroup(group);
+        member.setMember(captain);
+        contestGroupMemberRepository.save(member);
+        return group;
+    }
+
+    private User createUser(UserTypeEnum type) {
+        int seq = SEQ.incrementAndGet();
+        User user = new User();
+        user.setAccount("push" + seq);
+        user.setEmail("push" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return user;
+    }
+
+    @TestConfiguration
+    static class JacksonConfig {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.bjfu.contest.search;
+
+import com.bjfu.contest.enums.UserGenderEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 倒排索引与like查询的结果一致性及耗时对比(benchmark)
+ * @author warthog
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class SearchIndexBenchmarkTests {
+
+    private static final int USER_COUNT = 1000;
+    private static final int BENCHMARK_USER_COUNT = 10000;
+    private static final int ROUNDS = 20;
+    private static final String SURNAMES = "王李张刘陈杨黄赵吴周徐孙马朱胡郭何高林罗";
+    private static final String GIVEN_NAMES = "伟芳娜敏静丽强磊军洋勇艳杰娟涛明超秀霞平刚桂英华玉兰";
+    private static final List<String> KEYWORDS = Arrays.asList("王", "张伟", "丽", "陈秀英", "not-exist");
+    private static final List<UserStatusEnum> STATUSES = Collections.singletonList(UserStatusEnum.ACTIVE);
+    private static final List<UserTypeEnum> TYPES = Collections.singletonList(UserTypeEnum.STUDENT);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void indexMatchesLikeQuery() {
+        NgramIndex index = createUsers(USER_COUNT);
+        for(String keyword : KEYWORDS) {
+            assertEquals(findByLike(keyword), index.search(keyword), keyword);
+        }
+    }
+
+    /**
+     * 依赖实际耗时 只在benchmark profile中执行
+     */
+    @Test
+    @Tag("benchmark")
+    void indexComparedWithLikeQuery() {
+        NgramIndex index = createUsers(BENCHMARK_USER_COUNT);
+        for(String keyword : KEYWORDS) {
+            Set<Long> expected = findByLike(keyword);
+            assertEquals(expected, index.search(keyword), keyword);
+
+            long likeStart = System.nanoTime();
+            for(int i = 0; i < ROUNDS; i++) {
+                userRepository.findByNameLikeAndStatusInAndTypeIn("%" + keyword + "%", STATUSES, TYPES);
+                entityManager.clear();
+            }
+            long likeCost = System.nanoTime() - likeStart;
+            long indexStart = System.nanoTime();
+            for(int i = 0; i < ROUNDS; i++) {
+                Set<Long> ids = index.search(keyword);
+                if(!ids.isEmpty()) {
+                    userRepository.findByIdInAndNameLikeAndStatusInAndTypeIn(ids, "%" + keyword + "%", STATUSES, TYPES);
+                }
+                entityManager.clear();
+            }
+            long indexCost = System.nanoTime() - indexStart;
+            log.info("关键词[{}] 命中{}个 like平均{}us 索引平均{}us", keyword, expected.size(),
+                    likeCost / ROUNDS / 1000, indexCost / ROUNDS / 1000);
+        }
+    }
+
+    private Set<Long> findByLike(String keyword) {
+        return userRepository.findByNameLikeAndStatusInAndTypeIn("%" + keyword + "%", STATUSES, TYPES)
+                .stream()
+                .map(User::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 创建随机姓名的用户 同时放入索引
+     */
+    private NgramIndex createUsers(int count) {
+        Random random = new Random(42);
+        NgramIndex index = new NgramIndex();
+        for(int i = 0; i < count; i++) {
+            User user = new User();
+            user.setAccount("account" + i);
+            user.setEmail("user" + i + "@bjfu.edu.cn");
+            user.setPassword("password");
+            user.setType(UserTypeEnum.STUDENT);
+            user.setStatus(UserStatusEnum.ACTIVE);
+            user.setName(randomName(random));
+            user.setGender(UserGenderEnum.SECRECY);
+            user.setCollege("college");
+            entityManager.persist(user);
+            index.put(user.getId(), user.getName());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return index;
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        name.append(SURNAMES.charAt(random.nextInt(SURNAMES.length())));
+        int length = 1 + random.nextInt(2);
+        for(int i = 0; i < length; i++) {
+            name.append(GIVEN_NAMES.charAt(random.nextInt(GIVEN_NAMES.length())));
+        }
+        return name.toString();
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.bjfu.contest.search;
+
+import com.bjfu.contest.enums.ContestStatusEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.repository.ContestRepository;
+import com.bjfu.contest.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 索引重建后整体替换 重建期间的增量更新不丢失 没有命中时退回like查询
+ * @author warthog
+ */
+class SearchIndexTests {
+
+    private UserRepository userRepository;
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        ContestRepository contestRepository = mock(ContestRepository.class);
+        when(contestRepository.findAllSearchFieldsByStatusNot(ContestStatusEnum.DELETE)).thenReturn(new ArrayList<>());
+        searchIndex = new SearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "userRepository", userRepository);
+        ReflectionTestUtils.setField(searchIndex, "contestRepository", contestRepository);
+        ReflectionTestUtils.setField(searchIndex, "enabled", true);
+        ReflectionTestUtils.setField(searchIndex, "maxInSize", 1000);
+        ReflectionTestUtils.invokeMethod(searchIndex, "init");
+    }
+
+    @AfterEach
+    void destroy() {
+        ReflectionTestUtils.invokeMethod(searchIndex, "destroy");
+    }
+
+    @Test
+    void rebuildReplacesStaleEntries() {
+        when(userRepository.findAllSearchFieldsByStatusNot(UserStatusEnum.DELETE))
+                .thenReturn(rows(row(1L, "张伟")));
+        searchIndex.rebuild();
+        assertEquals(Optional.of(Collections.singleton(1L)), searchIndex.searchUsers("张伟", null, null, null));
+
+        // 绕过增量更新的修改在重建后生效
+        when(userRepository.findAllSearchFieldsByStatusNot(UserStatusEnum.DELETE))
+                .thenReturn(rows(row(1L, "李娜"), row(2L, "王芳")));
+        searchIndex.rebuild();
+        assertEquals(Optional.of(Collections.singleton(1L)), searchIndex.searchUsers("李娜", null, null, null));
+        assertEquals(Optional.of(Collections.singleton(2L)), searchIndex.searchUsers("王芳", null, null, null));
+        // 没有命中时退回like查询
+        assertFalse(searchIndex.searchUsers("张伟", null, null, null).isPresent());
+    }
+
+    @Test
+    void changesDuringRebuildAreReplayed() {
+        // 读取快照期间发生的更新及删除
+        when(userRepository.findAllSearchFieldsByStatusNot(UserStatusEnum.DELETE)).thenAnswer(invocation -> {
+            searchIndex.indexUser(user(1L, "李娜"));
+            searchIndex.removeUser(2L);
+            return rows(row(1L, "张伟"), row(2L, "王芳"), row(3L, "张敏"));
+        });
+        searchIndex.rebuild();
+
+        assertEquals(Optional.of(Collections.singleton(1L)), searchIndex.searchUsers("李娜", null, null, null));
+        assertFalse(searchIndex.searchUsers("王芳", null, null, null).isPresent());
+        assertEquals(Optional.of(Collections.singleton(3L)), searchIndex.searchUsers("张", null, null, null));
+    }
+
+    private static User user(Long id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        return user;
+    }
+
+    private static Object[] row(Long id, String name) {
+        return new Object[]{id, name, "2020", "college", "major"};
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        List<Object[]> result = new ArrayList<>();
+        Collections.addAll(result, rows);
+        return result;
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.OssDiskCache;
+import com.bjfu.contest.pojo.dto.OssObjectStatDTO;
+import com.bjfu.contest.utils.FileResponseUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 本地磁盘缓存的后台下载 命中 淘汰及按范围读取
+ * @author warthog
+ */
+@Slf4j
+class CachingOssServiceImplTests {
+
+    private static final String BUCKET = "contest-file";
+    private static final int FILE_SIZE = 256 * 1024;
+    private static final int CACHED_FILE_COUNT = 4;
+    private static final byte[] CONTENT = new byte[FILE_SIZE];
+
+    static {
+        new Random(42).nextBytes(CONTENT);
+    }
+
+    @TempDir
+    Path cacheDir;
+
+    private MinioOssServiceImpl minioOssService;
+    private CachingOssServiceImpl cachingOssService;
+    private final List<OssDiskCache> ossDiskCaches = new ArrayList<>();
+
+    @AfterEach
+    void destroy() {
+        ossDiskCaches.forEach(ossDiskCache -> ReflectionTestUtils.invokeMethod(ossDiskCache, "destroy"));
+    }
+
+    @BeforeEach
+    void setUp() {
+        minioOssService = mock(MinioOssServiceImpl.class);
+        when(minioOssService.statObject(eq(BUCKET), anyString()))
+                .thenReturn(Optional.of(new OssObjectStatDTO((long) FILE_SIZE, "etag")));
+        when(minioOssService.getObject(eq(BUCKET), anyString())).thenAnswer(invocation -> {
+            // 模拟oss的请求延迟
+            Thread.sleep(20);
+            return new ByteArrayInputStream(CONTENT);
+        });
+        OssDiskCache ossDiskCache = new OssDiskCache();
+        ReflectionTestUtils.setField(ossDiskCache, "dir", cacheDir.toString());
+        ReflectionTestUtils.setField(ossDiskCache, "maxBytes", (long) FILE_SIZE * CACHED_FILE_COUNT + 8 * 1024);
+        ReflectionTestUtils.setField(ossDiskCache, "loadThreads", 2);
+        ReflectionTestUtils.invokeMethod(ossDiskCache, "init");
+        ossDiskCaches.add(ossDiskCache);
+        cachingOssService = new CachingOssServiceImpl();
+        ReflectionTestUtils.setField(cachingOssService, "minioOssService", minioOssService);
+        ReflectionTestUtils.setField(cachingOssService, "ossDiskCache", ossDiskCache);
+        ReflectionTestUtils.setField(cachingOssService, "maxObjectBytes", (long) FILE_SIZE);
+    }
+
+    @Test
+    void concurrentMissesStreamFromOssAndCacheOnce() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        for(int i = 0; i < threads * 4; i++) {
+            tasks.add(() -> {
+                try (InputStream stream = cachingOssService.getObject(BUCKET, "hot")) {
+                    return stream.readAllBytes();
+                }
+            });
+        }
+        // 下载期间未命中的读取直接从oss读取
+        for(Future<byte[]> future : executor.invokeAll(tasks)) {
+            assertArrayEquals(CONTENT, future.get());
+        }
+        executor.shutdown();
+        awaitLocalFile("hot");
+        // 只在后台下载一次
+        verify(minioOssService, times(1)).statObject(BUCKET, "hot");
+
+        // 缓存后不再从oss读取
+        clearInvocations(minioOssService);
+        try (InputStream stream = cachingOssService.getObject(BUCKET, "hot")) {
+            assertArrayEquals(CONTENT, stream.readAllBytes());
+        }
+        try (InputStream stream = cachingOssService.getObject(BUCKET, "hot", 1000, 500)) {
+            assertArrayEquals(Arrays.copyOfRange(CONTENT, 1000, 1500), stream.readAllBytes());
+        }
+        // 起始位置超出文件大小时为空
+        try (InputStream stream = cachingOssService.getObject(BUCKET, "hot", FILE_SIZE + 10, 500)) {
+            assertEquals(0, stream.readAllBytes().length);
+        }
+        verify(minioOssService, never()).getObject(anyString(), anyString());
+        verify(minioOssService, never()).getObject(anyString(), anyString(), anyLong(), anyLong());
+
+        // 删除文件后缓存失效
+        cachingOssService.deleteObject(BUCKET, "hot");
+        assertFalse(cachingOssService.getLocalFile(BUCKET, "hot").isPresent());
+        awaitLocalFile("hot");
+        verify(minioOssService, times(1)).statObject(BUCKET, "hot");
+    }
+
+    @Test
+    void invalidateDuringLoadDiscardsFile() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioOssService.getObject(BUCKET, "stale")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new ByteArrayInputStream(CONTENT);
+        });
+        assertFalse(cachingOssService.getLocalFile(BUCKET, "stale").isPresent());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 下载期间删除 下载完成后的文件不放入缓存
+        cachingOssService.deleteObject(BUCKET, "stale");
+        doReturn(new ByteArrayInputStream(CONTENT)).when(minioOssService).getObject(BUCKET, "stale");
+        release.countDown();
+        awaitLocalFile("stale");
+        verify(minioOssService, times(2)).statObject(BUCKET, "stale");
+        // 先前下载的文件完成后删除
+        long deadline = System.currentTimeMillis() + 5000;
+        while(countFiles() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void cacheSizeIsBounded() throws Exception {
+        for(int i = 0; i < CACHED_FILE_COUNT * 3; i++) {
+            awaitLocalFile("object-" + i);
+        }
+        // 淘汰及删除文件在后台线程进行
+        long deadline = System.currentTimeMillis() + 5000;
+        while(countFiles() > CACHED_FILE_COUNT && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(countFiles() <= CACHED_FILE_COUNT, "缓存文件数" + countFiles());
+    }
+
+    @Test
+    void largeObjectsAreNotCached() {
+        when(minioOssService.statObject(BUCKET, "large"))
+                .thenReturn(Optional.of(new OssObjectStatDTO((long) FILE_SIZE + 1, "etag")));
+        when(minioOssService.getObject(BUCKET, "large", 0, 10)).thenReturn(new ByteArrayInputStream(new byte[10]));
+
+        assertFalse(cachingOssService.getLocalFile(BUCKET, "large").isPresent());
+        verify(minioOssService, timeout(5000)).statObject(BUCKET, "large");
+        cachingOssService.getObject(BUCKET, "large", 0, 10);
+        verify(minioOssService).getObject(BUCKET, "large", 0, 10);
+        verify(minioOssService, after(200).never()).getObject(BUCKET, "large");
+        assertFalse(cachingOssService.getLocalFile(BUCKET, "large").isPresent());
+    }
+
+    @Test
+    void rangeResponseFromLocalFile() throws Exception {
+        Path localFile = awaitLocalFile("range");
+        FileResponseUtil.RangeReader reader = (offset, length) -> {
+            throw new IllegalStateException("本地文件存在时不应从oss读取");
+        };
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileResponseUtil.writeFile(request, response, "规则.pdf", FILE_SIZE, localFile, reader);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/" + FILE_SIZE, response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 100, 200), response.getContentAsByteArray());
+
+        MockHttpServletResponse fullResponse = new MockHttpServletResponse();
+        FileResponseUtil.writeFile(new MockHttpServletRequest(), fullResponse, "规则.pdf", FILE_SIZE, localFile, reader);
+        assertEquals(200, fullResponse.getStatus());
+        assertArrayEquals(CONTENT, fullResponse.getContentAsByteArray());
+
+        MockHttpServletRequest invalidRequest = new MockHttpServletRequest();
+        invalidRequest.addHeader(HttpHeaders.RANGE, "bytes=" + FILE_SIZE + "-");
+        MockHttpServletResponse invalidResponse = new MockHttpServletResponse();
+        FileResponseUtil.writeFile(invalidRequest, invalidResponse, "规则.pdf", FILE_SIZE, localFile, reader);
+        assertEquals(416, invalidResponse.getStatus());
+
+        // 缓存文件已被淘汰时从oss读取
+        MockHttpServletResponse fallbackResponse = new MockHttpServletResponse();
+        FileResponseUtil.writeFile(request, fallbackResponse, "规则.pdf", FILE_SIZE, cacheDir.resolve("evicted"),
+                (offset, length) -> new ByteArrayInputStream(CONTENT, (int) offset, (int) length));
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 100, 200), fallbackResponse.getContentAsByteArray());
+    }
+
+    /**
+     * 等待后台下载完成
+     */
+    private Path awaitLocalFile(String objectName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        Optional<Path> localFile;
+        while(!(localFile = cachingOssService.getLocalFile(BUCKET, objectName)).isPresent()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return localFile.orElseThrow(() -> new IllegalStateException("缓存超时: " + objectName));
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.count();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.OrganizationTreeCache;
+import com.bjfu.contest.controller.CollegeMajorGradeClassController;
+import com.bjfu.contest.dao.impl.CollegeMajorGradeClassDAOImpl;
+import com.bjfu.contest.pojo.BaseResult;
+import com.bjfu.contest.pojo.dto.OrganizationTreeDTO;
+import com.bjfu.contest.pojo.vo.OrganizationTreeVO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 学院-专业-年级-班级树的缓存 变更后重建及ETag
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:organization-tree;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CollegeMajorGradeClassServiceImpl.class, CollegeMajorGradeClassDAOImpl.class, OrganizationTreeCache.class})
+class CollegeMajorGradeClassServiceImplTests {
+
+    @Autowired
+    private CollegeMajorGradeClassServiceImpl collegeMajorGradeClassService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void treeIsCachedAndRebuiltAfterChange() {
+        collegeMajorGradeClassService.createCollege("信息学院");
+        collegeMajorGradeClassService.createMajor("信息学院", "计算机科学与技术");
+        collegeMajorGradeClassService.createGrade("信息学院", "计算机科学与技术", "2018");
+        collegeMajorGradeClassService.createCompany("信息学院", "计算机科学与技术", "2018", "计算机18-2");
+        collegeMajorGradeClassService.createCompany("信息学院", "计算机科学与技术", "2018", "计算机18-1");
+        collegeMajorGradeClassService.createGrade("信息学院", "计算机科学与技术", "2019");
+        collegeMajorGradeClassService.createCollege("工学院");
+
+        OrganizationTreeDTO tree = collegeMajorGradeClassService.getTree();
+        assertTrue(tree.getColleges().containsAll(Arrays.asList("信息学院", "工学院")));
+        assertEquals(Arrays.asList("计算机18-1", "计算机18-2"),
+                tree.getTree().get("信息学院").get("计算机科学与技术").get("2018"));
+        // 没有班级的年级也在树中
+        assertEquals(Collections.emptyList(), tree.getTree().get("信息学院").get("计算机科学与技术").get("2019"));
+        assertEquals(Collections.emptyMap(), collegeMajorGradeClassService.findAllClassByCollege("工学院"));
+        assertThrows(UnsupportedOperationException.class, () -> tree.getTree().put("林学院", Collections.emptyMap()));
+
+        // 未变更时不访问数据库 返回同一棵树
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        for(int i = 0; i < 1000; i++) {
+            assertSame(tree, collegeMajorGradeClassService.getTree());
+            collegeMajorGradeClassService.findAllCollege();
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // 变更提交后重建 旧树保持不变
+        collegeMajorGradeClassService.createCompany("信息学院", "计算机科学与技术", "2019", "计算机19-1");
+        OrganizationTreeDTO newTree = collegeMajorGradeClassService.getTree();
+        assertNotSame(tree, newTree);
+        assertNotEquals(tree.getEtag(), newTree.getEtag());
+        assertEquals(Collections.emptyList(), tree.getTree().get("信息学院").get("计算机科学与技术").get("2019"));
+        assertEquals(Collections.singletonList("计算机19-1"),
+                newTree.getTree().get("信息学院").get("计算机科学与技术").get("2019"));
+
+        collegeMajorGradeClassService.deleteCompany("信息学院", "计算机科学与技术", "2019", "计算机19-1");
+        assertEquals(tree.getEtag(), collegeMajorGradeClassService.getTree().getEtag());
+    }
+
+    @Test
+    void notModifiedWhenEtagMatches() {
+        collegeMajorGradeClassService.createCollege("林学院");
+        CollegeMajorGradeClassController controller = new CollegeMajorGradeClassController();
+        ReflectionTestUtils.setField(controller, "collegeMajorGradeClassService", collegeMajorGradeClassService);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        BaseResult<OrganizationTreeVO> result = controller.tree(new ServletWebRequest(new MockHttpServletRequest("GET", "/college/tree"), response));
+        assertTrue(result.getObject().getColleges().contains("林学院"));
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/college/tree");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse notModifiedResponse = new MockHttpServletResponse();
+        assertNull(controller.tree(new ServletWebRequest(request, notModifiedResponse)));
+        assertEquals(304, notModifiedResponse.getStatus());
+
+        collegeMajorGradeClassService.createMajor("林学院", "林学");
+        MockHttpServletResponse changedResponse = new MockHttpServletResponse();
+        assertNotNull(controller.tree(new ServletWebRequest(request, changedResponse)));
+        assertEquals(200, changedResponse.getStatus());
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.ContestCache;
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.pojo.dto.ContestGroupDTO;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.pojo.request.group.GroupCreateRequest;
+import com.bjfu.contest.pojo.request.group.GroupJoinRequest;
+import com.bjfu.contest.repository.*;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.service.ResourceService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 两种加锁方式下并发加入队伍的正确性及吞吐量
+ * 每个学生只能加入一支队伍 队伍人数不能超过上限
+ * @author warthog
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:group-stress;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.jpa.show-sql=false",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "contest.group.optimistic-max-attempts=10"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ContestGroupServiceImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestProcessDAOImpl.class,
+        ContestRegisterDAOImpl.class, ContestGroupDAOImpl.class, ResourceDAOImpl.class, PageQueryHelper.class,
+        SearchIndex.class, ContestCache.class})
+class ContestGroupJoinStressTests {
+
+    private static final int STUDENT_COUNT = 200;
+    private static final int THREAD_COUNT = 16;
+    private static final int JOINER_COUNT = 100;
+    private static final int GROUP_MEMBER_LIMIT = 5;
+    private static final AtomicInteger USER_SEQ = new AtomicInteger();
+
+    @Autowired
+    private ContestGroupServiceImpl contestGroupService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ContestRepository contestRepository;
+    @Autowired
+    private ContestProcessRepository contestProcessRepository;
+    @Autowired
+    private ContestRegisterRepository contestRegisterRepository;
+    @Autowired
+    private ContestGroupRepository contestGroupRepository;
+    @Autowired
+    private ContestGroupMemberRepository contestGroupMemberRepository;
+    @MockBean
+    private ResourceService resourceService;
+
+    @ParameterizedTest
+    @EnumSource(GroupLockModeEnum.class)
+    void concurrentJoinKeepsOneGroupPerMember(GroupLockModeEnum lockMode) throws Exception {
+        ReflectionTestUtils.setField(contestGroupService, "lockMode", lockMode);
+        // 人数上限足够大 只验证每人一支队伍
+        Contest contest = createContest(STUDENT_COUNT + 1);
+        List<ContestGroup> groups = Arrays.asList(createGroup(contest), createGroup(contest));
+        List<User> students = new ArrayList<>();
+        for(int i = 0; i < STUDENT_COUNT; i++) {
+            User student = createUser(UserTypeEnum.STUDENT);
+            register(contest, student);
+            students.add(student);
+        }
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for(User student : students) {
+            for(ContestGroup group : groups) {
+                tasks.add(() -> join(group, student));
+            }
+        }
+        Collections.shuffle(tasks, new Random(42));
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        long start = System.nanoTime();
+        int joined = 0;
+        for(Future<Boolean> future : executor.invokeAll(tasks)) {
+            if(future.get()) {
+                joined++;
+            }
+        }
+        long cost = System.nanoTime() - start;
+        executor.shutdown();
+
+        assertEquals(STUDENT_COUNT, joined);
+        Map<Long, Long> groupCountByMember = new HashMap<>();
+        contestGroupMemberRepository.findAll()
+                .stream()
+                .filter(member -> member.getContest().getId().equals(contest.getId()))
+                .forEach(member -> groupCountByMember.merge(member.getMember().getId(), 1L, Long::sum));
+        // 两个队长加上所有学生 每人只在一支队伍中
+        assertEquals(STUDENT_COUNT + groups.size(), groupCountByMember.size());
+        groupCountByMember.values().forEach(count -> assertEquals(1L, count));
+        log.info("{}模式 {}次加入请求 成功{}次 耗时{}ms 吞吐{}次/秒", lockMode, tasks.size(), joined,
+                cost / 1_000_000, tasks.size() * 1_000_000_000L / cost);
+    }
+
+    @ParameterizedTest
+    @EnumSource(GroupLockModeEnum.class)
+    void concurrentJoinNeverExceedsMemberLimit(GroupLockModeEnum lockMode) throws Exception {
+        ReflectionTestUtils.setField(contestGroupService, "lockMode", lockMode);
+        Contest contest = createContest(GROUP_MEMBER_LIMIT);
+        ContestGroup group = createGroup(contest);
+        List<Callable<ResultEnum>> tasks = new ArrayList<>();
+        for(int i = 0; i < JOINER_COUNT; i++) {
+            User student = createUser(UserTypeEnum.STUDENT);
+            register(contest, student);
+            tasks.add(() -> {
+                GroupJoinRequest request = new GroupJoinRequest();
+                request.setGroupId(group.getId());
+                try {
+                    contestGroupService.join(request, student.getAccount());
+                    return ResultEnum.SUCCESS;
+                } catch (BizException exception) {
+                    return exception.getResultEnum();
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(JOINER_COUNT);
+        Map<ResultEnum, Integer> results = new EnumMap<>(ResultEnum.class);
+        for(Future<ResultEnum> future : executor.invokeAll(tasks)) {
+            results.merge(future.get(), 1, Integer::sum);
+        }
+        executor.shutdown();
+
+        // 队长占一个名额
+        assertEquals(GROUP_MEMBER_LIMIT - 1, results.getOrDefault(ResultEnum.SUCCESS, 0));
+        assertEquals(JOINER_COUNT - GROUP_MEMBER_LIMIT + 1, results.getOrDefault(ResultEnum.GROUP_FULL, 0));
+        long memberRows = contestGroupMemberRepository.findAll()
+                .stream()
+                .filter(member -> member.getGroup().getId().equals(group.getId()))
+                .count();
+        assertEquals(GROUP_MEMBER_LIMIT, memberRows);
+        assertEquals(GROUP_MEMBER_LIMIT, contestGroupRepository.findById(group.getId())
+                .orElseThrow(IllegalStateException::new)
+                .getMemberCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(GroupLockModeEnum.class)
+    void createdGroupCountsCaptain(GroupLockModeEnum lockMode) {
+        ReflectionTestUtils.setField(contestGroupService, "lockMode", lockMode);
+        Contest contest = createContest(GROUP_MEMBER_LIMIT);
+        User captain = createUser(UserTypeEnum.STUDENT);
+        register(contest, captain);
+        GroupCreateRequest request = new GroupCreateRequest();
+        request.setContestId(contest.getId());
+        request.setName("group");
+
+        ContestGroupDTO group = contestGroupService.create(request, captain.getAccount());
+
+        // 返回的人数与数据库一致
+        assertEquals(1, group.getMemberCount());
+        assertEquals(1, contestGroupRepository.findById(group.getId())
+                .orElseThrow(IllegalStateException::new)
+                .getMemberCount());
+    }
+
+    private boolean join(ContestGroup group, User student) {
+        GroupJoinRequest request = new GroupJoinRequest();
+        request.setGroupId(group.getId());
+        try {
+            contestGroupService.join(request, student.getAccount());
+            return true;
+        } catch (BizException exception) {
+            assertEquals(ResultEnum.HAS_JOINED_GROUP, exception.getResultEnum());
+            return false;
+        }
+    }
+
+    private Contest createContest(int groupMemberLimit) {
+        Contest contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(createUser(UserTypeEnum.TEACHER));
+        contest.setStatus(ContestStatusEnum.REGISTERING);
+        contest.setGroupMemberCount(groupMemberLimit);
+        contestRepository.save(contest);
+        ContestProcess process = new ContestProcess();
+        process.setContest(contest);
+        process.setName("register");
+        process.setSort(1);
+        process.setStatus(ContestProcessStatusEnum.RUNNING);
+        process.setDescription("description");
+        process.setEndSubmitTime(new Date());
+        contestProcessRepository.save(process);
+        return contest;
+    }
+
+    private ContestGroup createGroup(Contest contest) {
+        User captain = createUser(UserTypeEnum.STUDENT);
+        ContestRegister captainRegister = register(contest, captain);
+        ContestGroup group = new ContestGroup();
+        group.setContest(contest);
+        group.setName("group");
+        group.setCaptain(captain);
+        group.setMemberCount(1);
+        contestGroupRepository.save(group);
+        ContestGroupMember member = new ContestGroupMember();
+        member.setContest(contest);
+        member.setGroup(group);
+        member.setMember(captainRegister);
+        contestGroupMemberRepository.save(member);
+        return group;
+    }
+
+    private ContestRegister register(Contest contest, User user) {
+        ContestRegister register = new ContestRegister();
+        register.setContest(contest);
+        register.setUser(user);
+        register.setStatus(ContestRegisterStatusEnum.SIGN_UP);
+        return contestRegisterRepository.save(register);
+    }
+
+    private User createUser(UserTypeEnum type) {
+        int seq = USER_SEQ.incrementAndGet();
+        User user = new User();
+        user.setAccount("stress" + seq);
+        user.setEmail("stress" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return userRepository.save(user);
+    }
+
+}
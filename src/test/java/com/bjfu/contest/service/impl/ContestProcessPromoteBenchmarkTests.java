@@ -0,0 +1,196 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.ContestCache;
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.export.ZipExportWriter;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.pojo.request.process.ProcessPromoteGroupsRequest;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.repository.ContestProcessGroupRepository;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.service.ResourceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批量晋级队伍的正确性 以及与逐条插入的耗时对比(benchmark)
+ * @author warthog
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import({ContestProcessServiceImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestProcessDAOImpl.class,
+        ContestGroupDAOImpl.class, ResourceDAOImpl.class, PageQueryHelper.class, SearchIndex.class, ContestCache.class})
+class ContestProcessPromoteBenchmarkTests {
+
+    private static final int GROUP_COUNT = 200;
+    private static final int BENCHMARK_GROUP_COUNT = 10000;
+
+    @Autowired
+    private ContestProcessServiceImpl contestProcessService;
+    @Autowired
+    private ContestGroupDAOImpl contestGroupDAO;
+    @Autowired
+    private ContestProcessGroupRepository contestProcessGroupRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @MockBean
+    private ResourceService resourceService;
+    @MockBean
+    private ZipExportWriter zipExportWriter;
+    @MockBean
+    private ObjectMapper objectMapper;
+    @MockBean
+    private PushTopicRegistry pushTopicRegistry;
+
+    @Test
+    void promoteGroups() {
+        User creator = createUser();
+        Contest contest = createContest(creator);
+        List<ContestGroup> groups = createGroups(contest, GROUP_COUNT);
+        ContestProcess first = createProcess(contest, 1);
+        ContestProcess second = createProcess(contest, 2);
+        // 已有部分队伍时只插入剩余的队伍
+        contestGroupDAO.addAllToProcess(first, groups.subList(0, 10));
+        entityManager.flush();
+        entityManager.clear();
+
+        contestProcessService.promoteGroups(promoteRequest(first, Collections.emptyList()), creator.getAccount());
+        assertEquals(GROUP_COUNT, countProcessGroups(first));
+
+        // 只晋级上一流程中存在的队伍 重复晋级不重复插入
+        List<Long> promoteIds = groups.stream()
+                .map(BaseEntity::getId)
+                .filter(id -> id % 2 == 0)
+                .collect(Collectors.toList());
+        List<Long> requestIds = new ArrayList<>(promoteIds);
+        requestIds.add(-1L);
+        contestProcessService.promoteGroups(promoteRequest(second, requestIds), creator.getAccount());
+        contestProcessService.promoteGroups(promoteRequest(second, requestIds), creator.getAccount());
+        entityManager.clear();
+        assertEquals(new HashSet<>(promoteIds), contestProcessGroupRepository.findAllByProcess(second)
+                .stream()
+                .map(processGroup -> processGroup.getGroup().getId())
+                .collect(Collectors.toSet()));
+        assertEquals(promoteIds.size(), countProcessGroups(second));
+        contestProcessGroupRepository.findAllByProcess(second)
+                .forEach(processGroup -> assertEquals(ContestProcessGroupStatusEnum.PREPARING, processGroup.getStatus()));
+    }
+
+    /**
+     * 依赖实际耗时 只在benchmark profile中执行
+     */
+    @Test
+    @Tag("benchmark")
+    void promoteGroupsComparedWithRowByRow() {
+        User creator = createUser();
+        Contest contest = createContest(creator);
+        List<ContestGroup> groups = createGroups(contest, BENCHMARK_GROUP_COUNT);
+        ContestProcess first = createProcess(contest, 1);
+        ContestProcess legacy = createProcess(contest, 2);
+        contestGroupDAO.addAllToProcess(first, groups.subList(0, 100));
+        entityManager.flush();
+        entityManager.clear();
+
+        // 原实现 加载所有队伍在内存中过滤后逐条插入
+        long legacyStart = System.nanoTime();
+        Set<Long> existGroupIds = contestGroupDAO.findAllByProcess(legacy)
+                .stream()
+                .map(BaseEntity::getId)
+                .collect(Collectors.toSet());
+        List<ContestGroup> legacyGroups = contestGroupDAO.findAllByContest(contest)
+                .stream()
+                .filter(group -> !existGroupIds.contains(group.getId()))
+                .collect(Collectors.toList());
+        contestGroupDAO.addAllToProcess(legacy, legacyGroups);
+        entityManager.flush();
+        long legacyCost = System.nanoTime() - legacyStart;
+        entityManager.clear();
+
+        long start = System.nanoTime();
+        contestProcessService.promoteGroups(promoteRequest(first, Collections.emptyList()), creator.getAccount());
+        long cost = System.nanoTime() - start;
+        log.info("晋级{}支队伍 逐条插入{}ms 批量插入{}ms", BENCHMARK_GROUP_COUNT, legacyCost / 1_000_000, cost / 1_000_000);
+        assertEquals(BENCHMARK_GROUP_COUNT, countProcessGroups(legacy));
+        assertEquals(BENCHMARK_GROUP_COUNT, countProcessGroups(first));
+    }
+
+    private List<ContestGroup> createGroups(Contest contest, int count) {
+        List<ContestGroup> groups = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            groups.add(createGroup(contest, i));
+        }
+        return groups;
+    }
+
+    private long countProcessGroups(ContestProcess process) {
+        return contestProcessGroupRepository.findAllByProcess(process).size();
+    }
+
+    private ProcessPromoteGroupsRequest promoteRequest(ContestProcess process, List<Long> groupIds) {
+        ProcessPromoteGroupsRequest request = new ProcessPromoteGroupsRequest();
+        request.setProcessId(process.getId());
+        request.setGroupIds(groupIds);
+        return request;
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setAccount("promote");
+        user.setEmail("promote@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(UserTypeEnum.TEACHER);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name");
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return entityManager.persist(user);
+    }
+
+    private Contest createContest(User creator) {
+        Contest contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(creator);
+        contest.setStatus(ContestStatusEnum.RUNNING);
+        contest.setGroupMemberCount(5);
+        return entityManager.persist(contest);
+    }
+
+    private ContestProcess createProcess(Contest contest, int sort) {
+        ContestProcess process = new ContestProcess();
+        process.setContest(contest);
+        process.setName("process" + sort);
+        process.setSort(sort);
+        process.setStatus(ContestProcessStatusEnum.CREATING);
+        process.setDescription("description");
+        process.setEndSubmitTime(new Date());
+        return entityManager.persist(process);
+    }
+
+    private ContestGroup createGroup(Contest contest, int index) {
+        ContestGroup group = new ContestGroup();
+        group.setContest(contest);
+        group.setName("group" + index);
+        group.setMemberCount(1);
+        return entityManager.persist(group);
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.pojo.dto.RegisterImportResultDTO;
+import com.bjfu.contest.pojo.entity.Contest;
+import com.bjfu.contest.pojo.entity.ContestRegister;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.request.register.RegisterImportRequest;
+import com.bjfu.contest.repository.ContestRegisterRepository;
+import com.bjfu.contest.search.SearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量导入报名的结果 以及导入时的语句数
+ * @author warthog
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+@Import({ContestRegisterServiceImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestRegisterDAOImpl.class,
+        PageQueryHelper.class, SearchIndex.class})
+class ContestRegisterImportTests {
+
+    private static final int CLASS_STUDENT_COUNT = 2000;
+
+    @Autowired
+    private ContestRegisterServiceImpl contestRegisterService;
+    @Autowired
+    private ContestRegisterRepository contestRegisterRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User creator;
+    private Contest contest;
+    private List<User> students;
+
+    @BeforeEach
+    void setUp() {
+        creator = createUser("creator", UserTypeEnum.TEACHER, "2018");
+        contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(creator);
+        contest.setStatus(ContestStatusEnum.REGISTERING);
+        contest.setGroupMemberCount(5);
+        entityManager.persist(contest);
+        students = new ArrayList<>();
+        for(int i = 0; i < CLASS_STUDENT_COUNT; i++) {
+            students.add(createUser("student" + i, UserTypeEnum.STUDENT, "2018"));
+        }
+        // 其他年级及同学院的教师不会被选中
+        for(int i = 0; i < 100; i++) {
+            createUser("other" + i, UserTypeEnum.STUDENT, "2019");
+        }
+        createUser("teacher", UserTypeEnum.TEACHER, "2018");
+        // 已报名 已禁赛 已删除报名的学生
+        for(int i = 0; i < 50; i++) {
+            createRegister(students.get(i), ContestRegisterStatusEnum.SIGN_UP);
+        }
+        for(int i = 50; i < 60; i++) {
+            createRegister(students.get(i), ContestRegisterStatusEnum.BAN);
+        }
+        for(int i = 60; i < 70; i++) {
+            createRegister(students.get(i), ContestRegisterStatusEnum.DELETE);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void importByClass() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        RegisterImportRequest request = new RegisterImportRequest();
+        request.setContestId(contest.getId());
+        request.setCollege("college");
+        request.setMajor("major");
+        request.setGrade("2018");
+        long start = System.nanoTime();
+        RegisterImportResultDTO result = contestRegisterService.importRegisters(request, creator.getAccount());
+        entityManager.flush();
+        long cost = System.nanoTime() - start;
+        log.info("导入{}名学生 耗时{}ms {}条语句", CLASS_STUDENT_COUNT, cost / 1_000_000, statistics.getPrepareStatementCount());
+
+        assertEquals(CLASS_STUDENT_COUNT - 60, result.getRegisteredCount());
+        assertEquals(60, result.getSkippedCount());
+        assertEquals(CLASS_STUDENT_COUNT, result.getRows().size());
+        Map<RegisterImportResultEnum, Long> counts = result.getRows()
+                .stream()
+                .collect(Collectors.groupingBy(RegisterImportResultDTO.Row::getResult, Collectors.counting()));
+        assertEquals(50L, counts.get(RegisterImportResultEnum.ALREADY_REGISTERED));
+        assertEquals(10L, counts.get(RegisterImportResultEnum.BANNED));
+        // 查询用户 已有报名及批量插入 语句数与人数无关
+        assertTrue(statistics.getPrepareStatementCount() < 10);
+        assertEquals(CLASS_STUDENT_COUNT, countRegisters(ContestRegisterStatusEnum.SIGN_UP) + countRegisters(ContestRegisterStatusEnum.BAN));
+
+        // 再次导入时全部跳过
+        entityManager.clear();
+        RegisterImportResultDTO again = contestRegisterService.importRegisters(request, creator.getAccount());
+        assertEquals(0, again.getRegisteredCount());
+        assertEquals(CLASS_STUDENT_COUNT, again.getSkippedCount());
+    }
+
+    @Test
+    void importByFile() {
+        String csv = "\uFEFF账号,姓名\n" +
+                "student0,name\n" +
+                "student55\n" +
+                "\"student100\",name\n" +
+                "\n" +
+                "student100\n" +
+                "nobody\n" +
+                "teacher\n" +
+                "student101\n";
+        RegisterImportRequest request = new RegisterImportRequest();
+        request.setContestId(contest.getId());
+        request.setFile(new MockMultipartFile("file", "accounts.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+        RegisterImportResultDTO result = contestRegisterService.importRegisters(request, creator.getAccount());
+
+        assertEquals(2, result.getRegisteredCount());
+        assertEquals(5, result.getSkippedCount());
+        assertEquals(Arrays.asList(
+                RegisterImportResultEnum.ALREADY_REGISTERED,
+                RegisterImportResultEnum.BANNED,
+                RegisterImportResultEnum.REGISTERED,
+                RegisterImportResultEnum.DUPLICATE,
+                RegisterImportResultEnum.USER_NOT_EXIST,
+                RegisterImportResultEnum.NOT_STUDENT,
+                RegisterImportResultEnum.REGISTERED), result.getRows()
+                .stream()
+                .map(RegisterImportResultDTO.Row::getResult)
+                .collect(Collectors.toList()));
+        assertEquals("student100", result.getRows().get(2).getAccount());
+        assertEquals(52, countRegisters(ContestRegisterStatusEnum.SIGN_UP));
+    }
+
+    private long countRegisters(ContestRegisterStatusEnum status) {
+        return contestRegisterRepository.findAll()
+                .stream()
+                .filter(register -> register.getStatus().equals(status))
+                .count();
+    }
+
+    private User createUser(String account, UserTypeEnum type, String grade) {
+        User user = new User();
+        user.setAccount(account);
+        user.setEmail(account + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name");
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        user.setMajor("major");
+        user.setGrade(grade);
+        return entityManager.persist(user);
+    }
+
+    private void createRegister(User user, ContestRegisterStatusEnum status) {
+        ContestRegister register = new ContestRegister();
+        register.setContest(contest);
+        register.setUser(user);
+        register.setStatus(status);
+        entityManager.persist(register);
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.bjfu.contest.service.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.minio.MinioClient;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式上传大文件时的堆内存占用
+ * 用只统计字节数的本地S3服务代替minio 上传过程中定期gc并采样堆使用量
+ * 耗时较长 只在benchmark profile中执行
+ * @author warthog
+ */
+@Slf4j
+@Tag("benchmark")
+class MinioOssServiceStreamingTests {
+
+    private static final long FILE_SIZE = 300L * 1024 * 1024;
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+    /**
+     * 允许的堆内存增长上限 远小于文件大小 只够缓存少量分片
+     */
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+    private static final String BUCKET = "contest-file";
+    private static final String S3_NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private HttpServer server;
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicInteger receivedParts = new AtomicInteger();
+    private MinioOssServiceImpl ossService;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        MinioClient minioClient = MinioClient.builder()
+                .endpoint("http://127.0.0.1:" + server.getAddress().getPort())
+                .credentials("minioadmin", "minioadmin")
+                .region("us-east-1")
+                .build();
+        ossService = new MinioOssServiceImpl();
+        ReflectionTestUtils.setField(ossService, "minioClient", minioClient);
+        ReflectionTestUtils.setField(ossService, "partSize", PART_SIZE);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void knownSizeUploadKeepsHeapBounded() throws Exception {
+        long growth = measureHeapGrowth(() -> ossService.putObject(BUCKET, "known-size",
+                new GeneratedInputStream(FILE_SIZE), FILE_SIZE, "application/octet-stream"));
+        assertEquals(FILE_SIZE, receivedBytes.get());
+        assertEquals(FILE_SIZE / PART_SIZE, receivedParts.get());
+        log.info("已知大小上传{}MB 分片{}个 堆内存增长峰值{}MB", FILE_SIZE >> 20, receivedParts.get(), growth >> 20);
+        assertTrue(growth < MAX_HEAP_GROWTH, "堆内存增长" + (growth >> 20) + "MB");
+    }
+
+    @Test
+    void unknownSizeUploadKeepsHeapBounded() throws Exception {
+        long growth = measureHeapGrowth(() -> ossService.putObject(BUCKET, "unknown-size",
+                new GeneratedInputStream(FILE_SIZE), -1, null));
+        assertEquals(FILE_SIZE, receivedBytes.get());
+        log.info("未知大小上传{}MB 分片{}个 堆内存增长峰值{}MB", FILE_SIZE >> 20, receivedParts.get(), growth >> 20);
+        assertTrue(growth < MAX_HEAP_GROWTH, "堆内存增长" + (growth >> 20) + "MB");
+    }
+
+    /**
+     * 执行上传 期间每隔一段时间gc后采样堆使用量 返回相对上传前的最大增长
+     */
+    private long measureHeapGrowth(Runnable upload) throws InterruptedException {
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        memoryBean.gc();
+        long baseline = memoryBean.getHeapMemoryUsage().getUsed();
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while(running.get()) {
+                memoryBean.gc();
+                peak.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException exception) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        long start = System.nanoTime();
+        try {
+            upload.run();
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        log.info("上传耗时{}ms", (System.nanoTime() - start) / 1_000_000);
+        return peak.get() - baseline;
+    }
+
+    /**
+     * 模拟S3的分片上传接口 请求体只计数不保存
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        String method = exchange.getRequestMethod();
+        String key = exchange.getRequestURI().getPath().substring(BUCKET.length() + 2);
+        byte[] body = new byte[0];
+        if("POST".equals(method) && query != null && query.startsWith("uploads")) {
+            body = ("<InitiateMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\"><Bucket>" + BUCKET
+                    + "</Bucket><Key>" + key + "</Key><UploadId>upload-id</UploadId></InitiateMultipartUploadResult>")
+                    .getBytes(StandardCharsets.UTF_8);
+        } else if("POST".equals(method)) {
+            drain(exchange.getRequestBody());
+            body = ("<CompleteMultipartUploadResult xmlns=\"" + S3_NAMESPACE + "\"><Location>/" + BUCKET + "/" + key
+                    + "</Location><Bucket>" + BUCKET + "</Bucket><Key>" + key
+                    + "</Key><ETag>\"etag\"</ETag></CompleteMultipartUploadResult>")
+                    .getBytes(StandardCharsets.UTF_8);
+        } else if("PUT".equals(method)) {
+            receivedBytes.addAndGet(drain(exchange.getRequestBody()));
+            if(query != null && query.contains("partNumber")) {
+                receivedParts.incrementAndGet();
+            }
+            exchange.getResponseHeaders().add("ETag", "\"etag\"");
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+        if(body.length > 0) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private static long drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while((read = inputStream.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * 按需生成内容的输入流 本身不占用内存
+     */
+    private static class GeneratedInputStream extends InputStream {
+
+        private final long size;
+        private long position;
+
+        GeneratedInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if(position >= size) {
+                return -1;
+            }
+            return (int) (position++ & 0x7f);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if(position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for(int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) ((position + i) & 0x7f);
+            }
+            position += count;
+            return count;
+        }
+    }
+
+}
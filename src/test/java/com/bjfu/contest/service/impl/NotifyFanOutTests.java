@@ -0,0 +1,270 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.UnreadCountCache;
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.pojo.request.notify.NotifyPublishRequest;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.repository.*;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.task.NotifyFanOutTask;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 通知发布后异步分批投递到收件箱
+ * @author warthog
+ */
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notify-fan-out;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotifyServiceImpl.class, NotifyFanOutTask.class, UnreadCountCache.class, NotifyDAOImpl.class,
+        UserInboxDAOImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestProcessDAOImpl.class,
+        ContestGroupDAOImpl.class, PageQueryHelper.class, SearchIndex.class,
+        MailServiceImpl.class, MailOutboxDAOImpl.class})
+class NotifyFanOutTests {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+    private static final int REGISTER_COUNT = 3000;
+
+    @Autowired
+    private NotifyServiceImpl notifyService;
+    @Autowired
+    private NotifyFanOutTask notifyFanOutTask;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ContestRepository contestRepository;
+    @Autowired
+    private ContestRegisterRepository contestRegisterRepository;
+    @Autowired
+    private ContestTeacherRepository contestTeacherRepository;
+    @Autowired
+    private ContestGroupRepository contestGroupRepository;
+    @Autowired
+    private ContestGroupMemberRepository contestGroupMemberRepository;
+    @Autowired
+    private ContestProcessRepository contestProcessRepository;
+    @Autowired
+    private ContestProcessGroupRepository contestProcessGroupRepository;
+    @Autowired
+    private NotifyRepository notifyRepository;
+    @Autowired
+    private UserInboxRepository userInboxRepository;
+    @MockBean
+    private PushTopicRegistry pushTopicRegistry;
+
+    private User creator;
+    private Contest contest;
+    private List<User> students;
+    private List<ContestRegister> registers;
+
+    @BeforeEach
+    void setUp() {
+        creator = userRepository.save(createUser(UserTypeEnum.TEACHER));
+        contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(creator);
+        contest.setStatus(ContestStatusEnum.RUNNING);
+        contest.setGroupMemberCount(5);
+        contestRepository.save(contest);
+        students = new ArrayList<>();
+        for(int i = 0; i < REGISTER_COUNT + 100; i++) {
+            students.add(createUser(UserTypeEnum.STUDENT));
+        }
+        userRepository.saveAll(students);
+        registers = new ArrayList<>();
+        for(int i = 0; i < REGISTER_COUNT + 10; i++) {
+            ContestRegister register = new ContestRegister();
+            register.setContest(contest);
+            register.setUser(students.get(i));
+            // 最后10个已被禁赛
+            register.setStatus(i < REGISTER_COUNT ? ContestRegisterStatusEnum.SIGN_UP : ContestRegisterStatusEnum.BAN);
+            registers.add(register);
+        }
+        contestRegisterRepository.saveAll(registers);
+    }
+
+    @Test
+    void contestNotifyIsDeliveredInBackground() throws Exception {
+        List<User> teachers = userRepository.saveAll(Arrays.asList(createUser(UserTypeEnum.TEACHER), createUser(UserTypeEnum.TEACHER)));
+        for(User teacher : teachers) {
+            ContestTeacher contestTeacher = new ContestTeacher();
+            contestTeacher.setContest(contest);
+            contestTeacher.setTeacher(teacher);
+            contestTeacherRepository.save(contestTeacher);
+        }
+
+        long start = System.nanoTime();
+        NotifyDTO notifyDTO = notifyService.publish(publishRequest(NotifyTypeEnum.CONTEST_NOTIFY, contest.getId()), creator.getAccount());
+        long publishCost = System.nanoTime() - start;
+        Notify notify = waitDelivered(notifyDTO.getId());
+        long deliverCost = System.nanoTime() - start;
+        log.info("发布竞赛通知 请求耗时{}ms 投递{}个收件箱耗时{}ms", publishCost / 1_000_000,
+                userInboxRepository.countByNotify(notify), deliverCost / 1_000_000);
+
+        Set<Long> expected = students.subList(0, REGISTER_COUNT)
+                .stream()
+                .map(BaseEntity::getId)
+                .collect(Collectors.toSet());
+        teachers.forEach(teacher -> expected.add(teacher.getId()));
+        assertEquals(expected, inboxUserIds(notify));
+        assertEquals(expected.size(), userInboxRepository.countByNotify(notify));
+    }
+
+    @Test
+    void fanOutResumesWithoutDuplicates() {
+        Notify notify = new Notify();
+        notify.setTitle("title");
+        notify.setContent("content");
+        notify.setType(NotifyTypeEnum.CONTEST_NOTIFY);
+        notify.setTargetId(contest.getId());
+        notify.setIsSendEmail(false);
+        notify.setIsDelivered(false);
+        notify.setAuthor(creator);
+        notifyRepository.save(notify);
+        // 模拟投递中断 已写入部分收件箱
+        List<UserInbox> inboxes = students.subList(1000, 1500)
+                .stream()
+                .map(student -> {
+                    UserInbox inbox = new UserInbox();
+                    inbox.setNotify(notify);
+                    inbox.setUser(student);
+                    inbox.setIsRead(false);
+                    return inbox;
+                })
+                .collect(Collectors.toList());
+        userInboxRepository.saveAll(inboxes);
+
+        assertEquals(REGISTER_COUNT - 500, notifyFanOutTask.fanOut(notify.getId()));
+        assertEquals(REGISTER_COUNT, userInboxRepository.countByNotify(notify));
+        assertTrue(notifyRepository.findById(notify.getId()).orElseThrow(IllegalStateException::new).getIsDelivered());
+        // 已投递完成的不再投递
+        assertEquals(0, notifyFanOutTask.fanOut(notify.getId()));
+    }
+
+    @Test
+    void groupAndProcessRecipients() throws Exception {
+        User teacher = userRepository.save(createUser(UserTypeEnum.TEACHER));
+        ContestGroup group = new ContestGroup();
+        group.setContest(contest);
+        group.setName("group");
+        group.setCaptain(students.get(0));
+        group.setTeacher(teacher);
+        group.setMemberCount(3);
+        contestGroupRepository.save(group);
+        for(int i = 0; i < 3; i++) {
+            ContestGroupMember member = new ContestGroupMember();
+            member.setContest(contest);
+            member.setGroup(group);
+            member.setMember(registers.get(i));
+            contestGroupMemberRepository.save(member);
+        }
+        ContestProcess process = new ContestProcess();
+        process.setContest(contest);
+        process.setName("process");
+        process.setSort(1);
+        process.setStatus(ContestProcessStatusEnum.RUNNING);
+        process.setDescription("description");
+        process.setEndSubmitTime(new Date());
+        contestProcessRepository.save(process);
+        ContestProcessGroup processGroup = new ContestProcessGroup();
+        processGroup.setProcess(process);
+        processGroup.setGroup(group);
+        processGroup.setStatus(ContestProcessGroupStatusEnum.PREPARING);
+        contestProcessGroupRepository.save(processGroup);
+        Set<Long> expected = new HashSet<>(Arrays.asList(students.get(0).getId(), students.get(1).getId(),
+                students.get(2).getId(), teacher.getId()));
+
+        // 队长可以发布队伍内通知
+        NotifyDTO groupNotify = notifyService.publish(publishRequest(NotifyTypeEnum.GROUP_NOTIFY, group.getId()),
+                students.get(0).getAccount());
+        assertEquals(expected, inboxUserIds(waitDelivered(groupNotify.getId())));
+        NotifyDTO processNotify = notifyService.publish(publishRequest(NotifyTypeEnum.CONTEST_PROCESS_NOTIFY, process.getId()),
+                creator.getAccount());
+        assertEquals(expected, inboxUserIds(waitDelivered(processNotify.getId())));
+
+        // 非队伍成员及非管理员无权发布
+        BizException groupException = assertThrows(BizException.class, () -> notifyService.publish(
+                publishRequest(NotifyTypeEnum.GROUP_NOTIFY, group.getId()), students.get(5).getAccount()));
+        assertEquals(ResultEnum.NO_PERMISSION, groupException.getResultEnum());
+        BizException broadcastException = assertThrows(BizException.class, () -> notifyService.publish(
+                publishRequest(NotifyTypeEnum.STUDENTS_NOTIFY, null), creator.getAccount()));
+        assertEquals(ResultEnum.NO_PERMISSION, broadcastException.getResultEnum());
+    }
+
+    private Notify waitDelivered(Long notifyId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while(System.currentTimeMillis() < deadline) {
+            Notify notify = notifyRepository.findById(notifyId).orElseThrow(IllegalStateException::new);
+            if(notify.getIsDelivered()) {
+                return notify;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("通知未在限定时间内投递完成");
+    }
+
+    private Set<Long> inboxUserIds(Notify notify) {
+        return userInboxRepository.findAll()
+                .stream()
+                .filter(inbox -> inbox.getNotify().getId().equals(notify.getId()))
+                .map(inbox -> inbox.getUser().getId())
+                .collect(Collectors.toSet());
+    }
+
+    private NotifyPublishRequest publishRequest(NotifyTypeEnum type, Long targetId) {
+        NotifyPublishRequest request = new NotifyPublishRequest();
+        request.setTitle("title");
+        request.setContent("content");
+        request.setType(type);
+        request.setTargetId(targetId);
+        request.setIsSendEmail(false);
+        return request;
+    }
+
+    private User createUser(UserTypeEnum type) {
+        int seq = SEQ.incrementAndGet();
+        User user = new User();
+        user.setAccount("notify" + seq);
+        user.setEmail("notify" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return user;
+    }
+
+}
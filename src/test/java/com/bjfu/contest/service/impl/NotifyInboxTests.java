@@ -0,0 +1,229 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.UnreadCountCache;
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.pojo.KeysetPage;
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.dto.UserInboxDTO;
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.entity.UserInbox;
+import com.bjfu.contest.pojo.request.notify.NotifyListInboxRequest;
+import com.bjfu.contest.pojo.request.notify.NotifyPublishRequest;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.repository.NotifyRepository;
+import com.bjfu.contest.repository.UserInboxRepository;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.task.NotifyFanOutTask;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 广播通知在读取收件箱时合并 以及已读水位
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notify-inbox;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotifyServiceImpl.class, NotifyFanOutTask.class, UnreadCountCache.class, NotifyDAOImpl.class,
+        UserInboxDAOImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestProcessDAOImpl.class,
+        ContestGroupDAOImpl.class, PageQueryHelper.class, SearchIndex.class,
+        MailServiceImpl.class, MailOutboxDAOImpl.class})
+class NotifyInboxTests {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+    private static final int STUDENT_COUNT = 2000;
+
+    @Autowired
+    private NotifyServiceImpl notifyService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private NotifyRepository notifyRepository;
+    @Autowired
+    private UserInboxRepository userInboxRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private PushTopicRegistry pushTopicRegistry;
+
+    private User admin;
+    private User student;
+    private User teacher;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        userInboxRepository.deleteAllInBatch();
+        notifyRepository.deleteAllInBatch();
+        admin = userRepository.save(createUser(UserTypeEnum.ADMIN));
+        teacher = userRepository.save(createUser(UserTypeEnum.TEACHER));
+        List<User> students = new ArrayList<>();
+        for(int i = 0; i < STUDENT_COUNT; i++) {
+            students.add(createUser(UserTypeEnum.STUDENT));
+        }
+        userRepository.saveAll(students);
+        student = students.get(0);
+        // 注册之后发布的广播才是未读
+        Thread.sleep(5);
+    }
+
+    @Test
+    void broadcastsAreMergedAtReadTime() {
+        NotifyDTO all = publish(NotifyTypeEnum.ALL_NOTIFY);
+        NotifyDTO students = publish(NotifyTypeEnum.STUDENTS_NOTIFY);
+        NotifyDTO teachers = publish(NotifyTypeEnum.TEACHERS_NOTIFY);
+        Notify contestNotify = insertTargeted(student);
+        NotifyDTO users = publish(NotifyTypeEnum.USERS_NOTIFY);
+
+        // 发布广播不写入收件箱 也不需要投递
+        assertEquals(1, userInboxRepository.count());
+        assertTrue(notifyRepository.findById(all.getId()).orElseThrow(IllegalStateException::new).getIsDelivered());
+
+        // 每页的查询数与用户总数无关
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Page<UserInboxDTO> first = notifyService.listInbox(listRequest(2, null), student.getAccount());
+        assertTrue(statistics.getPrepareStatementCount() <= 3);
+        assertEquals(Arrays.asList(users.getId(), contestNotify.getId()), notifyIds(first));
+        String cursor = ((KeysetPage<UserInboxDTO>) first).getNextCursor();
+        assertNotNull(cursor);
+        Page<UserInboxDTO> second = notifyService.listInbox(listRequest(2, cursor), student.getAccount());
+        assertEquals(Arrays.asList(students.getId(), all.getId()), notifyIds(second));
+        assertNull(((KeysetPage<UserInboxDTO>) second).getNextCursor());
+        assertTrue(second.getContent().stream().noneMatch(UserInboxDTO::getIsRead));
+
+        // 教师看不到学生广播 管理员可以看到所有广播
+        assertEquals(Arrays.asList(users.getId(), teachers.getId(), all.getId()),
+                notifyIds(notifyService.listInbox(listRequest(10, null), teacher.getAccount())));
+        assertEquals(4, notifyService.listInbox(listRequest(10, null), admin.getAccount()).getContent().size());
+        BizException exception = assertThrows(BizException.class, () -> notifyService.read(teachers.getId(), student.getAccount()));
+        assertEquals(ResultEnum.NOTIFY_NOT_EXIST, exception.getResultEnum());
+    }
+
+    @Test
+    void readStateFollowsWatermark() throws InterruptedException {
+        NotifyDTO all = publish(NotifyTypeEnum.ALL_NOTIFY);
+        NotifyDTO students = publish(NotifyTypeEnum.STUDENTS_NOTIFY);
+        Notify contestNotify = insertTargeted(student);
+
+        // 单独标记已读的广播写入一条已读的收件箱 列表中不重复
+        notifyService.read(students.getId(), student.getAccount());
+        notifyService.read(students.getId(), student.getAccount());
+        notifyService.read(contestNotify.getId(), student.getAccount());
+        Map<Long, Boolean> readState = readState(student);
+        assertEquals(3, readState.size());
+        assertTrue(readState.get(students.getId()));
+        assertTrue(readState.get(contestNotify.getId()));
+        assertFalse(readState.get(all.getId()));
+        assertEquals(2, userInboxRepository.count());
+
+        // 全部已读只提升水位 不为广播写入收件箱
+        notifyService.readAll(student.getAccount());
+        assertTrue(readState(student).values().stream().allMatch(Boolean::booleanValue));
+        assertEquals(2, userInboxRepository.count());
+        notifyService.read(all.getId(), student.getAccount());
+        assertEquals(2, userInboxRepository.count());
+
+        // 水位之后发布的广播为未读 其他用户不受影响
+        Thread.sleep(5);
+        NotifyDTO later = publish(NotifyTypeEnum.USERS_NOTIFY);
+        Map<Long, Boolean> laterState = readState(student);
+        assertFalse(laterState.get(later.getId()));
+        assertTrue(laterState.get(all.getId()));
+        assertTrue(readState(teacher).values().stream().noneMatch(Boolean::booleanValue));
+    }
+
+    private Map<Long, Boolean> readState(User user) {
+        return notifyService.listInbox(listRequest(50, null), user.getAccount())
+                .getContent()
+                .stream()
+                .collect(Collectors.toMap(inbox -> inbox.getNotify().getId(), UserInboxDTO::getIsRead));
+    }
+
+    private List<Long> notifyIds(Page<UserInboxDTO> page) {
+        return page.getContent()
+                .stream()
+                .map(inbox -> inbox.getNotify().getId())
+                .collect(Collectors.toList());
+    }
+
+    private NotifyDTO publish(NotifyTypeEnum type) {
+        NotifyPublishRequest request = new NotifyPublishRequest();
+        request.setTitle("title");
+        request.setContent("content");
+        request.setType(type);
+        request.setIsSendEmail(false);
+        return notifyService.publish(request, admin.getAccount());
+    }
+
+    private Notify insertTargeted(User user) {
+        Notify notify = new Notify();
+        notify.setTitle("title");
+        notify.setContent("content");
+        notify.setType(NotifyTypeEnum.CONTEST_NOTIFY);
+        notify.setTargetId(1L);
+        notify.setIsSendEmail(false);
+        notify.setIsDelivered(true);
+        notify.setAuthor(teacher);
+        notifyRepository.save(notify);
+        UserInbox inbox = new UserInbox();
+        inbox.setNotify(notify);
+        inbox.setUser(user);
+        inbox.setIsRead(false);
+        userInboxRepository.save(inbox);
+        return notify;
+    }
+
+    private NotifyListInboxRequest listRequest(int pageSize, String cursor) {
+        NotifyListInboxRequest request = new NotifyListInboxRequest();
+        request.setPageSize(pageSize);
+        request.setCursor(cursor);
+        return request;
+    }
+
+    private User createUser(UserTypeEnum type) {
+        int seq = SEQ.incrementAndGet();
+        User user = new User();
+        user.setAccount("inbox" + seq);
+        user.setEmail("inbox" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return user;
+    }
+
+}
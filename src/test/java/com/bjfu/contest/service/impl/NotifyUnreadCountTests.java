@@ -0,0 +1,175 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.UnreadCountCache;
+import com.bjfu.contest.dao.impl.*;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.pojo.dto.NotifyDTO;
+import com.bjfu.contest.pojo.entity.*;
+import com.bjfu.contest.pojo.request.notify.NotifyPublishRequest;
+import com.bjfu.contest.push.PushTopicRegistry;
+import com.bjfu.contest.repository.*;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.task.NotifyFanOutTask;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 未读通知数的缓存 增量维护及过期后与数据库对账
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:notify-unread-count;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "cache.unread-count.expire-seconds=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({NotifyServiceImpl.class, NotifyFanOutTask.class, UnreadCountCache.class, NotifyDAOImpl.class,
+        UserInboxDAOImpl.class, UserDAOImpl.class, ContestDAOImpl.class, ContestProcessDAOImpl.class,
+        ContestGroupDAOImpl.class, PageQueryHelper.class, SearchIndex.class,
+        MailServiceImpl.class, MailOutboxDAOImpl.class})
+class NotifyUnreadCountTests {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @Autowired
+    private NotifyServiceImpl notifyService;
+    @Autowired
+    private NotifyFanOutTask notifyFanOutTask;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ContestRepository contestRepository;
+    @Autowired
+    private ContestRegisterRepository contestRegisterRepository;
+    @Autowired
+    private NotifyRepository notifyRepository;
+    @Autowired
+    private UserInboxRepository userInboxRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private PushTopicRegistry pushTopicRegistry;
+
+    @Test
+    void countIsMaintainedWithoutQueries() throws InterruptedException {
+        User admin = userRepository.save(createUser(UserTypeEnum.ADMIN));
+        User teacher = userRepository.save(createUser(UserTypeEnum.TEACHER));
+        List<User> students = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            students.add(createUser(UserTypeEnum.STUDENT));
+        }
+        userRepository.saveAll(students);
+        User student = students.get(0);
+        Contest contest = new Contest();
+        contest.setName("contest");
+        contest.setSummary("summary");
+        contest.setDescription("description");
+        contest.setCreator(teacher);
+        contest.setStatus(ContestStatusEnum.RUNNING);
+        contest.setGroupMemberCount(5);
+        contestRepository.save(contest);
+        for(User user : students) {
+            ContestRegister register = new ContestRegister();
+            register.setContest(contest);
+            register.setUser(user);
+            register.setStatus(ContestRegisterStatusEnum.SIGN_UP);
+            contestRegisterRepository.save(register);
+        }
+        Thread.sleep(5);
+
+        // 首次读取时统计 之后不访问数据库
+        assertEquals(0, notifyService.countUnread(student.getId()));
+        assertEquals(0, notifyService.countUnread(teacher.getId()));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        for(int i = 0; i < 1000; i++) {
+            notifyService.countUnread(student.getId());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // 广播只为能收到的用户加一 定向通知投递后加一
+        NotifyDTO broadcast = publish(NotifyTypeEnum.STUDENTS_NOTIFY, admin);
+        Notify contestNotify = insertUndelivered(contest, teacher);
+        assertEquals(students.size(), notifyFanOutTask.fanOut(contestNotify.getId()));
+        statistics.clear();
+        assertEquals(2, notifyService.countUnread(student.getId()));
+        assertEquals(0, notifyService.countUnread(teacher.getId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // 重复标记已读只减一次
+        notifyService.read(broadcast.getId(), student.getAccount());
+        notifyService.read(broadcast.getId(), student.getAccount());
+        assertEquals(1, notifyService.countUnread(student.getId()));
+        notifyService.readAll(student.getAccount());
+        assertEquals(0, notifyService.countUnread(student.getId()));
+        assertEquals(2, notifyService.countUnread(students.get(1).getId()));
+
+        // 绕过缓存写入的收件箱在过期后对账修正
+        UserInbox inbox = new UserInbox();
+        inbox.setUser(student);
+        inbox.setNotify(insertUndelivered(contest, teacher));
+        inbox.setIsRead(false);
+        userInboxRepository.save(inbox);
+        assertEquals(0, notifyService.countUnread(student.getId()));
+        Thread.sleep(2100);
+        assertEquals(1, notifyService.countUnread(student.getId()));
+    }
+
+    private NotifyDTO publish(NotifyTypeEnum type, User author) {
+        NotifyPublishRequest request = new NotifyPublishRequest();
+        request.setTitle("title");
+        request.setContent("content");
+        request.setType(type);
+        request.setIsSendEmail(false);
+        return notifyService.publish(request, author.getAccount());
+    }
+
+    private Notify insertUndelivered(Contest contest, User author) {
+        Notify notify = new Notify();
+        notify.setTitle("title");
+        notify.setContent("content");
+        notify.setType(NotifyTypeEnum.CONTEST_NOTIFY);
+        notify.setTargetId(contest.getId());
+        notify.setIsSendEmail(false);
+        notify.setIsDelivered(false);
+        notify.setAuthor(author);
+        return notifyRepository.save(notify);
+    }
+
+    private User createUser(UserTypeEnum type) {
+        int seq = SEQ.incrementAndGet();
+        User user = new User();
+        user.setAccount("unread" + seq);
+        user.setEmail("unread" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(type);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return user;
+    }
+
+}
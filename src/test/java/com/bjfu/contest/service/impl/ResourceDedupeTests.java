@@ -0,0 +1,199 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.PresignedUrlCache;
+import com.bjfu.contest.dao.impl.OssDeleteOutboxDAOImpl;
+import com.bjfu.contest.dao.impl.ResourceDAOImpl;
+import com.bjfu.contest.dao.impl.UserDAOImpl;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.pojo.dto.ResourceDTO;
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+import com.bjfu.contest.pojo.entity.ResourceObject;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.request.resource.ResourceStreamUploadRequest;
+import com.bjfu.contest.repository.OssDeleteOutboxRepository;
+import com.bjfu.contest.repository.ResourceObjectRepository;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.service.OssService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 相同内容的文件只存一份 按引用计数删除
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resource-dedupe;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "oss.upload.max-bytes=1024"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ResourceServiceImpl.class, ResourceDAOImpl.class, UserDAOImpl.class, OssDeleteOutboxDAOImpl.class,
+        PresignedUrlCache.class, SearchIndex.class})
+class ResourceDedupeTests {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @Autowired
+    private ResourceServiceImpl resourceService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ResourceObjectRepository resourceObjectRepository;
+    @Autowired
+    private OssDeleteOutboxRepository ossDeleteOutboxRepository;
+    @MockBean
+    private OssService ossService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int seq = SEQ.incrementAndGet();
+        user = new User();
+        user.setAccount("dedupe" + seq);
+        user.setEmail("dedupe" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(UserTypeEnum.TEACHER);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        userRepository.save(user);
+        // 模拟oss读完上传流
+        doAnswer(invocation -> {
+            InputStream stream = invocation.getArgument(2);
+            try {
+                while(stream.read(new byte[1024]) != -1) {
+                    // 丢弃内容
+                }
+            } catch (IOException exception) {
+                throw new OssException(ResultEnum.FILE_UPLOAD_FAILED);
+            }
+            return null;
+        }).when(ossService).putObject(anyString(), anyString(), any(InputStream.class), anyLong(), any());
+    }
+
+    @Test
+    void identicalUploadsShareOneObject() throws Exception {
+        byte[] content = content("same content");
+        String hash = sha256(content);
+        ResourceDTO first = upload(content, null);
+        ResourceDTO second = upload(content, null);
+        // 声明了哈希且内容已存在 不再上传
+        ResourceDTO third = upload(content, hash.toUpperCase());
+
+        verify(ossService, times(2)).putObject(anyString(), anyString(), any(InputStream.class), anyLong(), any());
+        ResourceObject object = resourceObjectRepository.findByContentHash(hash).orElseThrow(IllegalStateException::new);
+        assertEquals(3, object.getRefCount());
+        assertEquals(content.length, object.getSize());
+        // 第二次上传的重复文件等待删除
+        List<OssDeleteOutbox> outbox = ossDeleteOutboxRepository.findAll();
+        assertEquals(1, outbox.size());
+        assertNotEquals(object.getObjectName(), outbox.get(0).getObjectName());
+
+        // 删除前两个引用不删除文件 删除最后一个引用才删除文件
+        resourceService.delete(first.getId(), user.getAccount());
+        resourceService.delete(second.getId(), user.getAccount());
+        assertEquals(1, ossDeleteOutboxRepository.count());
+        assertEquals(1, resourceObjectRepository.findByContentHash(hash)
+                .orElseThrow(IllegalStateException::new)
+                .getRefCount());
+        resourceService.delete(third.getId(), user.getAccount());
+        assertFalse(resourceObjectRepository.findByContentHash(hash).isPresent());
+        assertTrue(ossDeleteOutboxRepository.findAll()
+                .stream()
+                .anyMatch(item -> item.getObjectName().equals(object.getObjectName())));
+    }
+
+    @Test
+    void declaredHashMismatchIsRejected() throws Exception {
+        byte[] content = content("declared content");
+        upload(content, null);
+        long outboxBefore = ossDeleteOutboxRepository.count();
+
+        // 声明的哈希已存在但内容不同
+        BizException existException = assertThrows(BizException.class,
+                () -> upload(content("other content"), sha256(content)));
+        assertEquals(ResultEnum.FILE_VERIFY_FAILED, existException.getResultEnum());
+        // 声明的哈希不存在且与内容不符 删除已上传的文件
+        BizException newException = assertThrows(BizException.class,
+                () -> upload(content("another content"), sha256(content("unknown"))));
+        assertEquals(ResultEnum.FILE_VERIFY_FAILED, newException.getResultEnum());
+        verify(ossService).deleteObject(anyString(), anyString());
+        assertEquals(1, resourceObjectRepository.findByContentHash(sha256(content))
+                .orElseThrow(IllegalStateException::new)
+                .getRefCount());
+        assertEquals(outboxBefore, ossDeleteOutboxRepository.count());
+    }
+
+    @Test
+    void oversizedUploadIsRejected() {
+        byte[] content = new byte[2048];
+        // 声明的大小超过上限时不读取内容
+        BizException declaredException = assertThrows(BizException.class, () -> upload(content, null));
+        assertEquals(ResultEnum.FILE_TOO_LARGE, declaredException.getResultEnum());
+        verify(ossService, never()).putObject(anyString(), anyString(), any(InputStream.class), anyLong(), any());
+
+        // 分块传输时读取超过上限后失败
+        BizException chunkedException = assertThrows(BizException.class,
+                () -> resourceService.upload(uploadRequest(null), new ByteArrayInputStream(content), -1,
+                        "text/plain", user.getAccount()));
+        assertEquals(ResultEnum.FILE_TOO_LARGE, chunkedException.getResultEnum());
+        assertEquals(0, resourceObjectRepository.count());
+    }
+
+    private ResourceDTO upload(byte[] content, String sha256) {
+        return resourceService.upload(uploadRequest(sha256), new ByteArrayInputStream(content), content.length,
+                "text/plain", user.getAccount());
+    }
+
+    private ResourceStreamUploadRequest uploadRequest(String sha256) {
+        ResourceStreamUploadRequest request = new ResourceStreamUploadRequest();
+        request.setTargetId(1L);
+        request.setType(ResourceTypeEnum.ALL);
+        request.setContentType(ResourceContentTypeEnum.OTHER);
+        request.setFileName("file.txt");
+        request.setClassification("classification");
+        request.setSha256(sha256);
+        return request;
+    }
+
+    private static byte[] content(String text) {
+        return (text + SEQ.get()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+        return String.format("%064x", new BigInteger(1, digest));
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.bjfu.contest.service.impl;
+
+import com.bjfu.contest.cache.PresignedUrlCache;
+import com.bjfu.contest.dao.impl.OssDeleteOutboxDAOImpl;
+import com.bjfu.contest.dao.impl.ResourceDAOImpl;
+import com.bjfu.contest.dao.impl.UserDAOImpl;
+import com.bjfu.contest.enums.*;
+import com.bjfu.contest.exception.BizException;
+import com.bjfu.contest.pojo.dto.OssObjectStatDTO;
+import com.bjfu.contest.pojo.dto.ResourceDTO;
+import com.bjfu.contest.pojo.dto.ResourceUploadInfoDTO;
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.request.resource.ResourceConfirmUploadRequest;
+import com.bjfu.contest.pojo.request.resource.ResourcePresignedUploadRequest;
+import com.bjfu.contest.repository.OssDeleteOutboxRepository;
+import com.bjfu.contest.repository.ResourceRepository;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.service.OssService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 直传oss的文件确认后复制为不签发上传链接的文件 上传的文件在链接过期后删除
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resource-presigned;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "oss.upload.presigned-expires=3600",
+        "oss.upload.max-bytes=1024"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ResourceServiceImpl.class, ResourceDAOImpl.class, UserDAOImpl.class, OssDeleteOutboxDAOImpl.class,
+        PresignedUrlCache.class, SearchIndex.class})
+class ResourcePresignedUploadTests {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+    private static final String UPLOADED_ETAG = "\"uploaded\"";
+
+    @Autowired
+    private ResourceServiceImpl resourceService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ResourceRepository resourceRepository;
+    @Autowired
+    private OssDeleteOutboxRepository ossDeleteOutboxRepository;
+    @MockBean
+    private OssService ossService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        int seq = SEQ.incrementAndGet();
+        user = new User();
+        user.setAccount("presigned" + seq);
+        user.setEmail("presigned" + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(UserTypeEnum.TEACHER);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        userRepository.save(user);
+        ossDeleteOutboxRepository.deleteAllInBatch();
+        when(ossService.statObject(anyString(), anyString()))
+                .thenReturn(Optional.of(new OssObjectStatDTO(100L, UPLOADED_ETAG)));
+        when(ossService.copyObject(anyString(), anyString(), anyString(), anyString())).thenReturn("\"copied\"");
+    }
+
+    @Test
+    void confirmCopiesUploadedObject() {
+        ResourceUploadInfoDTO uploadInfo = resourceService.requestUpload(uploadRequest(100L), user.getAccount());
+        String uploadObjectName = resourceRepository.findById(uploadInfo.getId())
+                .orElseThrow(IllegalStateException::new)
+                .getContent();
+
+        ResourceDTO resource = resourceService.confirmUpload(confirmRequest(uploadInfo.getId()), user.getAccount());
+
+        // 只复制校验过的版本
+        verify(ossService).copyObject(anyString(), eq(uploadObjectName), eq(resource.getContent()), eq(UPLOADED_ETAG));
+        assertNotEquals(uploadObjectName, resource.getContent());
+        assertEquals(ResourceStatusEnum.AVAILABLE, resource.getStatus());
+        assertEquals("copied", resourceRepository.findById(uploadInfo.getId())
+                .orElseThrow(IllegalStateException::new)
+                .getEtag());
+        // 上传的文件在链接过期后才删除
+        List<OssDeleteOutbox> outbox = ossDeleteOutboxRepository.findAll();
+        assertEquals(1, outbox.size());
+        assertEquals(uploadObjectName, outbox.get(0).getObjectName());
+        assertTrue(outbox.get(0).getNextAttemptTime().after(new Date(System.currentTimeMillis() + 3500 * 1000L)));
+
+        BizException exception = assertThrows(BizException.class,
+                () -> resourceService.confirmUpload(confirmRequest(uploadInfo.getId()), user.getAccount()));
+        assertEquals(ResultEnum.RESOURCE_NOT_PENDING, exception.getResultEnum());
+        verify(ossService, times(1)).copyObject(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void oversizedRequestIsRejected() {
+        BizException exception = assertThrows(BizException.class,
+                () -> resourceService.requestUpload(uploadRequest(2048L), user.getAccount()));
+        assertEquals(ResultEnum.FILE_TOO_LARGE, exception.getResultEnum());
+        verify(ossService, never()).preSignedPutObject(anyString(), anyString(), anyInt());
+    }
+
+    private ResourcePresignedUploadRequest uploadRequest(Long size) {
+        ResourcePresignedUploadRequest request = new ResourcePresignedUploadRequest();
+        request.setTargetId(1L);
+        request.setType(ResourceTypeEnum.ALL);
+        request.setContentType(ResourceContentTypeEnum.OTHER);
+        request.setFileName("file.txt");
+        request.setClassification("classification");
+        request.setSize(size);
+        return request;
+    }
+
+    private static ResourceConfirmUploadRequest confirmRequest(Long resourceId) {
+        ResourceConfirmUploadRequest request = new ResourceConfirmUploadRequest();
+        request.setResourceId(resourceId);
+        return request;
+    }
+
+}
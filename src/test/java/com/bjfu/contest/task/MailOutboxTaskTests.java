@@ -0,0 +1,331 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.cache.UserInfoCache;
+import com.bjfu.contest.dao.impl.MailOutboxDAOImpl;
+import com.bjfu.contest.dao.impl.UserDAOImpl;
+import com.bjfu.contest.dao.impl.UserInboxDAOImpl;
+import com.bjfu.contest.enums.NotifyTypeEnum;
+import com.bjfu.contest.enums.UserGenderEnum;
+import com.bjfu.contest.enums.UserStatusEnum;
+import com.bjfu.contest.enums.UserTypeEnum;
+import com.bjfu.contest.pojo.entity.MailOutbox;
+import com.bjfu.contest.pojo.entity.Notify;
+import com.bjfu.contest.pojo.entity.User;
+import com.bjfu.contest.pojo.entity.UserInbox;
+import com.bjfu.contest.pojo.request.user.UserRegisterRequest;
+import com.bjfu.contest.repository.MailOutboxRepository;
+import com.bjfu.contest.repository.NotifyRepository;
+import com.bjfu.contest.repository.UserInboxRepository;
+import com.bjfu.contest.repository.UserRepository;
+import com.bjfu.contest.search.SearchIndex;
+import com.bjfu.contest.service.impl.MailServiceImpl;
+import com.bjfu.contest.service.impl.UserServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 邮件分批复用连接 限速发送 失败重试及收件箱的发送结果 使用本地的smtp服务
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:mail-outbox;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "mail.outbox.interval-millis=3600000",
+        "mail.outbox.threads=2",
+        "mail.outbox.batch-size=10",
+        "mail.outbox.rate-per-second=100",
+        "mail.outbox.max-attempts=2",
+        "mail.outbox.base-backoff-seconds=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({MailOutboxTask.class, MailOutboxDAOImpl.class, MailServiceImpl.class, UserInboxDAOImpl.class,
+        UserServiceImpl.class, UserDAOImpl.class, SearchIndex.class, UserInfoCache.class,
+        MailOutboxTaskTests.SmtpConfig.class})
+class MailOutboxTaskTests {
+
+    private static final String REJECTED = "reject";
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @Autowired
+    private MailOutboxTask mailOutboxTask;
+    @Autowired
+    private MailOutboxDAOImpl mailOutboxDAO;
+    @Autowired
+    private MailServiceImpl mailService;
+    @Autowired
+    private UserServiceImpl userService;
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private NotifyRepository notifyRepository;
+    @Autowired
+    private UserInboxRepository userInboxRepository;
+    @Autowired
+    private SmtpServer smtpServer;
+
+    @BeforeEach
+    void setUp() {
+        mailOutboxRepository.deleteAllInBatch();
+        smtpServer.reset();
+    }
+
+    @Test
+    void batchesReuseConnectionUnderRateLimit() {
+        for(int i = 0; i < 40; i++) {
+            mailOutboxDAO.insert("user" + i + "@bjfu.edu.cn", "subject", "content", null);
+        }
+        mailOutboxTask.drain();
+
+        assertEquals(40, smtpServer.recipients.size());
+        // 每批10封共用一个连接
+        assertEquals(4, smtpServer.connections.get());
+        assertEquals(0, mailOutboxRepository.count());
+    }
+
+    /**
+     * 依赖实际耗时 只在benchmark profile中执行
+     */
+    @Test
+    @Tag("benchmark")
+    void rateLimitSpacesBatches() {
+        for(int i = 0; i < 40; i++) {
+            mailOutboxDAO.insert("user" + i + "@bjfu.edu.cn", "subject", "content", null);
+        }
+        long start = System.nanoTime();
+        mailOutboxTask.drain();
+        long cost = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(40, smtpServer.recipients.size());
+        // 每秒100封 4批中最后一批至少在300ms后开始
+        assertTrue(cost >= 250, "耗时" + cost + "ms");
+    }
+
+    @Test
+    void scheduledRunReturnsBeforeSending() throws InterruptedException {
+        for(int i = 0; i < 40; i++) {
+            mailOutboxDAO.insert("user" + i + "@bjfu.edu.cn", "subject", "content", null);
+        }
+        mailOutboxTask.schedule();
+        // 限速下发送完需要300ms以上 调度线程不等待
+        assertTrue(smtpServer.recipients.size() < 40);
+        // 上一次还未结束时跳过
+        mailOutboxTask.schedule();
+
+        for(int i = 0; i < 100 && mailOutboxRepository.count() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, mailOutboxRepository.count());
+        assertEquals(40, smtpServer.recipients.size());
+    }
+
+    @Test
+    void notifyMailsRecordResultAfterRetries() {
+        User author = userRepository.save(createUser("author"));
+        User accepted = userRepository.save(createUser("accepted"));
+        User rejected = userRepository.save(createUser(REJECTED));
+        Notify notify = new Notify();
+        notify.setTitle("通知标题");
+        notify.setContent("通知内容");
+        notify.setType(NotifyTypeEnum.CONTEST_NOTIFY);
+        notify.setTargetId(1L);
+        notify.setIsSendEmail(true);
+        notify.setIsDelivered(true);
+        notify.setAuthor(author);
+        notifyRepository.save(notify);
+        List<UserInbox> inboxes = new ArrayList<>();
+        for(User user : Arrays.asList(accepted, rejected)) {
+            UserInbox inbox = new UserInbox();
+            inbox.setUser(user);
+            inbox.setNotify(notify);
+            inbox.setIsRead(false);
+            inboxes.add(inbox);
+        }
+        userInboxRepository.saveAll(inboxes);
+        mailService.sendNotifyMails(notify, inboxes);
+
+        // 被拒收的邮件不影响同一连接中的其他邮件
+        mailOutboxTask.drain();
+        assertEquals(Collections.singletonList(accepted.getEmail()), smtpServer.recipients);
+        assertTrue(inbox(inboxes.get(0)).getIsSendEmailSuccess());
+        assertNull(inbox(inboxes.get(1)).getIsSendEmailSuccess());
+        MailOutbox retry = mailOutboxRepository.findAll().get(0);
+        assertEquals(rejected.getEmail(), retry.getToAddress());
+        assertEquals(1, retry.getAttempts());
+        assertNotNull(retry.getLastError());
+
+        // 超过次数后放弃 记录发送失败
+        mailOutboxTask.drain();
+        assertFalse(inbox(inboxes.get(1)).getIsSendEmailSuccess());
+        assertEquals(0, mailOutboxRepository.count());
+        assertEquals(1, smtpServer.recipients.size());
+    }
+
+    @Test
+    void registerDoesNotWaitForSmtp() {
+        UserRegisterRequest request = new UserRegisterRequest();
+        request.setAccount("register");
+        request.setEmail("register@bjfu.edu.cn");
+        request.setPassword("password");
+        request.setType(UserTypeEnum.STUDENT);
+        request.setName("name");
+        request.setGender(UserGenderEnum.SECRECY);
+        request.setCollege("college");
+        userService.register(request);
+
+        assertEquals(0, smtpServer.connections.get());
+        MailOutbox mail = mailOutboxRepository.findAll().get(0);
+        assertEquals("register@bjfu.edu.cn", mail.getToAddress());
+        assertTrue(mail.getContent().contains("activate?token="));
+        mailOutboxTask.drain();
+        assertEquals(Collections.singletonList("register@bjfu.edu.cn"), smtpServer.recipients);
+    }
+
+    private UserInbox inbox(UserInbox inbox) {
+        return userInboxRepository.findById(inbox.getId()).orElseThrow(IllegalStateException::new);
+    }
+
+    private User createUser(String prefix) {
+        int seq = SEQ.incrementAndGet();
+        User user = new User();
+        user.setAccount(prefix + seq);
+        user.setEmail(prefix + seq + "@bjfu.edu.cn");
+        user.setPassword("password");
+        user.setType(UserTypeEnum.STUDENT);
+        user.setStatus(UserStatusEnum.ACTIVE);
+        user.setName("name" + seq);
+        user.setGender(UserGenderEnum.SECRECY);
+        user.setCollege("college");
+        return user;
+    }
+
+    @TestConfiguration
+    static class SmtpConfig {
+
+        @Bean(destroyMethod = "close")
+        SmtpServer smtpServer() throws IOException {
+            return new SmtpServer();
+        }
+
+        @Bean
+        JavaMailSender mailSender(SmtpServer smtpServer) {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("127.0.0.1");
+            mailSender.setPort(smtpServer.serverSocket.getLocalPort());
+            mailSender.setDefaultEncoding(StandardCharsets.UTF_8.name());
+            mailSender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+            return mailSender;
+        }
+    }
+
+    /**
+     * 只实现发送所需命令的smtp服务 收件人包含reject时拒收
+     */
+    static class SmtpServer implements Closeable {
+
+        private final ServerSocket serverSocket;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final List<String> recipients = Collections.synchronizedList(new ArrayList<>());
+
+        SmtpServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            executor.execute(this::accept);
+        }
+
+        void reset() {
+            connections.set(0);
+            recipients.clear();
+        }
+
+        private void accept() {
+            while(!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    executor.execute(() -> handle(socket));
+                } catch (IOException exception) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket socket) {
+            try(Socket client = socket;
+                BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                Writer writer = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) {
+                reply(writer, "220 localhost");
+                String recipient = null;
+                String line;
+                while((line = reader.readLine()) != null) {
+                    String command = line.toUpperCase(Locale.ROOT);
+                    if(command.startsWith("RCPT TO")) {
+                        if(line.contains(REJECTED)) {
+                            reply(writer, "550 mailbox unavailable");
+                        } else {
+                            recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                            reply(writer, "250 OK");
+                        }
+                    } else if(command.equals("DATA")) {
+                        reply(writer, "354 end with .");
+                        while(!".".equals(reader.readLine())) {
+                            // 丢弃邮件内容
+                        }
+                        recipients.add(recipient);
+                        reply(writer, "250 OK");
+                    } else if(command.startsWith("QUIT")) {
+                        reply(writer, "221 bye");
+                        return;
+                    } else {
+                        // EHLO MAIL RSET NOOP
+                        reply(writer, "250 OK");
+                    }
+                }
+            } catch (IOException ignored) {
+                // 客户端断开
+            }
+        }
+
+        private void reply(Writer writer, String line) throws IOException {
+            writer.write(line + "\r\n");
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            executor.shutdownNow();
+        }
+    }
+
+}
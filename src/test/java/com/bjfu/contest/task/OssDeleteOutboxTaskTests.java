@@ -0,0 +1,121 @@
+package com.bjfu.contest.task;
+
+import com.bjfu.contest.dao.impl.OssDeleteOutboxDAOImpl;
+import com.bjfu.contest.enums.ResultEnum;
+import com.bjfu.contest.exception.OssException;
+import com.bjfu.contest.pojo.entity.OssDeleteOutbox;
+import com.bjfu.contest.repository.OssDeleteOutboxRepository;
+import com.bjfu.contest.service.OssService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 待删除文件的批量删除 失败重试及积压数量 以及定时任务不等待删除完成
+ * @author warthog
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database=H2",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "oss.delete.interval-millis=3600000",
+        "oss.delete.batch-size=2"
+})
+@Import({OssDeleteOutboxTask.class, OssDeleteOutboxDAOImpl.class})
+class OssDeleteOutboxTaskTests {
+
+    private static final String BUCKET = "contest-file";
+
+    @Autowired
+    private OssDeleteOutboxTask ossDeleteOutboxTask;
+    @Autowired
+    private OssDeleteOutboxDAOImpl ossDeleteOutboxDAO;
+    @Autowired
+    private OssDeleteOutboxRepository ossDeleteOutboxRepository;
+    @MockBean
+    private OssService ossService;
+
+    @Test
+    void failedObjectsAreRetriedWithBackoff() {
+        for(String objectName : Arrays.asList("o1", "o2", "o3", "o4", "o5")) {
+            ossDeleteOutboxDAO.insert(BUCKET, objectName);
+        }
+        when(ossService.deleteObjects(eq(BUCKET), any()))
+                .thenAnswer(invocation -> invocation.<Collection<String>>getArgument(1).contains("o2")
+                        ? Collections.singleton("o2") : Collections.emptySet());
+
+        ossDeleteOutboxTask.drain();
+
+        // 每批2个 共3批
+        verify(ossService, times(3)).deleteObjects(eq(BUCKET), any());
+        List<OssDeleteOutbox> remaining = ossDeleteOutboxRepository.findAll();
+        assertEquals(1, remaining.size());
+        assertEquals("o2", remaining.get(0).getObjectName());
+        assertEquals(1, remaining.get(0).getAttempts());
+        assertTrue(remaining.get(0).getNextAttemptTime().after(new Date()));
+        assertEquals(1, ossDeleteOutboxTask.getDepth());
+
+        // 退避时间内不再重试
+        ossDeleteOutboxTask.drain();
+        verify(ossService, times(3)).deleteObjects(eq(BUCKET), any());
+    }
+
+    @Test
+    void ossUnavailableKeepsAllObjects() {
+        ossDeleteOutboxDAO.insert(BUCKET, "o1");
+        when(ossService.deleteObjects(eq(BUCKET), any())).thenThrow(new OssException(ResultEnum.FILE_DELETE_FAILED));
+
+        ossDeleteOutboxTask.drain();
+
+        OssDeleteOutbox outbox = ossDeleteOutboxRepository.findAll().get(0);
+        assertEquals(1, outbox.getAttempts());
+        assertEquals(ResultEnum.FILE_DELETE_FAILED.getMsg(), outbox.getLastError());
+        assertEquals(1, ossDeleteOutboxTask.getDepth());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void scheduledRunReturnsBeforeDeleting() throws InterruptedException {
+        ossDeleteOutboxDAO.insert(BUCKET, "o1");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ossService.deleteObjects(eq(BUCKET), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Collections.emptySet();
+        });
+        try {
+            // oss未响应时调度线程不等待
+            ossDeleteOutboxTask.schedule();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // 上一次还未结束时跳过
+            ossDeleteOutboxTask.schedule();
+            release.countDown();
+
+            verify(ossService, timeout(5000)).deleteObjects(eq(BUCKET), any());
+            for(int i = 0; i < 100 && ossDeleteOutboxRepository.count() > 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, ossDeleteOutboxRepository.count());
+            verify(ossService, times(1)).deleteObjects(eq(BUCKET), any());
+        } finally {
+            release.countDown();
+            ossDeleteOutboxRepository.deleteAllInBatch();
+        }
+    }
+
+}